@@ -16,7 +16,9 @@ public class App {
         // 启动HTTP服务器
         new Thread(() -> {
             try {
-                new HttpServer(8081).run();
+                HttpServer httpServer = new HttpServer(8081);
+                httpServer.enableHttp2();
+                httpServer.run();
             } catch (Exception e) {
                 e.printStackTrace();
             }
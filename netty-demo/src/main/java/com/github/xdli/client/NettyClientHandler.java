@@ -2,28 +2,44 @@ package com.github.xdli.client;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import com.github.xdli.codec.MessageEncoder;
 import com.github.xdli.protocol.MessageProtocol;
+import io.netty.util.ReferenceCountUtil;
 
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 服务端主动发来的心跳请求需要回复, 否则会被服务端的读空闲检测断开;
+ * 心跳回复不再应答
+ */
 public class NettyClientHandler extends ChannelInboundHandlerAdapter {
     
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
-        if (msg instanceof MessageProtocol) {
-            MessageProtocol message = (MessageProtocol) msg;
+        if (!(msg instanceof MessageProtocol)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        MessageProtocol message = (MessageProtocol) msg;
+        try {
             System.out.println("收到服务器响应: type=" + message.getType() + 
                              ", length=" + message.getLength());
             
-            if (message.getType() == 0) {
+            if (message.getType() != MessageProtocol.TYPE_HEARTBEAT) {
+                System.out.println("收到消息内容: " + message.content().toString(StandardCharsets.UTF_8));
+            } else if (message.isPong()) {
                 System.out.println("收到心跳响应");
             } else {
-                System.out.println("收到消息内容: " + new String(message.getContent()));
+                ctx.writeAndFlush(MessageEncoder.pongFrame(), ctx.voidPromise());
             }
+        } finally {
+            ReferenceCountUtil.release(message);
         }
     }
-
+    
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         cause.printStackTrace();
         ctx.close();
     }
-} 
\ No newline at end of file
+}
@@ -4,33 +4,60 @@ import com.github.xdli.protocol.MessageProtocol;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
 
 import java.util.List;
 
 public class MessageDecoder extends ByteToMessageDecoder {
+    private static final int HEADER_LENGTH = 5; // 4字节长度 + 1字节类型
+    // 默认最大内容长度64MB
+    public static final int DEFAULT_MAX_CONTENT_LENGTH = 64 * 1024 * 1024;
+    // 帧未收齐时累积缓冲区每次最多预留64KB
+    private static final int MAX_RESERVE_BYTES = 64 * 1024;
+    
+    private final int maxContentLength;
+    
+    public MessageDecoder() {
+        this(DEFAULT_MAX_CONTENT_LENGTH);
+    }
+    
+    /**
+     * @param maxContentLength 允许的最大内容长度, 超过时读到帧头即拒绝
+     */
+    public MessageDecoder(int maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+    
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
-        if (in.readableBytes() < 5) { // 4字节长度 + 1字节类型
+        if (in.readableBytes() < HEADER_LENGTH) {
             return;
         }
         
-        in.markReaderIndex();
-        int length = in.readInt();
-        byte type = in.readByte();
+        int length = in.getInt(in.readerIndex());
+        if (length < 0) {
+            in.skipBytes(in.readableBytes());
+            throw new CorruptedFrameException("非法的内容长度: " + length);
+        }
+        if (length > maxContentLength) {
+            in.skipBytes(in.readableBytes());
+            throw new TooLongFrameException("内容长度" + length + "超过上限" + maxContentLength);
+        }
         
-        if (in.readableBytes() < length) {
-            in.resetReaderIndex();
+        int missing = HEADER_LENGTH + length - in.readableBytes();
+        if (missing > 0) {
+            // 预扩容以实际到达的数据为限, 不按对端声明的长度分配, 避免少量字节换取大块内存
+            int reserve = Math.min(missing, MAX_RESERVE_BYTES);
+            if (in.writableBytes() < reserve && in.maxWritableBytes() >= reserve) {
+                in.ensureWritable(reserve);
+            }
             return;
         }
         
-        byte[] content = new byte[length];
-        in.readBytes(content);
-        
-        MessageProtocol message = new MessageProtocol();
-        message.setLength(length);
-        message.setType(type);
-        message.setContent(content);
-        
-        out.add(message);
+        in.skipBytes(4);
+        byte type = in.readByte();
+        // 内容是累积缓冲区(池化直接内存)的retained切片, 不拷贝
+        out.add(new MessageProtocol(type, in.readRetainedSlice(length)));
     }
-} 
\ No newline at end of file
+}
@@ -2,14 +2,59 @@ package com.github.xdli.codec;
 
 import com.github.xdli.protocol.MessageProtocol;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
 
-public class MessageEncoder extends MessageToByteEncoder<MessageProtocol> {
+import java.util.List;
+
+/**
+ * 帧头单独写入一个小缓冲区, 内容ByteBuf原样传给下一个handler, 由gathering write一起写出, 不拷贝内容;
+ * 小于COPY_THRESHOLD的内容直接和帧头合并到一个缓冲区, 避免每帧两个缓冲区的开销
+ */
+public class MessageEncoder extends MessageToMessageEncoder<MessageProtocol> {
+    private static final int COPY_THRESHOLD = 512;
+    // 预编码的心跳请求/回复帧(长度1, 类型0, 内容为标记), 所有连接共享, 不可释放
+    private static final ByteBuf PING_FRAME = heartbeat(MessageProtocol.HEARTBEAT_PING);
+    private static final ByteBuf PONG_FRAME = heartbeat(MessageProtocol.HEARTBEAT_PONG);
+    
+    private static ByteBuf heartbeat(byte marker) {
+        return Unpooled.unreleasableBuffer(Unpooled.directBuffer(6, 6)
+                .writeInt(1).writeByte(MessageProtocol.TYPE_HEARTBEAT).writeByte(marker)).asReadOnly();
+    }
+    
+    /**
+     * 心跳请求帧的共享视图, 直接写出, 不经过编码也不分配缓冲区
+     */
+    public static ByteBuf pingFrame() {
+        return PING_FRAME.duplicate();
+    }
+    
+    /**
+     * 心跳回复帧的共享视图
+     */
+    public static ByteBuf pongFrame() {
+        return PONG_FRAME.duplicate();
+    }
+    
     @Override
-    protected void encode(ChannelHandlerContext ctx, MessageProtocol msg, ByteBuf out) {
-        out.writeInt(msg.getLength());
-        out.writeByte(msg.getType());
-        out.writeBytes(msg.getContent());
+    protected void encode(ChannelHandlerContext ctx, MessageProtocol msg, List<Object> out) {
+        ByteBuf content = msg.content();
+        int length = content.readableBytes();
+        if (length < COPY_THRESHOLD) {
+            ByteBuf frame = ctx.alloc().ioBuffer(5 + length);
+            frame.writeInt(length);
+            frame.writeByte(msg.getType());
+            frame.writeBytes(content, content.readerIndex(), length);
+            out.add(frame);
+            return;
+        }
+        
+        ByteBuf header = ctx.alloc().ioBuffer(5);
+        header.writeInt(length);
+        header.writeByte(msg.getType());
+        out.add(header);
+        // MessageToMessageEncoder会在encode之后释放msg, 内容需要retain
+        out.add(content.retain());
     }
-} 
\ No newline at end of file
+}
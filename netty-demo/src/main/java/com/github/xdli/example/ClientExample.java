@@ -2,6 +2,9 @@ package com.github.xdli.example;
 
 import com.github.xdli.client.NettyClient;
 import com.github.xdli.protocol.MessageProtocol;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 
 import java.nio.charset.StandardCharsets;
@@ -31,30 +34,21 @@ public class ClientExample {
     }
 
     private static void sendHeartbeat(Channel channel) {
-        MessageProtocol message = new MessageProtocol();
-        message.setType((byte) 0);
-        message.setContent(new byte[0]);
-        message.setLength(0);
-        channel.writeAndFlush(message);
+        channel.writeAndFlush(new MessageProtocol(MessageProtocol.TYPE_HEARTBEAT,
+                Unpooled.wrappedBuffer(new byte[]{MessageProtocol.HEARTBEAT_PING})));
         System.out.println("发送心跳包");
     }
 
     private static void sendBusinessMessage(Channel channel, String content) {
-        MessageProtocol message = new MessageProtocol();
-        message.setType((byte) 1);
-        byte[] contentBytes = content.getBytes(StandardCharsets.UTF_8);
-        message.setContent(contentBytes);
-        message.setLength(contentBytes.length);
-        channel.writeAndFlush(message);
+        // 直接编码到池化缓冲区, 写出后由编码器释放
+        ByteBuf contentBuf = ByteBufUtil.writeUtf8(channel.alloc(), content);
+        channel.writeAndFlush(new MessageProtocol(MessageProtocol.TYPE_BUSINESS, contentBuf));
         System.out.println("发送业务消息: " + content);
     }
 
     private static void sendFileData(Channel channel, byte[] fileData) {
-        MessageProtocol message = new MessageProtocol();
-        message.setType((byte) 2);
-        message.setContent(fileData);
-        message.setLength(fileData.length);
-        channel.writeAndFlush(message);
+        ByteBuf contentBuf = channel.alloc().directBuffer(fileData.length).writeBytes(fileData);
+        channel.writeAndFlush(new MessageProtocol(MessageProtocol.TYPE_FILE, contentBuf));
         System.out.println("发送文件数据，大小: " + fileData.length + " bytes");
     }
-} 
\ No newline at end of file
+}
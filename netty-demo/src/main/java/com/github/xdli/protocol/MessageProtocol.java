@@ -1,10 +1,89 @@
 package com.github.xdli.protocol;
 
-import lombok.Data;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+import lombok.Getter;
 
-@Data
-public class MessageProtocol {
-    private int length;
-    private byte type;  // 0: 心跳, 1: 业务消息, 2: 文件传输
-    private byte[] content;
-} 
\ No newline at end of file
+/**
+ * 帧格式: | 4字节长度 | 1字节类型 | 内容 |
+ * 内容为引用计数的ByteBuf, 解码时是入站缓冲区的切片, 编码时直接写出, 全程不拷贝到堆内byte[];
+ * 消息用完后需要release(SimpleChannelInboundHandler会自动释放)
+ */
+@Getter
+public class MessageProtocol extends DefaultByteBufHolder {
+    public static final byte TYPE_HEARTBEAT = 0;
+    public static final byte TYPE_BUSINESS = 1;
+    public static final byte TYPE_FILE = 2;
+    // 心跳内容的1字节标记: 心跳请求或回复; 没有内容的心跳视为请求
+    public static final byte HEARTBEAT_PING = 0;
+    public static final byte HEARTBEAT_PONG = 1;
+    
+    private final byte type;  // 0: 心跳, 1: 业务消息, 2: 文件传输
+    
+    public MessageProtocol(byte type, ByteBuf content) {
+        super(content);
+        this.type = type;
+    }
+    
+    public int getLength() {
+        return content().readableBytes();
+    }
+    
+    /**
+     * 是否为心跳回复; 只应答心跳请求, 收到回复时不再应答, 避免双方无限往返
+     */
+    public boolean isPong() {
+        ByteBuf content = content();
+        return type == TYPE_HEARTBEAT && content.isReadable()
+                && content.getByte(content.readerIndex()) == HEARTBEAT_PONG;
+    }
+    
+    @Override
+    public MessageProtocol replace(ByteBuf content) {
+        return new MessageProtocol(type, content);
+    }
+    
+    @Override
+    public MessageProtocol copy() {
+        return (MessageProtocol) super.copy();
+    }
+    
+    @Override
+    public MessageProtocol duplicate() {
+        return (MessageProtocol) super.duplicate();
+    }
+    
+    @Override
+    public MessageProtocol retainedDuplicate() {
+        return (MessageProtocol) super.retainedDuplicate();
+    }
+    
+    @Override
+    public MessageProtocol retain() {
+        super.retain();
+        return this;
+    }
+    
+    @Override
+    public MessageProtocol retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+    
+    @Override
+    public MessageProtocol touch() {
+        super.touch();
+        return this;
+    }
+    
+    @Override
+    public MessageProtocol touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+    
+    @Override
+    public String toString() {
+        return "MessageProtocol(type=" + type + ", length=" + getLength() + ")";
+    }
+}
@@ -0,0 +1,215 @@
+package com.github.xdli.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按话题的WebSocket广播, 订阅关系按EventLoop分片
+ * 每个分片只在所属EventLoop上访问, 无需加锁; 发布时消息只编码一次为完整的WebSocket帧,
+ * 每个分片一个任务, 由各EventLoop写给自己的订阅者, 发布方线程的开销与订阅者数量无关
+ * 预编码的帧绕过WebSocket编码器直接写出, 因此不能与permessage-deflate等扩展一起使用
+ */
+public class BroadcastHub {
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final ConcurrentHashMap<EventExecutor, Shard> shards = new ConcurrentHashMap<>();
+    
+    public BroadcastHub(SlowConsumerPolicy slowConsumerPolicy) {
+        this.slowConsumerPolicy = slowConsumerPolicy;
+    }
+    
+    public void subscribe(String topic, Channel channel) {
+        Shard shard = shard(channel.eventLoop());
+        runInLoop(channel.eventLoop(), () -> shard.subscribe(topic, channel));
+    }
+    
+    public void unsubscribe(String topic, Channel channel) {
+        Shard shard = shard(channel.eventLoop());
+        runInLoop(channel.eventLoop(), () -> shard.unsubscribe(topic, channel));
+    }
+    
+    /**
+     * 取消channel的全部订阅, 连接断开时调用
+     */
+    public void unsubscribeAll(Channel channel) {
+        Shard shard = shard(channel.eventLoop());
+        runInLoop(channel.eventLoop(), () -> shard.unsubscribeAll(channel));
+    }
+    
+    /**
+     * channel恢复可写时补发合并的消息, 在channelWritabilityChanged中调用
+     */
+    public void onWritable(Channel channel) {
+        Shard shard = shards.get(channel.eventLoop());
+        if (shard != null) {
+            runInLoop(channel.eventLoop(), () -> shard.drainPending(channel));
+        }
+    }
+    
+    /**
+     * 以文本帧广播到话题的所有订阅者, 可在任意线程调用
+     */
+    public void publish(String topic, String text) {
+        publish(topic, encodeTextFrame(ByteBufAllocator.DEFAULT, text));
+    }
+    
+    /**
+     * @param frame 完整编码的WebSocket帧, 由本方法负责释放
+     */
+    public void publish(String topic, ByteBuf frame) {
+        try {
+            for (Map.Entry<EventExecutor, Shard> entry : shards.entrySet()) {
+                Shard shard = entry.getValue();
+                ByteBuf shared = frame.retain();
+                entry.getKey().execute(() -> shard.deliver(topic, shared));
+            }
+        } finally {
+            frame.release();
+        }
+    }
+    
+    /**
+     * 编码服务端发出的文本帧(FIN, 不加掩码)
+     */
+    public static ByteBuf encodeTextFrame(ByteBufAllocator alloc, String text) {
+        int length = ByteBufUtil.utf8Bytes(text);
+        ByteBuf frame = alloc.directBuffer(10 + length);
+        frame.writeByte(0x81);
+        if (length < 126) {
+            frame.writeByte(length);
+        } else if (length <= 0xFFFF) {
+            frame.writeByte(126);
+            frame.writeShort(length);
+        } else {
+            frame.writeByte(127);
+            frame.writeLong(length);
+        }
+        ByteBufUtil.writeUtf8(frame, text);
+        return frame;
+    }
+    
+    private Shard shard(EventExecutor eventLoop) {
+        Shard shard = shards.get(eventLoop);
+        return shard != null ? shard : shards.computeIfAbsent(eventLoop, k -> new Shard());
+    }
+    
+    private static void runInLoop(EventExecutor eventLoop, Runnable task) {
+        if (eventLoop.inEventLoop()) {
+            task.run();
+        } else {
+            eventLoop.execute(task);
+        }
+    }
+    
+    /**
+     * 单个EventLoop上的订阅关系, 只在该EventLoop上访问
+     */
+    private final class Shard {
+        private final Map<String, Set<Channel>> subscribers = new HashMap<>();
+        private final Map<Channel, Set<String>> topicsByChannel = new HashMap<>();
+        // CONFLATE模式下不可写的订阅者在各话题上的最新消息
+        private final Map<Channel, Map<String, ByteBuf>> pending = new HashMap<>();
+        
+        void subscribe(String topic, Channel channel) {
+            if (!channel.isActive()) {
+                return;
+            }
+            subscribers.computeIfAbsent(topic, k -> new LinkedHashSet<>()).add(channel);
+            topicsByChannel.computeIfAbsent(channel, k -> new HashSet<>()).add(topic);
+        }
+        
+        void unsubscribe(String topic, Channel channel) {
+            Set<Channel> channels = subscribers.get(topic);
+            if (channels != null && channels.remove(channel) && channels.isEmpty()) {
+                subscribers.remove(topic);
+            }
+            Set<String> topics = topicsByChannel.get(channel);
+            if (topics != null && topics.remove(topic) && topics.isEmpty()) {
+                topicsByChannel.remove(channel);
+            }
+            Map<String, ByteBuf> conflated = pending.get(channel);
+            if (conflated != null) {
+                ByteBuf frame = conflated.remove(topic);
+                if (frame != null) {
+                    frame.release();
+                }
+                if (conflated.isEmpty()) {
+                    pending.remove(channel);
+                }
+            }
+        }
+        
+        void unsubscribeAll(Channel channel) {
+            Set<String> topics = topicsByChannel.get(channel);
+            if (topics != null) {
+                for (String topic : topics.toArray(new String[0])) {
+                    unsubscribe(topic, channel);
+                }
+            }
+        }
+        
+        void deliver(String topic, ByteBuf frame) {
+            try {
+                Set<Channel> channels = subscribers.get(topic);
+                if (channels == null) {
+                    return;
+                }
+                for (Iterator<Channel> it = channels.iterator(); it.hasNext(); ) {
+                    Channel channel = it.next();
+                    Map<String, ByteBuf> conflated = pending.get(channel);
+                    if (channel.isWritable() && (conflated == null || !conflated.containsKey(topic))) {
+                        // 每个订阅者一个共享内容的retained视图, 不拷贝、不重复编码
+                        channel.writeAndFlush(frame.retainedDuplicate(), channel.voidPromise());
+                    } else if (!onSlowConsumer(topic, channel, frame)) {
+                        it.remove();
+                    }
+                }
+            } finally {
+                frame.release();
+            }
+        }
+        
+        /**
+         * @return 订阅者是否保留; DISCONNECT时返回false, 由调用方从订阅集合中移除
+         */
+        private boolean onSlowConsumer(String topic, Channel channel, ByteBuf frame) {
+            switch (slowConsumerPolicy) {
+                case CONFLATE:
+                    ByteBuf previous = pending.computeIfAbsent(channel, k -> new HashMap<>())
+                            .put(topic, frame.retainedDuplicate());
+                    if (previous != null) {
+                        previous.release();
+                    }
+                    return true;
+                case DISCONNECT:
+                    // 其余话题的订阅在连接断开时由unsubscribeAll清理
+                    channel.close();
+                    return false;
+                default:
+                    return true;
+            }
+        }
+        
+        void drainPending(Channel channel) {
+            Map<String, ByteBuf> conflated = pending.get(channel);
+            if (conflated == null || !channel.isWritable()) {
+                return;
+            }
+            pending.remove(channel);
+            for (ByteBuf frame : conflated.values()) {
+                channel.write(frame, channel.voidPromise());
+            }
+            channel.flush();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.xdli.server;
+
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.ReferenceCounted;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 打开的文件描述符缓存, 按最近使用淘汰, 上限maxOpenFiles
+ * 缓存和每次传输各持有一个引用, 被淘汰的文件在最后一次传输结束后才关闭;
+ * 文件的大小或修改时间变化时重新打开
+ */
+public class FileChannelCache {
+    private final int maxOpenFiles;
+    private final LinkedHashMap<String, OpenFile> files = new LinkedHashMap<>(16, 0.75f, true);
+    
+    public FileChannelCache(int maxOpenFiles) {
+        this.maxOpenFiles = maxOpenFiles;
+    }
+    
+    /**
+     * 取得文件的已打开句柄, 返回的OpenFile已retain, 用完后需release
+     */
+    public OpenFile acquire(File file) throws IOException {
+        String key = file.getCanonicalPath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        synchronized (this) {
+            OpenFile cached = files.get(key);
+            if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+                return cached.retain();
+            }
+            if (cached != null) {
+                files.remove(key);
+                cached.release();
+            }
+        }
+        
+        // 打开文件不持有锁
+        OpenFile opened = new OpenFile(FileChannel.open(file.toPath(), StandardOpenOption.READ), length, lastModified);
+        synchronized (this) {
+            OpenFile previous = files.put(key, opened.retain());
+            if (previous != null) {
+                previous.release();
+            }
+            Iterator<OpenFile> it = files.values().iterator();
+            while (files.size() > maxOpenFiles && it.hasNext()) {
+                OpenFile eldest = it.next();
+                it.remove();
+                eldest.release();
+            }
+        }
+        return opened;
+    }
+    
+    public synchronized int size() {
+        return files.size();
+    }
+    
+    public synchronized void clear() {
+        for (Map.Entry<String, OpenFile> entry : files.entrySet()) {
+            entry.getValue().release();
+        }
+        files.clear();
+    }
+    
+    /**
+     * 引用计数的文件句柄, 计数归零时关闭
+     */
+    public static final class OpenFile extends AbstractReferenceCounted {
+        private final FileChannel channel;
+        private final long length;
+        private final long lastModified;
+        
+        OpenFile(FileChannel channel, long length, long lastModified) {
+            this.channel = channel;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+        
+        public FileChannel channel() {
+            return channel;
+        }
+        
+        public long length() {
+            return length;
+        }
+        
+        @Override
+        public OpenFile retain() {
+            super.retain();
+            return this;
+        }
+        
+        @Override
+        public ReferenceCounted touch(Object hint) {
+            return this;
+        }
+        
+        @Override
+        protected void deallocate() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -10,14 +10,31 @@ import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.LineBasedFrameDecoder;
 import io.netty.handler.codec.string.StringDecoder;
 import io.netty.handler.codec.string.StringEncoder;
+import io.netty.handler.ssl.SslContext;
 import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.util.CharsetUtil;
 
 public class FileServer {
+    // 默认最多缓存的打开文件数
+    public static final int DEFAULT_MAX_OPEN_FILES = 1024;
+    
     private final int port;
+    // 为null时不启用TLS, 文件通过sendfile零拷贝发送
+    private final SslContext sslContext;
+    private final FileChannelCache fileCache;
 
     public FileServer(int port) {
+        this(port, null, DEFAULT_MAX_OPEN_FILES);
+    }
+
+    /**
+     * @param sslContext 为null时不启用TLS
+     * @param maxOpenFiles 所有连接共享的打开文件描述符缓存上限
+     */
+    public FileServer(int port, SslContext sslContext, int maxOpenFiles) {
         this.port = port;
+        this.sslContext = sslContext;
+        this.fileCache = new FileChannelCache(maxOpenFiles);
     }
 
     public void run() throws Exception {
@@ -31,12 +48,15 @@ public class FileServer {
              .childHandler(new ChannelInitializer<SocketChannel>() {
                  @Override
                  protected void initChannel(SocketChannel ch) {
+                     if (sslContext != null) {
+                         ch.pipeline().addLast(sslContext.newHandler(ch.alloc()));
+                     }
                      ch.pipeline()
                        .addLast(new LineBasedFrameDecoder(8192))
                        .addLast(new StringDecoder(CharsetUtil.UTF_8))
                        .addLast(new StringEncoder(CharsetUtil.UTF_8))
                        .addLast(new ChunkedWriteHandler())
-                       .addLast(new FileServerHandler());
+                       .addLast(new FileServerHandler(fileCache));
                  }
              });
 
@@ -46,6 +66,7 @@ public class FileServer {
         } finally {
             workerGroup.shutdownGracefully();
             bossGroup.shutdownGracefully();
+            fileCache.clear();
         }
     }
 } 
\ No newline at end of file
@@ -1,26 +1,122 @@
 package com.github.xdli.server;
 
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.handler.stream.ChunkedFile;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedNioFile;
 import java.io.File;
-import java.io.RandomAccessFile;
+import java.io.IOException;
 
+/**
+ * 请求为一行文本:
+ *   <路径>                         下载整个文件
+ *   RANGE <偏移> <长度> <路径>      下载指定范围, 长度为-1表示到文件末尾; 断点续传时偏移即已收到的字节数
+ * 响应先写一行"OK <偏移> <长度> <文件大小>", 随后是该范围的原始字节; 失败时为一行"ERR <原因>"
+ * 未启用TLS时通过FileRegion(sendfile)直接从页缓存发送, 否则分块读入内存后加密发送
+ */
 public class FileServerHandler extends SimpleChannelInboundHandler<String> {
+    private static final String RANGE_PREFIX = "RANGE ";
+    // TLS下每块读取的字节数
+    private static final int CHUNK_SIZE = 64 * 1024;
+    
+    private final FileChannelCache fileCache;
+    
+    public FileServerHandler(FileChannelCache fileCache) {
+        this.fileCache = fileCache;
+    }
+    
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, String msg) throws Exception {
-        File file = new File(msg);
-        if (file.exists() && file.isFile()) {
-            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
-            ctx.writeAndFlush(new ChunkedFile(randomAccessFile));
+        String path = msg;
+        long offset = 0;
+        long length = -1;
+        if (msg.startsWith(RANGE_PREFIX)) {
+            String[] parts = msg.split(" ", 4);
+            try {
+                offset = Long.parseLong(parts[1]);
+                length = Long.parseLong(parts[2]);
+                path = parts[3];
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                ctx.writeAndFlush("ERR 非法的范围请求: " + msg + "\n");
+                return;
+            }
+            // 负数长度只允许-1(到文件末尾)
+            if (length < -1) {
+                ctx.writeAndFlush("ERR 非法的范围请求: " + msg + "\n");
+                return;
+            }
+        }
+        
+        File file = new File(path);
+        if (!file.isFile()) {
+            ctx.writeAndFlush("ERR 文件不存在: " + path + "\n");
+            return;
+        }
+        FileChannelCache.OpenFile openFile;
+        try {
+            openFile = fileCache.acquire(file);
+        } catch (IOException e) {
+            ctx.writeAndFlush("ERR 无法打开文件: " + path + ", " + e.getMessage() + "\n");
+            return;
+        }
+        long fileSize = openFile.length();
+        if (length == -1) {
+            length = fileSize - offset;
+        }
+        // 用减法比较, offset + length可能溢出为负数而绕过检查
+        if (length < 0 || offset < 0 || offset > fileSize || length > fileSize - offset) {
+            openFile.release();
+            ctx.writeAndFlush("ERR 范围超出文件大小" + fileSize + ": " + offset + "+" + length + "\n");
+            return;
+        }
+        
+        ctx.write("OK " + offset + " " + length + " " + fileSize + "\n");
+        if (ctx.pipeline().get(SslHandler.class) == null) {
+            ctx.writeAndFlush(new CachedFileRegion(openFile, offset, length));
         } else {
-            ctx.writeAndFlush("文件不存在: " + msg + "\n");
+            ctx.writeAndFlush(new CachedChunkedFile(openFile, offset, length));
         }
     }
-
+    
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         cause.printStackTrace();
         ctx.close();
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 释放时归还缓存的文件句柄而不是关闭文件
+     */
+    private static final class CachedFileRegion extends DefaultFileRegion {
+        private final FileChannelCache.OpenFile openFile;
+        
+        CachedFileRegion(FileChannelCache.OpenFile openFile, long position, long count) {
+            super(openFile.channel(), position, count);
+            this.openFile = openFile;
+        }
+        
+        @Override
+        protected void deallocate() {
+            openFile.release();
+        }
+    }
+    
+    private static final class CachedChunkedFile extends ChunkedNioFile {
+        private final FileChannelCache.OpenFile openFile;
+        private boolean closed;
+        
+        CachedChunkedFile(FileChannelCache.OpenFile openFile, long offset, long length) throws IOException {
+            super(openFile.channel(), offset, length, CHUNK_SIZE);
+            this.openFile = openFile;
+        }
+        
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                openFile.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.xdli.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 一个请求的请求体接收器, 所有方法都在连接的EventLoop上调用
+ */
+public interface HttpBodyHandler {
+    /**
+     * 收到一个内容块, 方法返回后content被释放, 异步使用时需自行retain;
+     * 返回未完成的future时连接暂停读取, 直到所有future完成; 同步处理完返回null
+     */
+    CompletableFuture<?> onContent(ByteBuf content) throws Exception;
+
+    /**
+     * 请求体接收完毕且onContent返回的future都已完成, 返回响应
+     */
+    FullHttpResponse onComplete(ChannelHandlerContext ctx) throws Exception;
+
+    /**
+     * 连接断开或处理失败, 释放已占用的资源
+     */
+    void onAbort(Throwable cause);
+}
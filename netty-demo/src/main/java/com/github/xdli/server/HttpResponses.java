@@ -0,0 +1,63 @@
+package com.github.xdli.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderNames.SERVER;
+
+/**
+ * 响应构造工具: 头部名称和值都是预先编码好的AsciiString, 编码时直接按字节拷贝
+ */
+public final class HttpResponses {
+    public static final AsciiString TEXT_PLAIN_UTF8 = AsciiString.cached("text/plain; charset=UTF-8");
+    public static final AsciiString SERVER_NAME = AsciiString.cached("netty-demo");
+
+    private HttpResponses() {
+    }
+
+    /**
+     * 动态文本响应, 内容直接以UTF-8写入池化直接缓冲区
+     */
+    public static FullHttpResponse text(ByteBufAllocator alloc, HttpResponseStatus status, CharSequence text) {
+        ByteBuf content = alloc.directBuffer(ByteBufUtil.utf8MaxBytes(text));
+        ByteBufUtil.writeUtf8(content, text);
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, content, false);
+        response.headers()
+                .set(CONTENT_TYPE, TEXT_PLAIN_UTF8)
+                .set(SERVER, SERVER_NAME)
+                .setInt(CONTENT_LENGTH, content.readableBytes());
+        return response;
+    }
+
+    /**
+     * 内容固定的路由: 响应体和头部在注册时编码一次, 每个请求只共享内容视图并拷贝头部引用
+     */
+    public static HttpRoute fixed(HttpResponseStatus status, CharSequence contentType, String body) {
+        byte[] bytes = body.getBytes(CharsetUtil.UTF_8);
+        final ByteBuf content = Unpooled.unreleasableBuffer(
+                Unpooled.directBuffer(bytes.length, bytes.length).writeBytes(bytes)).asReadOnly();
+        final HttpHeaders headers = new DefaultHttpHeaders(false)
+                .set(CONTENT_TYPE, AsciiString.of(contentType))
+                .set(SERVER, SERVER_NAME)
+                .set(CONTENT_LENGTH, AsciiString.of(Integer.toString(bytes.length)));
+        final HttpResponseStatus fixedStatus = status;
+        return (ctx, request) -> {
+            FullHttpResponse response = new DefaultFullHttpResponse(
+                    HttpVersion.HTTP_1_1, fixedStatus, content.duplicate(), false);
+            response.headers().add(headers);
+            return response;
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.xdli.server;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+
+/**
+ * 注册到HttpRouter的请求处理器, 在连接的EventLoop上调用, 不能阻塞;
+ * 响应内容应从ctx.alloc()分配, 由框架写出后释放
+ */
+public interface HttpRoute {
+    FullHttpResponse handle(ChannelHandlerContext ctx, FullHttpRequest request) throws Exception;
+}
@@ -0,0 +1,151 @@
+package com.github.xdli.server;
+
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 路由表: 按路径(不含查询串)和方法查找HttpRoute
+ * 查找直接对URI的路径前缀计算哈希并逐字符比较, 不截取子串也不拼接键;
+ * 路由在服务器启动前注册, 之后只读
+ */
+public class HttpRouter {
+    private static final HttpRoute NOT_FOUND =
+            HttpResponses.fixed(HttpResponseStatus.NOT_FOUND, HttpResponses.TEXT_PLAIN_UTF8, "Not Found");
+    private static final HttpRoute METHOD_NOT_ALLOWED =
+            HttpResponses.fixed(HttpResponseStatus.METHOD_NOT_ALLOWED, HttpResponses.TEXT_PLAIN_UTF8, "Method Not Allowed");
+
+    private Entry[] table = new Entry[16];
+    private int size;
+    private HttpRoute fallback = NOT_FOUND;
+
+    public HttpRouter get(String path, HttpRoute route) {
+        return route(HttpMethod.GET, path, route);
+    }
+
+    public HttpRouter post(String path, HttpRoute route) {
+        return route(HttpMethod.POST, path, route);
+    }
+
+    public HttpRouter route(HttpMethod method, String path, HttpRoute route) {
+        entry(path).routes.put(method, route);
+        return this;
+    }
+
+    /**
+     * 注册流式路由, 请求体按块交给HttpBodyHandler而不是聚合为FullHttpRequest
+     */
+    public HttpRouter stream(HttpMethod method, String path, HttpStreamingRoute route) {
+        Entry entry = entry(path);
+        if (entry.streamingRoutes == null) {
+            entry.streamingRoutes = new HashMap<>(4);
+        }
+        entry.streamingRoutes.put(method, route);
+        return this;
+    }
+
+    private Entry entry(String path) {
+        int hash = hash(path, path.length());
+        Entry entry = lookup(path, path.length(), hash);
+        if (entry == null) {
+            if (size >= table.length * 3 / 4) {
+                resize();
+            }
+            int index = hash & (table.length - 1);
+            entry = new Entry(path, hash, table[index]);
+            table[index] = entry;
+            size++;
+        }
+        return entry;
+    }
+
+    /**
+     * 未注册路径的处理器, 默认返回404
+     */
+    public HttpRouter fallback(HttpRoute route) {
+        this.fallback = route;
+        return this;
+    }
+
+    /**
+     * 路径已注册但方法不匹配时返回405; 没有注册HEAD时使用GET路由, 响应体由HttpServerCodec去掉
+     */
+    public HttpRoute find(HttpMethod method, String uri) {
+        int end = pathEnd(uri);
+        Entry entry = lookup(uri, end, hash(uri, end));
+        if (entry == null) {
+            return fallback;
+        }
+        HttpRoute route = entry.routes.get(method);
+        if (route == null && HttpMethod.HEAD.equals(method)) {
+            route = entry.routes.get(HttpMethod.GET);
+        }
+        return route != null ? route : METHOD_NOT_ALLOWED;
+    }
+
+    /**
+     * 查找流式路由, 没有时返回null, 请求按普通路由聚合处理
+     */
+    public HttpStreamingRoute findStreaming(HttpMethod method, String uri) {
+        int end = pathEnd(uri);
+        Entry entry = lookup(uri, end, hash(uri, end));
+        return entry == null || entry.streamingRoutes == null ? null : entry.streamingRoutes.get(method);
+    }
+
+    private Entry lookup(String uri, int end, int hash) {
+        for (Entry e = table[hash & (table.length - 1)]; e != null; e = e.next) {
+            if (e.hash == hash && e.path.length() == end && uri.startsWith(e.path)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private void resize() {
+        Entry[] old = table;
+        table = new Entry[old.length * 2];
+        for (Entry head : old) {
+            for (Entry e = head; e != null; ) {
+                Entry next = e.next;
+                int index = e.hash & (table.length - 1);
+                e.next = table[index];
+                table[index] = e;
+                e = next;
+            }
+        }
+    }
+
+    private static int pathEnd(String uri) {
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return uri.length();
+    }
+
+    private static int hash(String s, int end) {
+        int h = 0;
+        for (int i = 0; i < end; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry {
+        final String path;
+        final int hash;
+        final Map<HttpMethod, HttpRoute> routes = new HashMap<>(4);
+        Map<HttpMethod, HttpStreamingRoute> streamingRoutes;
+        Entry next;
+
+        Entry(String path, int hash, Entry next) {
+            this.path = path;
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+}
@@ -1,48 +1,120 @@
 package com.github.xdli.server;
 
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.ChannelFuture;
-import io.netty.channel.ChannelInitializer;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.http.HttpObjectAggregator;
-import io.netty.handler.codec.http.HttpServerCodec;
-import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http2.Http2Settings;
 
 public class HttpServer {
+    // HTTP/2连接级接收窗口默认16MB, 大量并发流共享一个连接时不因窗口耗尽而停顿
+    public static final int DEFAULT_HTTP2_CONNECTION_WINDOW = 16 * 1024 * 1024;
+
     private final int port;
+    private final HttpRouter router;
+    private Http2Settings http2Settings;
+    private int http2ConnectionWindow;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
 
     public HttpServer(int port) {
+        this(port, defaultRouter());
+    }
+
+    public HttpServer(int port, HttpRouter router) {
         this.port = port;
+        this.router = router;
     }
 
-    public void run() throws Exception {
-        EventLoopGroup bossGroup = new NioEventLoopGroup();
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+    /**
+     * 示例路由: 固定内容的"/"和"/ping", 流式接收的"POST /upload"(超过64KB写入临时文件), 其他路径回显URI
+     */
+    public static HttpRouter defaultRouter() {
+        return new HttpRouter()
+                .get("/", HttpResponses.fixed(HttpResponseStatus.OK, HttpResponses.TEXT_PLAIN_UTF8,
+                        "Welcome to Netty HTTP Server! URI: /"))
+                .get("/ping", HttpResponses.fixed(HttpResponseStatus.OK, HttpResponses.TEXT_PLAIN_UTF8, "pong"))
+                .stream(HttpMethod.POST, "/upload", (ctx, request) -> new SpillingBodyHandler(ctx.alloc(), 64 * 1024) {
+                    @Override
+                    protected FullHttpResponse onBody(ChannelHandlerContext ctx) {
+                        return HttpResponses.text(ctx.alloc(), HttpResponseStatus.OK,
+                                "received " + length() + " bytes" + (isSpilled() ? " (spilled to disk)" : ""));
+                    }
+                })
+                .fallback((ctx, request) -> HttpResponses.text(ctx.alloc(), HttpResponseStatus.OK,
+                        "Welcome to Netty HTTP Server! URI: " + request.uri()));
+    }
 
-        try {
-            ServerBootstrap b = new ServerBootstrap();
-            b.group(bossGroup, workerGroup)
-             .channel(NioServerSocketChannel.class)
-             .childHandler(new ChannelInitializer<SocketChannel>() {
-                 @Override
-                 protected void initChannel(SocketChannel ch) {
-                     ch.pipeline()
-                       .addLast(new HttpServerCodec())
-                       .addLast(new HttpObjectAggregator(65536))
-                       .addLast(new ChunkedWriteHandler())
-                       .addLast(new HttpServerHandler());
-                 }
-             });
-
-            ChannelFuture f = b.bind(port).sync();
-            System.out.println("HTTP服务器启动，监听端口: " + port);
-            f.channel().closeFuture().sync();
-        } finally {
+    public HttpRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * 示例的HTTP/2参数: 每连接1000个并发流, 流初始窗口1MB, HPACK动态表16KB
+     */
+    public static Http2Settings defaultHttp2Settings() {
+        return Http2Settings.defaultSettings()
+                .maxConcurrentStreams(1000)
+                .initialWindowSize(1024 * 1024)
+                .headerTableSize(16 * 1024)
+                .maxHeaderListSize(16 * 1024);
+    }
+
+    public void enableHttp2() {
+        enableHttp2(defaultHttp2Settings(), DEFAULT_HTTP2_CONNECTION_WINDOW);
+    }
+
+    /**
+     * 在同一端口上同时支持HTTP/1.1、h2c升级和先验知识的HTTP/2, 需在start之前调用
+     * @param settings 服务端发送的初始SETTINGS(并发流数、流窗口、HPACK表大小等)
+     * @param connectionWindowSize 连接级接收窗口
+     */
+    public void enableHttp2(Http2Settings settings, int connectionWindowSize) {
+        this.http2Settings = settings;
+        this.http2ConnectionWindow = connectionWindowSize;
+    }
+
+    /**
+     * 绑定端口后立即返回监听的Channel, 端口为0时由系统分配
+     */
+    public Channel start() throws InterruptedException {
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup();
+
+        ServerBootstrap b = new ServerBootstrap();
+        b.group(bossGroup, workerGroup)
+         .channel(NioServerSocketChannel.class)
+         .option(ChannelOption.SO_BACKLOG, 1024)
+         .childOption(ChannelOption.TCP_NODELAY, true)
+         .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+         .childHandler(new HttpServerInitializer(router, http2Settings, http2ConnectionWindow));
+
+        Channel channel = b.bind(port).sync().channel();
+        System.out.println("HTTP服务器启动，监听端口: " + port + (http2Settings != null ? " (HTTP/1.1, h2c)" : ""));
+        return channel;
+    }
+
+    public void stop() {
+        if (workerGroup != null) {
             workerGroup.shutdownGracefully();
+        }
+        if (bossGroup != null) {
             bossGroup.shutdownGracefully();
         }
     }
-} 
\ No newline at end of file
+
+    public void run() throws Exception {
+        try {
+            start().closeFuture().sync();
+        } finally {
+            stop();
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package com.github.xdli.server;
 
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
-import io.netty.util.CharsetUtil;
 
-import static io.netty.handler.codec.http.HttpHeaderNames.*;
 import static io.netty.handler.codec.http.HttpResponseStatus.*;
 
+/**
+ * 连接保持由前面的HttpServerKeepAliveHandler处理, 这里只按路由表生成响应;
+ * 响应只写不刷, 在channelReadComplete时统一flush, 流水线上同一批读到的多个请求的响应合并为一次写
+ */
 public class HttpServerHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+    private final HttpRouter router;
+
+    public HttpServerHandler(HttpRouter router) {
+        this.router = router;
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
         if (!request.decoderResult().isSuccess()) {
@@ -18,27 +25,25 @@ public class HttpServerHandler extends SimpleChannelInboundHandler<FullHttpReque
             return;
         }
 
-        String uri = request.uri();
-        String responseMessage = "Welcome to Netty HTTP Server! URI: " + uri;
-        FullHttpResponse response = new DefaultFullHttpResponse(
-                HttpVersion.HTTP_1_1,
-                OK,
-                Unpooled.copiedBuffer(responseMessage, CharsetUtil.UTF_8));
-
-        response.headers()
-                .set(CONTENT_TYPE, "text/plain; charset=UTF-8")
-                .setInt(CONTENT_LENGTH, response.content().readableBytes());
+        FullHttpResponse response;
+        try {
+            response = router.find(request.method(), request.uri()).handle(ctx, request);
+        } catch (Exception e) {
+            System.err.println("处理HTTP请求失败: " + request.uri() + ", " + e);
+            response = HttpResponses.text(ctx.alloc(), INTERNAL_SERVER_ERROR, "Error: " + INTERNAL_SERVER_ERROR);
+        }
+        ctx.write(response);
+    }
 
-        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        ctx.flush();
+        ctx.fireChannelReadComplete();
     }
 
     private void sendError(ChannelHandlerContext ctx, HttpResponseStatus status) {
-        FullHttpResponse response = new DefaultFullHttpResponse(
-                HttpVersion.HTTP_1_1,
-                status,
-                Unpooled.copiedBuffer("Error: " + status, CharsetUtil.UTF_8));
-        
-        response.headers().set(CONTENT_TYPE, "text/plain; charset=UTF-8");
+        FullHttpResponse response = HttpResponses.text(ctx.alloc(), status, "Error: " + status);
+        HttpUtil.setKeepAlive(response, false);
         ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
     }
-} 
\ No newline at end of file
+}
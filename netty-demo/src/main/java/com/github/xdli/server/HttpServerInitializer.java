@@ -0,0 +1,150 @@
+package com.github.xdli.server;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerKeepAliveHandler;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.DefaultHttp2WindowUpdateFrame;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.AsciiString;
+import io.netty.util.ReferenceCountUtil;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.AUTHORIZATION;
+import static io.netty.handler.codec.http.HttpHeaderNames.COOKIE;
+import static io.netty.handler.codec.http.HttpHeaderNames.SET_COOKIE;
+
+/**
+ * 只启用HTTP/1.1时直接安装HTTP/1.1处理器;
+ * 启用HTTP/2时同一端口支持三种方式: 先验知识(连接以HTTP/2前言开头)、h2c升级(Upgrade: h2c)和普通HTTP/1.1;
+ * HTTP/2的每个流是一个子Channel, 转换为FullHttpRequest后交给同一个路由表处理
+ */
+class HttpServerInitializer extends ChannelInitializer<Channel> {
+    private static final int MAX_CONTENT_LENGTH = 65536;
+
+    private final HttpRouter router;
+    private final Http2Settings http2Settings;
+    private final int connectionWindowSize;
+
+    /**
+     * @param http2Settings HTTP/2的初始SETTINGS, null表示只支持HTTP/1.1
+     * @param connectionWindowSize 连接级接收窗口
+     */
+    HttpServerInitializer(HttpRouter router, Http2Settings http2Settings, int connectionWindowSize) {
+        this.router = router;
+        this.http2Settings = http2Settings;
+        this.connectionWindowSize = connectionWindowSize;
+    }
+
+    @Override
+    protected void initChannel(Channel ch) {
+        ChannelPipeline p = ch.pipeline();
+        if (http2Settings == null) {
+            p.addLast(new HttpServerCodec()).addLast(http1Handlers());
+            return;
+        }
+        HttpServerCodec sourceCodec = new HttpServerCodec();
+        HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(sourceCodec, protocol ->
+                AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)
+                        ? newUpgradeCodec() : null);
+        p.addLast(new CleartextHttp2ServerUpgradeHandler(sourceCodec, upgradeHandler, new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                Http2FrameCodec codec = newHttp2Codec();
+                ch.pipeline().addLast(codec, new ConnectionWindowHandler(codec, connectionWindowSize), newMultiplexHandler());
+            }
+        }));
+        // 没有升级的连接收到第一个HTTP/1.1请求时再安装HTTP/1.1处理器
+        p.addLast(new SimpleChannelInboundHandler<HttpMessage>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, HttpMessage msg) {
+                ChannelHandler[] handlers = http1Handlers();
+                for (int i = handlers.length - 1; i >= 0; i--) {
+                    ctx.pipeline().addAfter(ctx.name(), null, handlers[i]);
+                }
+                ctx.pipeline().remove(this);
+                ctx.fireChannelRead(ReferenceCountUtil.retain(msg));
+            }
+        });
+    }
+
+    private ChannelHandler[] http1Handlers() {
+        return new ChannelHandler[]{
+                // HTTP/1.1默认保持连接, 请求带Connection: close或HTTP/1.0未声明keep-alive时写完响应后关闭
+                new HttpServerKeepAliveHandler(),
+                // 流式路由的请求体在此按块处理, 其余请求才聚合
+                new HttpStreamingHandler(router),
+                new HttpObjectAggregator(MAX_CONTENT_LENGTH),
+                new ChunkedWriteHandler(),
+                new HttpServerHandler(router)
+        };
+    }
+
+    private HttpServerUpgradeHandler.UpgradeCodec newUpgradeCodec() {
+        Http2FrameCodec codec = newHttp2Codec();
+        return new Http2ServerUpgradeCodec(codec, new ConnectionWindowHandler(codec, connectionWindowSize), newMultiplexHandler());
+    }
+
+    private Http2FrameCodec newHttp2Codec() {
+        return Http2FrameCodecBuilder.forServer()
+                .initialSettings(http2Settings)
+                // 凭证类头部不进入HPACK动态表, 避免被压缩侧信道推测
+                .headerSensitivityDetector((name, value) -> AUTHORIZATION.contentEqualsIgnoreCase(name)
+                        || COOKIE.contentEqualsIgnoreCase(name) || SET_COOKIE.contentEqualsIgnoreCase(name))
+                .build();
+    }
+
+    private Http2MultiplexHandler newMultiplexHandler() {
+        return new Http2MultiplexHandler(new ChannelInitializer<Http2StreamChannel>() {
+            @Override
+            protected void initChannel(Http2StreamChannel ch) {
+                ch.pipeline()
+                  .addLast(new Http2StreamFrameToHttpObjectCodec(true))
+                  .addLast(new HttpStreamingHandler(router))
+                  .addLast(new HttpObjectAggregator(MAX_CONTENT_LENGTH))
+                  .addLast(new HttpServerHandler(router));
+            }
+        });
+    }
+
+    /**
+     * SETTINGS只能调整流的初始窗口, 连接级窗口(流0)需要在前言之后用WINDOW_UPDATE扩大;
+     * 加入时编解码器已发出前言, 发送一次后移除自己
+     */
+    private static final class ConnectionWindowHandler extends ChannelInboundHandlerAdapter {
+        private final Http2FrameCodec codec;
+        private final int connectionWindowSize;
+
+        ConnectionWindowHandler(Http2FrameCodec codec, int connectionWindowSize) {
+            this.codec = codec;
+            this.connectionWindowSize = connectionWindowSize;
+        }
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            Http2Connection connection = codec.connection();
+            int current = connection.local().flowController().windowSize(connection.connectionStream());
+            if (connectionWindowSize > current) {
+                ctx.writeAndFlush(new DefaultHttp2WindowUpdateFrame(connectionWindowSize - current));
+            }
+            ctx.pipeline().remove(this);
+        }
+    }
+}
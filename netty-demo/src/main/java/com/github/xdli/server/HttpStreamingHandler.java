@@ -0,0 +1,178 @@
+package com.github.xdli.server;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 位于HttpObjectAggregator之前: 流式路由的请求体不聚合, 内容块到达即交给HttpBodyHandler;
+ * HttpBodyHandler返回未完成的future时关闭autoRead, 全部完成后恢复读取, 每个上传占用的内存与请求体大小无关;
+ * 普通路由的消息原样传给后面的聚合器
+ */
+public class HttpStreamingHandler extends ChannelInboundHandlerAdapter {
+    private final HttpRouter router;
+    private final ArrayDeque<Object> queued = new ArrayDeque<>();
+    // 当前流式请求的接收器, null表示当前请求不是流式请求
+    private HttpBodyHandler body;
+    private boolean lastReceived;
+    private int pending;
+
+    public HttpStreamingHandler(HttpRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        // 流式请求已收完但响应未写出时, 流水线上后续请求的消息排队, 保证响应顺序
+        if ((body != null && lastReceived) || !queued.isEmpty()) {
+            queued.add(msg);
+            return;
+        }
+        dispatch(ctx, msg);
+    }
+
+    private void dispatch(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof HttpObject)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            HttpStreamingRoute route = request.decoderResult().isSuccess()
+                    ? router.findStreaming(request.method(), request.uri()) : null;
+            if (route == null) {
+                ctx.fireChannelRead(msg);
+                return;
+            }
+            try {
+                body = route.begin(ctx, request);
+            } catch (Exception e) {
+                ReferenceCountUtil.release(msg);
+                fail(ctx, e);
+                return;
+            }
+            if (HttpUtil.is100ContinueExpected(request)) {
+                ctx.writeAndFlush(new DefaultFullHttpResponse(
+                        HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE, Unpooled.EMPTY_BUFFER));
+            }
+        } else if (body == null) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        if (msg instanceof HttpContent) {
+            onContent(ctx, (HttpContent) msg);
+        }
+    }
+
+    private void onContent(final ChannelHandlerContext ctx, HttpContent content) {
+        CompletableFuture<?> future;
+        try {
+            future = body.onContent(content.content());
+        } catch (Exception e) {
+            fail(ctx, e);
+            return;
+        } finally {
+            content.release();
+        }
+        if (future != null) {
+            pending++;
+            ctx.channel().config().setAutoRead(false);
+            future.whenComplete((v, cause) -> ctx.executor().execute(() -> onContentDone(ctx, cause)));
+        }
+        if (content instanceof LastHttpContent) {
+            lastReceived = true;
+            tryComplete(ctx);
+        }
+    }
+
+    private void onContentDone(ChannelHandlerContext ctx, Throwable cause) {
+        if (body == null) {
+            return;
+        }
+        if (cause != null) {
+            fail(ctx, cause);
+            return;
+        }
+        if (--pending == 0) {
+            ctx.channel().config().setAutoRead(true);
+            tryComplete(ctx);
+        }
+    }
+
+    private void tryComplete(ChannelHandlerContext ctx) {
+        if (!lastReceived || pending > 0) {
+            return;
+        }
+        HttpBodyHandler completed = body;
+        reset();
+        FullHttpResponse response;
+        try {
+            response = completed.onComplete(ctx);
+        } catch (Exception e) {
+            completed.onAbort(e);
+            response = HttpResponses.text(ctx.alloc(), HttpResponseStatus.INTERNAL_SERVER_ERROR,
+                    "Error: " + HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        }
+        ctx.writeAndFlush(response);
+        if (queued.isEmpty()) {
+            return;
+        }
+        while (!queued.isEmpty() && !(body != null && lastReceived)) {
+            dispatch(ctx, queued.poll());
+        }
+        // 排队的消息不在读循环中处理, 补发channelReadComplete让后面的处理器flush
+        ctx.fireChannelReadComplete();
+    }
+
+    private void fail(ChannelHandlerContext ctx, Throwable cause) {
+        System.err.println("接收请求体失败: " + cause);
+        if (body != null) {
+            body.onAbort(cause);
+        }
+        reset();
+        releaseQueued();
+        FullHttpResponse response = HttpResponses.text(ctx.alloc(), HttpResponseStatus.INTERNAL_SERVER_ERROR,
+                "Error: " + HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        HttpUtil.setKeepAlive(response, false);
+        ctx.channel().config().setAutoRead(true);
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    private void reset() {
+        body = null;
+        lastReceived = false;
+        pending = 0;
+    }
+
+    private void releaseQueued() {
+        Object msg;
+        while ((msg = queued.poll()) != null) {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (body != null) {
+            body.onAbort(new ClosedChannelException());
+            reset();
+        }
+        releaseQueued();
+        super.channelInactive(ctx);
+    }
+}
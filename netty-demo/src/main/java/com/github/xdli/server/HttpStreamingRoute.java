@@ -0,0 +1,11 @@
+package com.github.xdli.server;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpRequest;
+
+/**
+ * 流式路由: 请求体不聚合, 收到请求头时为本次请求创建一个HttpBodyHandler接收内容块
+ */
+public interface HttpStreamingRoute {
+    HttpBodyHandler begin(ChannelHandlerContext ctx, HttpRequest request) throws Exception;
+}
@@ -10,17 +10,40 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import com.github.xdli.codec.MessageDecoder;
 import com.github.xdli.codec.MessageEncoder;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.TimeUnit;
 
 public class NettyServer {
+    // 默认读空闲90秒断开, 写空闲30秒发送心跳
+    public static final int DEFAULT_READER_IDLE_SECONDS = 90;
+    public static final int DEFAULT_WRITER_IDLE_SECONDS = 30;
+    
     private final int port;
+    private final int readerIdleSeconds;
+    private final int writerIdleSeconds;
 
     public NettyServer(int port) {
+        this(port, DEFAULT_READER_IDLE_SECONDS, DEFAULT_WRITER_IDLE_SECONDS);
+    }
+
+    /**
+     * @param readerIdleSeconds 多久没有收到对端任何数据就断开连接, 0表示不检测
+     * @param writerIdleSeconds 多久没有发出数据就主动发送心跳, 0表示不发送
+     */
+    public NettyServer(int port, int readerIdleSeconds, int writerIdleSeconds) {
         this.port = port;
+        this.readerIdleSeconds = readerIdleSeconds;
+        this.writerIdleSeconds = writerIdleSeconds;
     }
 
     public void run() throws Exception {
         EventLoopGroup bossGroup = new NioEventLoopGroup();
         EventLoopGroup workerGroup = new NioEventLoopGroup();
+        // 所有连接的空闲检测共享一个时间轮, 精度100ms, 每个连接只占一个Timeout
+        HashedWheelTimer idleTimer = new HashedWheelTimer(
+                new DefaultThreadFactory("idle-wheel", true), 100, TimeUnit.MILLISECONDS, 1024);
 
         try {
             ServerBootstrap b = new ServerBootstrap();
@@ -30,6 +53,7 @@ public class NettyServer {
                  @Override
                  protected void initChannel(SocketChannel ch) {
                      ch.pipeline()
+                       .addLast(new WheelIdleStateHandler(idleTimer, readerIdleSeconds, writerIdleSeconds, TimeUnit.SECONDS))
                        .addLast(new MessageDecoder())
                        .addLast(new MessageEncoder())
                        .addLast(new NettyServerHandler());
@@ -44,6 +68,7 @@ public class NettyServer {
         } finally {
             workerGroup.shutdownGracefully();
             bossGroup.shutdownGracefully();
+            idleTimer.stop();
         }
     }
 } 
\ No newline at end of file
@@ -1,48 +1,78 @@
 package com.github.xdli.server;
 
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import com.github.xdli.codec.MessageEncoder;
 import com.github.xdli.protocol.MessageProtocol;
 
-public class NettyServerHandler extends ChannelInboundHandlerAdapter {
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 消息处理完后由SimpleChannelInboundHandler释放, 需要在方法返回后继续使用内容时先retain
+ * 空闲检测: 写空闲时主动发送心跳, 下一次写空闲时上一个心跳仍未回复则断开连接;
+ * 读空闲(对端长时间没有任何数据, 包括心跳回复)时断开连接
+ */
+public class NettyServerHandler extends SimpleChannelInboundHandler<MessageProtocol> {
+    // 服务端发出心跳请求后尚未收到回复
+    private boolean pingOutstanding;
     
     @Override
-    public void channelRead(ChannelHandlerContext ctx, Object msg) {
-        if (msg instanceof MessageProtocol) {
-            MessageProtocol message = (MessageProtocol) msg;
-            System.out.println("收到消息: type=" + message.getType() + 
-                             ", length=" + message.getLength());
-            
-            // 处理消息
-            switch (message.getType()) {
-                case 0: // 心跳
-                    handleHeartbeat(ctx);
-                    break;
-                case 1: // 业务消息
-                    handleBusinessMessage(ctx, message);
-                    break;
-                case 2: // 文件传输
-                    handleFileTransfer(ctx, message);
-                    break;
-            }
+    protected void channelRead0(ChannelHandlerContext ctx, MessageProtocol message) {
+        System.out.println("收到消息: type=" + message.getType() + 
+                         ", length=" + message.getLength());
+        
+        // 处理消息
+        switch (message.getType()) {
+            case MessageProtocol.TYPE_HEARTBEAT:
+                handleHeartbeat(ctx, message);
+                break;
+            case MessageProtocol.TYPE_BUSINESS:
+                handleBusinessMessage(ctx, message);
+                break;
+            case MessageProtocol.TYPE_FILE:
+                handleFileTransfer(ctx, message);
+                break;
+        }
+    }
+
+    private void handleHeartbeat(ChannelHandlerContext ctx, MessageProtocol message) {
+        if (message.isPong()) {
+            pingOutstanding = false;
+            return;
         }
+        ctx.writeAndFlush(MessageEncoder.pongFrame(), ctx.voidPromise());
     }
 
-    private void handleHeartbeat(ChannelHandlerContext ctx) {
-        MessageProtocol response = new MessageProtocol();
-        response.setType((byte) 0);
-        response.setContent(new byte[0]);
-        response.setLength(0);
-        ctx.writeAndFlush(response);
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (!(evt instanceof IdleStateEvent)) {
+            super.userEventTriggered(ctx, evt);
+            return;
+        }
+        IdleState state = ((IdleStateEvent) evt).state();
+        if (state == IdleState.READER_IDLE) {
+            System.out.println("连接空闲超时, 断开: " + ctx.channel().remoteAddress());
+            ctx.close();
+        } else if (state == IdleState.WRITER_IDLE) {
+            if (pingOutstanding) {
+                System.out.println("心跳未回复, 断开: " + ctx.channel().remoteAddress());
+                ctx.close();
+                return;
+            }
+            pingOutstanding = true;
+            ctx.writeAndFlush(MessageEncoder.pingFrame(), ctx.voidPromise());
+        }
     }
 
     private void handleBusinessMessage(ChannelHandlerContext ctx, MessageProtocol msg) {
         // 处理业务消息
-        System.out.println("处理业务消息: " + new String(msg.getContent()));
+        System.out.println("处理业务消息: " + msg.content().toString(StandardCharsets.UTF_8));
     }
 
     private void handleFileTransfer(ChannelHandlerContext ctx, MessageProtocol msg) {
-        // 处理文件传输
+        // 处理文件传输; 转发时直接写出msg.retain(), 内容不经过堆内存
         System.out.println("处理文件传输: " + msg.getLength() + " bytes");
     }
 
@@ -51,4 +81,4 @@ public class NettyServerHandler extends ChannelInboundHandlerAdapter {
         cause.printStackTrace();
         ctx.close();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package com.github.xdli.server;
+
+/**
+ * 订阅者的写缓冲区超过高水位(channel不可写)时对新消息的处理方式
+ */
+public enum SlowConsumerPolicy {
+    // 丢弃该订阅者的这条消息
+    DROP,
+    // 每个话题只保留最新一条, 恢复可写后补发
+    CONFLATE,
+    // 断开该订阅者
+    DISCONNECT
+}
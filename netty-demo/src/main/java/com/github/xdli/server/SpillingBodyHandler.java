@@ -0,0 +1,151 @@
+package com.github.xdli.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 不超过memoryThreshold的请求体保存在内存中, 超过后写入临时文件;
+ * 文件写入在fileExecutor中按到达顺序串行执行, 写入期间连接暂停读取, 内存占用不随请求体增长;
+ * onBody返回后内存被释放、临时文件被删除, 需要保留文件时在onBody中移走
+ */
+public abstract class SpillingBodyHandler implements HttpBodyHandler {
+    private static final ExecutorService DEFAULT_FILE_EXECUTOR =
+            Executors.newFixedThreadPool(2, new DefaultThreadFactory("body-spill", true));
+
+    private final int memoryThreshold;
+    private final Executor fileExecutor;
+    private ByteBuf memory;
+    private Path file;
+    private FileChannel fileChannel;
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+    private long length;
+
+    protected SpillingBodyHandler(ByteBufAllocator alloc, int memoryThreshold) {
+        this(alloc, memoryThreshold, DEFAULT_FILE_EXECUTOR);
+    }
+
+    protected SpillingBodyHandler(ByteBufAllocator alloc, int memoryThreshold, Executor fileExecutor) {
+        this.memoryThreshold = memoryThreshold;
+        this.fileExecutor = fileExecutor;
+        this.memory = alloc.buffer(Math.min(memoryThreshold, 8192), memoryThreshold);
+    }
+
+    /**
+     * 请求体接收完毕时调用, 请求体在内存(content())或临时文件(getFile())中
+     */
+    protected abstract FullHttpResponse onBody(ChannelHandlerContext ctx) throws Exception;
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * 未写入文件时的请求体
+     */
+    public ByteBuf content() {
+        return memory;
+    }
+
+    /**
+     * 写入文件时的临时文件路径, 未写入文件时为null
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public CompletableFuture<?> onContent(ByteBuf content) throws IOException {
+        int n = content.readableBytes();
+        if (n == 0) {
+            return null;
+        }
+        length += n;
+        if (file == null && memory.readableBytes() + n <= memoryThreshold) {
+            memory.writeBytes(content);
+            return null;
+        }
+        if (file == null) {
+            file = Files.createTempFile("upload-", ".tmp");
+            fileChannel = FileChannel.open(file, StandardOpenOption.WRITE);
+            ByteBuf buffered = memory;
+            memory = null;
+            append(buffered);
+        }
+        return append(content.retainedSlice());
+    }
+
+    /**
+     * 在上一次写入完成后写入chunk, 写完释放; 前面的写入失败时直接释放并传递失败
+     */
+    private CompletableFuture<Void> append(final ByteBuf chunk) {
+        final CompletableFuture<Void> next = new CompletableFuture<>();
+        tail.whenCompleteAsync((v, cause) -> {
+            try {
+                if (cause != null) {
+                    next.completeExceptionally(cause);
+                    return;
+                }
+                while (chunk.isReadable()) {
+                    chunk.readBytes(fileChannel, chunk.readableBytes());
+                }
+                next.complete(null);
+            } catch (Throwable t) {
+                next.completeExceptionally(t);
+            } finally {
+                chunk.release();
+            }
+        }, fileExecutor);
+        tail = next;
+        return next;
+    }
+
+    @Override
+    public FullHttpResponse onComplete(ChannelHandlerContext ctx) throws Exception {
+        try {
+            if (fileChannel != null) {
+                fileChannel.close();
+            }
+            return onBody(ctx);
+        } finally {
+            cleanup();
+        }
+    }
+
+    @Override
+    public void onAbort(Throwable cause) {
+        // 等待进行中的写入结束后再关闭和删除文件
+        tail.whenCompleteAsync((v, e) -> cleanup(), fileExecutor);
+    }
+
+    private void cleanup() {
+        if (memory != null) {
+            memory.release();
+            memory = null;
+        }
+        if (file != null) {
+            try {
+                fileChannel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("删除临时文件失败: " + file + ", " + e);
+            }
+        }
+    }
+}
@@ -3,29 +3,61 @@ package com.github.xdli.server;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
-import io.netty.channel.group.ChannelGroup;
-import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
 
+/**
+ * 握手完成后订阅默认话题; 客户端消息:
+ *   /join <话题>            订阅话题
+ *   /leave <话题>           取消订阅
+ *   /pub <话题> <内容>       发布到话题
+ *   其他文本                 广播到默认话题
+ */
 public class WebSocketFrameHandler extends SimpleChannelInboundHandler<TextWebSocketFrame> {
-    private static final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    public static final String DEFAULT_TOPIC = "all";
+    
+    private final BroadcastHub hub;
+
+    public WebSocketFrameHandler(BroadcastHub hub) {
+        this.hub = hub;
+    }
 
     @Override
-    public void channelActive(ChannelHandlerContext ctx) {
-        channels.add(ctx.channel());
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete) {
+            hub.subscribe(DEFAULT_TOPIC, ctx.channel());
+        }
+        super.userEventTriggered(ctx, evt);
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, TextWebSocketFrame frame) {
         String request = frame.text();
-        System.out.println("收到消息: " + request);
-        
-        // 广播消息给所有连接的客户端
-        channels.writeAndFlush(new TextWebSocketFrame("服务器广播: " + request));
+        if (request.startsWith("/join ")) {
+            hub.subscribe(request.substring(6).trim(), ctx.channel());
+        } else if (request.startsWith("/leave ")) {
+            hub.unsubscribe(request.substring(7).trim(), ctx.channel());
+        } else if (request.startsWith("/pub ")) {
+            int split = request.indexOf(' ', 5);
+            if (split > 0) {
+                hub.publish(request.substring(5, split), request.substring(split + 1));
+            }
+        } else {
+            // 广播消息给默认话题的所有订阅者
+            hub.publish(DEFAULT_TOPIC, "服务器广播: " + request);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            hub.onWritable(ctx.channel());
+        }
+        super.channelWritabilityChanged(ctx);
     }
 
     @Override
-    public void channelInactive(ChannelHandlerContext ctx) {
-        channels.remove(ctx.channel());
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        hub.unsubscribeAll(ctx.channel());
+        super.channelInactive(ctx);
     }
-} 
\ No newline at end of file
+}
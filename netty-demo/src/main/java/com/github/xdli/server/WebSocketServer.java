@@ -3,7 +3,9 @@ package com.github.xdli.server;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
@@ -14,9 +16,22 @@ import io.netty.handler.stream.ChunkedWriteHandler;
 
 public class WebSocketServer {
     private final int port;
+    private final BroadcastHub hub;
 
     public WebSocketServer(int port) {
+        this(port, SlowConsumerPolicy.CONFLATE);
+    }
+
+    /**
+     * @param slowConsumerPolicy 订阅者写缓冲区超过高水位时的处理方式
+     */
+    public WebSocketServer(int port, SlowConsumerPolicy slowConsumerPolicy) {
         this.port = port;
+        this.hub = new BroadcastHub(slowConsumerPolicy);
+    }
+
+    public BroadcastHub getHub() {
+        return hub;
     }
 
     public void run() throws Exception {
@@ -35,9 +50,11 @@ public class WebSocketServer {
                        .addLast(new HttpObjectAggregator(65536))
                        .addLast(new ChunkedWriteHandler())
                        .addLast(new WebSocketServerProtocolHandler("/ws"))
-                       .addLast(new WebSocketFrameHandler());
+                       .addLast(new WebSocketFrameHandler(hub));
                  }
-             });
+             })
+             // 每个连接最多积压64KB未写出的数据, 超过后视为慢消费者
+             .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(32 * 1024, 64 * 1024));
 
             ChannelFuture f = b.bind(port).sync();
             System.out.println("WebSocket服务器启动，监听端口: " + port);
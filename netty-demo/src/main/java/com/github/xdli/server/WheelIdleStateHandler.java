@@ -0,0 +1,154 @@
+package com.github.xdli.server;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 与IdleStateHandler触发相同的IdleStateEvent, 但定时器来自所有连接共享的HashedWheelTimer:
+ * 每个连接只有一个时间轮槽位上的Timeout, 增删O(1), 不占用EventLoop的定时任务队列;
+ * 读写只更新时间戳, 到期时回到EventLoop上检查并按剩余时间重新登记
+ */
+public class WheelIdleStateHandler extends ChannelDuplexHandler implements TimerTask, Runnable {
+    private final Timer timer;
+    private final long readerIdleNanos;
+    private final long writerIdleNanos;
+    
+    private ChannelHandlerContext ctx;
+    private Timeout timeout;
+    private long lastReadNanos;
+    private long lastWriteNanos;
+    private boolean firstReaderIdle = true;
+    private boolean firstWriterIdle = true;
+    private boolean closed;
+    
+    /**
+     * @param timer 共享的时间轮, 精度即其tick间隔
+     * @param readerIdleTime 多久没有读到数据触发READER_IDLE, 0表示不检测
+     * @param writerIdleTime 多久没有写出数据触发WRITER_IDLE, 0表示不检测
+     */
+    public WheelIdleStateHandler(Timer timer, long readerIdleTime, long writerIdleTime, TimeUnit unit) {
+        this.timer = timer;
+        this.readerIdleNanos = Math.max(0, unit.toNanos(readerIdleTime));
+        this.writerIdleNanos = Math.max(0, unit.toNanos(writerIdleTime));
+    }
+    
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+        if (ctx.channel().isActive()) {
+            start();
+        }
+    }
+    
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        start();
+        super.channelActive(ctx);
+    }
+    
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        stop();
+    }
+    
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        stop();
+        super.channelInactive(ctx);
+    }
+    
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        lastReadNanos = System.nanoTime();
+        firstReaderIdle = true;
+        ctx.fireChannelRead(msg);
+    }
+    
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        lastWriteNanos = System.nanoTime();
+        firstWriterIdle = true;
+        ctx.write(msg, promise);
+    }
+    
+    private void start() {
+        if (timeout != null || closed || (readerIdleNanos == 0 && writerIdleNanos == 0)) {
+            return;
+        }
+        lastReadNanos = lastWriteNanos = System.nanoTime();
+        schedule(minPositive(readerIdleNanos, writerIdleNanos));
+    }
+    
+    private void stop() {
+        closed = true;
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+    }
+    
+    private void schedule(long delayNanos) {
+        timeout = timer.newTimeout(this, delayNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * 时间轮线程上到期, 转到连接的EventLoop上检查
+     */
+    @Override
+    public void run(Timeout timeout) {
+        if (!timeout.isCancelled()) {
+            ctx.executor().execute(this);
+        }
+    }
+    
+    @Override
+    public void run() {
+        if (closed || !ctx.channel().isOpen()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long nextDelay = Long.MAX_VALUE;
+        if (readerIdleNanos > 0) {
+            long remaining = readerIdleNanos - (now - lastReadNanos);
+            if (remaining <= 0) {
+                fire(firstReaderIdle ? IdleStateEvent.FIRST_READER_IDLE_STATE_EVENT : IdleStateEvent.READER_IDLE_STATE_EVENT);
+                firstReaderIdle = false;
+                lastReadNanos = now;
+                remaining = readerIdleNanos;
+            }
+            nextDelay = Math.min(nextDelay, remaining);
+        }
+        if (writerIdleNanos > 0) {
+            long remaining = writerIdleNanos - (now - lastWriteNanos);
+            if (remaining <= 0) {
+                fire(firstWriterIdle ? IdleStateEvent.FIRST_WRITER_IDLE_STATE_EVENT : IdleStateEvent.WRITER_IDLE_STATE_EVENT);
+                firstWriterIdle = false;
+                // 事件处理中可能已写出心跳, 以较晚者为准
+                lastWriteNanos = Math.max(lastWriteNanos, now);
+                remaining = writerIdleNanos - (System.nanoTime() - lastWriteNanos);
+            }
+            nextDelay = Math.min(nextDelay, remaining);
+        }
+        if (!closed && ctx.channel().isOpen()) {
+            schedule(Math.max(nextDelay, 1));
+        }
+    }
+    
+    private void fire(IdleStateEvent event) {
+        ctx.fireUserEventTriggered(event);
+    }
+    
+    private static long minPositive(long a, long b) {
+        if (a == 0) {
+            return b;
+        }
+        return b == 0 ? a : Math.min(a, b);
+    }
+}
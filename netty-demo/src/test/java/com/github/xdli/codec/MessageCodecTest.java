@@ -0,0 +1,72 @@
+package com.github.xdli.codec;
+
+import com.github.xdli.protocol.MessageProtocol;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * 编解码往返, 以及内容不拷贝、引用计数正确释放
+ */
+public class MessageCodecTest extends TestCase {
+
+    public void testLargeContentPassesThroughWithoutCopy() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new MessageEncoder());
+        ByteBuf content = Unpooled.directBuffer(4096).writeZero(4096);
+        encoder.writeOutbound(new MessageProtocol(MessageProtocol.TYPE_FILE, content));
+
+        ByteBuf header = encoder.readOutbound();
+        ByteBuf body = encoder.readOutbound();
+        assertEquals(5, header.readableBytes());
+        // 写出的就是原始内容缓冲区
+        assertSame(content, body);
+
+        // 分两段到达, 解码后内容为入站缓冲区的切片
+        EmbeddedChannel decoder = new EmbeddedChannel(new MessageDecoder());
+        CompositeByteBuf frame = Unpooled.compositeBuffer().addComponents(true, header, body);
+        decoder.writeInbound(frame.readRetainedSlice(1000));
+        assertNull(decoder.readInbound());
+        decoder.writeInbound(frame.readRetainedSlice(frame.readableBytes()));
+        frame.release();
+
+        MessageProtocol message = decoder.readInbound();
+        assertEquals(MessageProtocol.TYPE_FILE, message.getType());
+        assertEquals(4096, message.getLength());
+        assertTrue(message.release());
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    public void testTooLongFrameRejected() {
+        EmbeddedChannel decoder = new EmbeddedChannel(new MessageDecoder(1024));
+        try {
+            decoder.writeInbound(Unpooled.buffer().writeInt(2048).writeByte(1));
+            fail();
+        } catch (TooLongFrameException expected) {
+            // 读到帧头即拒绝
+        }
+        assertFalse(decoder.finish());
+    }
+
+    public void testDeclaredLengthDoesNotPreallocate() {
+        final int[] capacity = new int[1];
+        EmbeddedChannel decoder = new EmbeddedChannel(new MessageDecoder() {
+            @Override
+            protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+                super.decode(ctx, in, out);
+                capacity[0] = in.capacity();
+            }
+        });
+        // 只发来帧头, 声明32MB的内容
+        decoder.writeInbound(Unpooled.buffer().writeInt(32 * 1024 * 1024).writeByte(1).writeZero(10));
+        assertNull(decoder.readInbound());
+        assertTrue("capacity=" + capacity[0], capacity[0] <= 128 * 1024);
+        assertFalse(decoder.finish());
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.xdli.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import junit.framework.TestCase;
+
+public class BroadcastHubTest extends TestCase {
+
+    public void testFrameEncodedOnceAndConflatedForSlowConsumer() {
+        BroadcastHub hub = new BroadcastHub(SlowConsumerPolicy.CONFLATE);
+        EmbeddedChannel fast = new EmbeddedChannel();
+        EmbeddedChannel slow = new EmbeddedChannel();
+        hub.subscribe("t", fast);
+        hub.subscribe("t", slow);
+
+        hub.publish("t", "hello");
+        fast.runPendingTasks();
+        slow.runPendingTasks();
+        ByteBuf expected = BroadcastHub.encodeTextFrame(ByteBufAllocator.DEFAULT, "hello");
+        ByteBuf toFast = fast.readOutbound();
+        ByteBuf toSlow = slow.readOutbound();
+        assertEquals(expected, toFast);
+        assertEquals(expected, toSlow);
+        // 两个订阅者共享同一份编码后的内容
+        assertEquals(toFast.unwrap(), toSlow.unwrap());
+        toFast.release();
+        toSlow.release();
+
+        // 积压未flush的数据使slow不可写, 期间的消息只保留最新一条
+        slow.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1, 2));
+        slow.write(Unpooled.buffer().writeZero(16));
+        assertFalse(slow.isWritable());
+        hub.publish("t", "a");
+        hub.publish("t", "b");
+        fast.runPendingTasks();
+        slow.runPendingTasks();
+        assertEquals(2, fast.outboundMessages().size());
+        assertTrue(slow.outboundMessages().isEmpty());
+
+        slow.flush();
+        ((ByteBuf) slow.readOutbound()).release();
+        hub.onWritable(slow);
+        ByteBuf conflated = slow.readOutbound();
+        assertEquals(BroadcastHub.encodeTextFrame(ByteBufAllocator.DEFAULT, "b"), conflated);
+        conflated.release();
+        assertNull(slow.readOutbound());
+
+        hub.unsubscribeAll(fast);
+        hub.publish("t", "c");
+        fast.runPendingTasks();
+        assertEquals(2, fast.outboundMessages().size());
+        fast.finishAndReleaseAll();
+        slow.finishAndReleaseAll();
+        expected.release();
+    }
+
+    public void testLongFrameHeader() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            text.append('x');
+        }
+        ByteBuf frame = BroadcastHub.encodeTextFrame(ByteBufAllocator.DEFAULT, text.toString());
+        assertEquals(0x81, frame.getUnsignedByte(0));
+        assertEquals(127, frame.getUnsignedByte(1));
+        assertEquals(70000, frame.getLong(2));
+        assertEquals(10 + 70000, frame.readableBytes());
+        frame.release();
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.xdli.server;
+
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class FileServerHandlerTest extends TestCase {
+
+    public void testRangeRequestUsesCachedFileRegion() throws Exception {
+        File file = File.createTempFile("file-server", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[10000]);
+        FileChannelCache cache = new FileChannelCache(1);
+        EmbeddedChannel channel = new EmbeddedChannel(new FileServerHandler(cache));
+
+        channel.writeInbound("RANGE 4000 -1 " + file.getPath());
+        assertEquals("OK 4000 6000 10000\n", channel.readOutbound());
+        FileRegion region = channel.readOutbound();
+        assertEquals(4000, region.position());
+        assertEquals(6000, region.count());
+
+        // 同一文件复用已打开的句柄; 缓存淘汰后仍在传输的句柄保持打开
+        channel.writeInbound(file.getPath());
+        assertEquals("OK 0 10000 10000\n", channel.readOutbound());
+        FileRegion whole = channel.readOutbound();
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertTrue(region.release());
+        assertTrue(whole.release());
+
+        channel.writeInbound("RANGE 9000 2000 " + file.getPath());
+        assertTrue(((String) channel.readOutbound()).startsWith("ERR"));
+        // offset + length溢出
+        channel.writeInbound("RANGE 1 " + Long.MAX_VALUE + " " + file.getPath());
+        assertTrue(((String) channel.readOutbound()).startsWith("ERR"));
+        // 只有-1表示到文件末尾
+        channel.writeInbound("RANGE 0 -2 " + file.getPath());
+        assertTrue(((String) channel.readOutbound()).startsWith("ERR 非法的范围请求"));
+        assertFalse(channel.finish());
+        cache.clear();
+    }
+
+    public void testOpenFailureRepliesWithError() throws Exception {
+        File file = File.createTempFile("file-server", ".bin");
+        file.deleteOnExit();
+        FileChannelCache cache = new FileChannelCache(1) {
+            @Override
+            public OpenFile acquire(File f) throws IOException {
+                throw new IOException("Permission denied");
+            }
+        };
+        EmbeddedChannel channel = new EmbeddedChannel(new FileServerHandler(cache));
+        channel.writeInbound(file.getPath());
+        assertEquals("ERR 无法打开文件: " + file.getPath() + ", Permission denied\n", channel.readOutbound());
+        assertTrue(channel.isOpen());
+        assertFalse(channel.finish());
+    }
+}
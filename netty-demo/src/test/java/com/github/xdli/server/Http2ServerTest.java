@@ -0,0 +1,156 @@
+package com.github.xdli.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.util.CharsetUtil;
+import junit.framework.TestCase;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Http2ServerTest extends TestCase {
+
+    public void testPriorKnowledgeMultiplexesStreamsAndTunesWindows() {
+        EmbeddedChannel server = new EmbeddedChannel(
+                new HttpServerInitializer(HttpServer.defaultRouter(), HttpServer.defaultHttp2Settings(), 4 * 1024 * 1024));
+        Http2FrameCodec clientCodec = Http2FrameCodecBuilder.forClient().build();
+        EmbeddedChannel client = new EmbeddedChannel(clientCodec, new Http2MultiplexHandler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+            }
+        }));
+        exchange(client, server);
+
+        final List<String> bodies = new ArrayList<String>();
+        for (String path : new String[]{"/ping", "/", "/x?y=1"}) {
+            Http2StreamChannel stream = new Http2StreamChannelBootstrap(client).handler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline()
+                      .addLast(new Http2StreamFrameToHttpObjectCodec(false))
+                      .addLast(new HttpObjectAggregator(65536))
+                      .addLast(new SimpleChannelInboundHandler<FullHttpResponse>() {
+                          @Override
+                          protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+                              bodies.add(response.status().code() + " " + response.content().toString(CharsetUtil.UTF_8));
+                          }
+                      });
+                }
+            }).open().syncUninterruptibly().getNow();
+            DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, path);
+            request.headers().set(HttpHeaderNames.HOST, "localhost");
+            stream.writeAndFlush(request);
+        }
+        exchange(client, server);
+
+        // 三个请求共享一个连接, 各自一个流
+        assertEquals(3, bodies.size());
+        assertTrue(bodies.contains("200 pong"));
+        assertTrue(bodies.contains("200 Welcome to Netty HTTP Server! URI: /x?y=1"));
+
+        Http2Connection connection = clientCodec.connection();
+        assertEquals(1000, connection.local().maxActiveStreams());
+        assertEquals(4 * 1024 * 1024, connection.remote().flowController().windowSize(connection.connectionStream()));
+        assertTrue(server.isOpen());
+        client.finishAndReleaseAll();
+        server.finishAndReleaseAll();
+    }
+
+    public void testPlainHttp1OnHttp2EnabledPort() {
+        EmbeddedChannel plain = new EmbeddedChannel(
+                new HttpServerInitializer(HttpServer.defaultRouter(), HttpServer.defaultHttp2Settings(), 4 * 1024 * 1024));
+        plain.writeInbound(Unpooled.copiedBuffer("GET /ping HTTP/1.1\r\nHost: a\r\n\r\n", CharsetUtil.US_ASCII));
+        String out = readAll(plain);
+        assertTrue(out, out.startsWith("HTTP/1.1 200 OK") && out.endsWith("pong"));
+        assertTrue(plain.isOpen());
+        plain.finishAndReleaseAll();
+    }
+
+    /**
+     * Http2MultiplexHandler按父Channel是否为ServerChannel区分服务端, 升级流程需要真实的连接
+     */
+    public void testCleartextUpgrade() throws Exception {
+        HttpServer server = new HttpServer(0);
+        server.enableHttp2();
+        Channel channel = server.start();
+        try (Socket socket = new Socket("127.0.0.1", ((InetSocketAddress) channel.localAddress()).getPort())) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /ping HTTP/1.1\r\nHost: a\r\n"
+                    + "Connection: Upgrade, HTTP2-Settings\r\nUpgrade: h2c\r\nHTTP2-Settings: AAMAAABkAAQAAP__\r\n\r\n")
+                    .getBytes(CharsetUtil.US_ASCII));
+            // 客户端前言: 魔数 + 空SETTINGS帧
+            out.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(CharsetUtil.US_ASCII));
+            out.write(new byte[]{0, 0, 0, 4, 0, 0, 0, 0, 0});
+            out.flush();
+
+            // 升级请求在流1上以HTTP/2响应, 响应体在DATA帧中
+            InputStream in = socket.getInputStream();
+            StringBuilder received = new StringBuilder();
+            byte[] buf = new byte[4096];
+            int n;
+            while (received.indexOf("pong") < 0 && (n = in.read(buf)) > 0) {
+                received.append(new String(buf, 0, n, CharsetUtil.ISO_8859_1));
+            }
+            assertTrue(received.toString(), received.toString().startsWith("HTTP/1.1 101 Switching Protocols"));
+            assertTrue(received.indexOf("pong") > 0);
+        } finally {
+            channel.close().sync();
+            server.stop();
+        }
+    }
+
+    /**
+     * 在两个EmbeddedChannel之间来回搬运数据, 直到双方都没有待发送的数据
+     */
+    private static void exchange(EmbeddedChannel client, EmbeddedChannel server) {
+        boolean moved;
+        do {
+            moved = transfer(client, server) | transfer(server, client);
+            client.runPendingTasks();
+            server.runPendingTasks();
+        } while (moved);
+    }
+
+    private static boolean transfer(EmbeddedChannel from, EmbeddedChannel to) {
+        boolean moved = false;
+        ByteBuf buf;
+        while ((buf = from.readOutbound()) != null) {
+            to.writeInbound(buf);
+            moved = true;
+        }
+        return moved;
+    }
+
+    private static String readAll(EmbeddedChannel channel) {
+        StringBuilder sb = new StringBuilder();
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            sb.append(buf.toString(CharsetUtil.ISO_8859_1));
+            buf.release();
+        }
+        return sb.toString();
+    }
+}
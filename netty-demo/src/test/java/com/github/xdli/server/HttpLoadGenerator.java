@@ -0,0 +1,361 @@
+package com.github.xdli.server;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.util.concurrent.Future;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 类似wrk的压测工具: 固定连接数, 每个连接保持pipelineDepth个未完成请求, 在指定时间内尽量多发;
+ * keepAlive为false时每个请求带Connection: close, 连接关闭后重新建立;
+ * runHttp2以先验知识的HTTP/2连接压测, 每个连接保持concurrentStreams个并发流, 每个请求一个流;
+ * runRequests/runHttp2Requests改为每个连接发送固定数量的请求, 用于不依赖时长的功能测试
+ * 用法: HttpLoadGenerator <host> <port> <path> <connections> <pipelineDepth|concurrentStreams> <seconds> [close|h2|compare]
+ * compare模式依次压测Connection: close(深度1)和keep-alive+流水线, 输出两者的吞吐量之比
+ */
+public class HttpLoadGenerator {
+    // 按请求数运行时的时长上限, 防止服务端无响应时一直等待
+    private static final long REQUESTS_TIMEOUT_MILLIS = 30_000;
+
+    private final String host;
+    private final int port;
+    private final String path;
+
+    public HttpLoadGenerator(String host, int port, String path) {
+        this.host = host;
+        this.port = port;
+        this.path = path;
+    }
+
+    public static class Result {
+        public final long requests;
+        public final long errors;
+        public final long connects;
+        public final long elapsedNanos;
+
+        Result(long requests, long errors, long connects, long elapsedNanos) {
+            this.requests = requests;
+            this.errors = errors;
+            this.connects = connects;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double requestsPerSecond() {
+            return requests * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests in %.2fs, %.0f req/s, %d connects, %d errors",
+                    requests, elapsedNanos / 1e9, requestsPerSecond(), connects, errors);
+        }
+    }
+
+    public Result run(int connections, int pipelineDepth, long durationMillis, boolean keepAlive) throws InterruptedException {
+        return run(connections, pipelineDepth, durationMillis, keepAlive, Long.MAX_VALUE);
+    }
+
+    /**
+     * 每个连接发送requestsPerConnection个请求; keepAlive为false时每个请求一个连接
+     */
+    public Result runRequests(int connections, int pipelineDepth, int requestsPerConnection, boolean keepAlive)
+            throws InterruptedException {
+        return run(connections, pipelineDepth, REQUESTS_TIMEOUT_MILLIS, keepAlive, requestsPerConnection);
+    }
+
+    private Result run(int connections, int pipelineDepth, long durationMillis, final boolean keepAlive,
+                       final long requestsPerConnection) throws InterruptedException {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong connects = new AtomicLong();
+        final HttpHeaders headers = new DefaultHttpHeaders().set(HttpHeaderNames.HOST, host);
+        if (!keepAlive) {
+            headers.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        }
+        final long depth = keepAlive ? Math.min(pipelineDepth, requestsPerConnection) : 1;
+        final long start = System.nanoTime();
+        final long deadline = start + durationMillis * 1_000_000L;
+
+        EventLoopGroup group = new NioEventLoopGroup();
+        try {
+            final Bootstrap b = new Bootstrap();
+            b.group(group)
+             .channel(NioSocketChannel.class)
+             .option(ChannelOption.TCP_NODELAY, true)
+             .handler(new ChannelInitializer<SocketChannel>() {
+                 @Override
+                 protected void initChannel(SocketChannel ch) {
+                     ch.pipeline()
+                       .addLast(new HttpClientCodec())
+                       .addLast(new HttpObjectAggregator(1024 * 1024))
+                       .addLast(new SimpleChannelInboundHandler<FullHttpResponse>() {
+                           private long sent;
+                           private long received;
+
+                           @Override
+                           public void channelActive(ChannelHandlerContext ctx) {
+                               connects.incrementAndGet();
+                               for (; sent < depth; sent++) {
+                                   ctx.write(request(headers));
+                               }
+                               ctx.flush();
+                           }
+
+                           @Override
+                           protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+                               if (response.status().code() == 200) {
+                                   requests.incrementAndGet();
+                               } else {
+                                   errors.incrementAndGet();
+                               }
+                               received++;
+                               if (!keepAlive) {
+                                   return;
+                               }
+                               if (sent < requestsPerConnection && System.nanoTime() < deadline) {
+                                   sent++;
+                                   ctx.writeAndFlush(request(headers));
+                               } else if (received == sent) {
+                                   // 本连接的请求已全部完成
+                                   ctx.close();
+                               }
+                           }
+
+                           @Override
+                           public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                               errors.incrementAndGet();
+                               ctx.close();
+                           }
+                       });
+                 }
+             });
+
+            // 按请求数运行时, 长连接每个工作线程只建一次连接, 短连接每个请求一个连接
+            long connectsPerWorker = requestsPerConnection == Long.MAX_VALUE ? Long.MAX_VALUE
+                    : keepAlive ? 1 : requestsPerConnection;
+            drive(b, connections, deadline, keepAlive, errors, connectsPerWorker);
+            return new Result(requests.get(), errors.get(), connects.get(), System.nanoTime() - start);
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    public Result runHttp2(int connections, int concurrentStreams, long durationMillis) throws InterruptedException {
+        return runHttp2(connections, concurrentStreams, durationMillis, Long.MAX_VALUE);
+    }
+
+    /**
+     * 每个连接发送requestsPerConnection个请求(流)
+     */
+    public Result runHttp2Requests(int connections, int concurrentStreams, int requestsPerConnection)
+            throws InterruptedException {
+        return runHttp2(connections, concurrentStreams, REQUESTS_TIMEOUT_MILLIS, requestsPerConnection);
+    }
+
+    private Result runHttp2(int connections, final int concurrentStreams, long durationMillis,
+                            final long requestsPerConnection) throws InterruptedException {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong connects = new AtomicLong();
+        final long start = System.nanoTime();
+        final long deadline = start + durationMillis * 1_000_000L;
+
+        EventLoopGroup group = new NioEventLoopGroup();
+        try {
+            Bootstrap b = new Bootstrap();
+            b.group(group)
+             .channel(NioSocketChannel.class)
+             .option(ChannelOption.TCP_NODELAY, true)
+             .handler(new ChannelInitializer<SocketChannel>() {
+                 @Override
+                 protected void initChannel(SocketChannel ch) {
+                     // 每个连接一个, 记录本连接打开和完成的流数
+                     final StreamInitializer streamInitializer =
+                             new StreamInitializer(requests, errors, deadline, requestsPerConnection);
+                     ch.pipeline()
+                       .addLast(Http2FrameCodecBuilder.forClient()
+                               .initialSettings(Http2Settings.defaultSettings().initialWindowSize(1024 * 1024))
+                               .build())
+                       .addLast(new Http2MultiplexHandler(streamInitializer))
+                       .addLast(new ChannelInboundHandlerAdapter() {
+                           @Override
+                           public void channelActive(ChannelHandlerContext ctx) {
+                               connects.incrementAndGet();
+                               for (int i = 0; i < concurrentStreams; i++) {
+                                   openStream(ctx.channel(), streamInitializer);
+                               }
+                               ctx.fireChannelActive();
+                           }
+                       });
+                 }
+             });
+
+            drive(b, connections, deadline, true, errors, requestsPerConnection == Long.MAX_VALUE ? Long.MAX_VALUE : 1);
+            return new Result(requests.get(), errors.get(), connects.get(), System.nanoTime() - start);
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private void openStream(Channel parent, final StreamInitializer streamInitializer) {
+        if (streamInitializer.opened >= streamInitializer.limit) {
+            return;
+        }
+        streamInitializer.opened++;
+        new Http2StreamChannelBootstrap(parent).handler(streamInitializer).open().addListener(
+                (Future<Http2StreamChannel> f) -> {
+                    if (!f.isSuccess()) {
+                        streamInitializer.errors.incrementAndGet();
+                        streamInitializer.onStreamDone(parent);
+                        return;
+                    }
+                    // 请求头会被编解码器修改(写入:scheme), 每个流使用独立的请求
+                    DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, path);
+                    request.headers().set(HttpHeaderNames.HOST, host);
+                    f.getNow().writeAndFlush(request);
+                });
+    }
+
+    /**
+     * 每个流一个子Channel: 收到响应后关闭该流, 截止前且未达到请求数时在同一连接上打开新流,
+     * 全部流完成后关闭连接; 计数只在连接的EventLoop中修改
+     */
+    private class StreamInitializer extends ChannelInitializer<Channel> {
+        final AtomicLong requests;
+        final AtomicLong errors;
+        final long deadline;
+        final long limit;
+        long opened;
+        long completed;
+
+        StreamInitializer(AtomicLong requests, AtomicLong errors, long deadline, long limit) {
+            this.requests = requests;
+            this.errors = errors;
+            this.deadline = deadline;
+            this.limit = limit;
+        }
+
+        void onStreamDone(Channel parent) {
+            completed++;
+            if (System.nanoTime() < deadline) {
+                openStream(parent, this);
+            }
+            if (completed == opened) {
+                parent.close();
+            }
+        }
+
+        @Override
+        protected void initChannel(Channel ch) {
+            ch.pipeline()
+              .addLast(new Http2StreamFrameToHttpObjectCodec(false))
+              .addLast(new HttpObjectAggregator(1024 * 1024))
+              .addLast(new SimpleChannelInboundHandler<FullHttpResponse>() {
+                  @Override
+                  protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+                      if (response.status().code() == 200) {
+                          requests.incrementAndGet();
+                      } else {
+                          errors.incrementAndGet();
+                      }
+                      ctx.close();
+                      onStreamDone(ctx.channel().parent());
+                  }
+
+                  @Override
+                  public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                      errors.incrementAndGet();
+                      ctx.close();
+                      onStreamDone(ctx.channel().parent());
+                  }
+              });
+        }
+    }
+
+    /**
+     * 每个"虚拟连接"一个线程串行执行: 建连-请求-响应-关闭(或保持到截止时间), 最多建立connectsPerWorker次连接
+     */
+    private void drive(final Bootstrap b, int connections, final long deadline, final boolean keepAlive,
+                       final AtomicLong errors, final long connectsPerWorker) throws InterruptedException {
+        Thread[] workers = new Thread[connections];
+        for (int i = 0; i < connections; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    for (long n = 0; n < connectsPerWorker && System.nanoTime() < deadline; n++) {
+                        Channel ch = b.connect(host, port).sync().channel();
+                        if (keepAlive) {
+                            // 保持到截止时间或本连接的请求全部完成; 按时长运行时连接提前被关闭则重新建立
+                            long waitMillis = Math.max(1, (deadline - System.nanoTime()) / 1_000_000L);
+                            if (!ch.closeFuture().await(waitMillis)) {
+                                ch.close().sync();
+                                break;
+                            }
+                        } else {
+                            ch.closeFuture().sync();
+                        }
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+            }, "load-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private DefaultFullHttpRequest request(HttpHeaders headers) {
+        return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, path,
+                Unpooled.EMPTY_BUFFER, headers, EmptyHttpHeaders.INSTANCE);
+    }
+
+    public static void main(String[] args) throws Exception {
+        HttpLoadGenerator generator = new HttpLoadGenerator(args[0], Integer.parseInt(args[1]), args[2]);
+        String mode = args.length < 7 ? "" : args[6];
+        if ("compare".equals(mode)) {
+            int connections = Integer.parseInt(args[3]);
+            long millis = Long.parseLong(args[5]) * 1000;
+            Result close = generator.run(connections, 1, millis, false);
+            Result keepAlive = generator.run(connections, Integer.parseInt(args[4]), millis, true);
+            System.out.println("Connection: close  " + close);
+            System.out.println("keep-alive + 流水线 " + keepAlive);
+            System.out.printf("keep-alive吞吐量为close的%.1f倍%n", keepAlive.requestsPerSecond() / close.requestsPerSecond());
+            return;
+        }
+        Result result = "h2".equals(mode)
+                ? generator.runHttp2(Integer.parseInt(args[3]), Integer.parseInt(args[4]), Long.parseLong(args[5]) * 1000)
+                : generator.run(Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+                        Long.parseLong(args[5]) * 1000, !"close".equals(mode));
+        System.out.println(result);
+    }
+}
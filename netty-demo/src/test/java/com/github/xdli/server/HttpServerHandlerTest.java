@@ -0,0 +1,76 @@
+package com.github.xdli.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.CharsetUtil;
+import junit.framework.TestCase;
+
+public class HttpServerHandlerTest extends TestCase {
+
+    public void testPipelinedRequestsAreAnsweredInOrderOnOneConnection() {
+        EmbeddedChannel channel = channel();
+        channel.writeInbound(Unpooled.copiedBuffer(
+                "GET /ping HTTP/1.1\r\nHost: a\r\n\r\n"
+                + "GET /hello?x=1 HTTP/1.1\r\nHost: a\r\n\r\n", CharsetUtil.US_ASCII));
+
+        String out = readAll(channel);
+        int first = out.indexOf("pong");
+        int second = out.indexOf("URI: /hello?x=1");
+        assertTrue(out, first > 0 && second > first);
+        assertEquals(2, out.split("HTTP/1.1 200 OK").length - 1);
+        assertTrue(channel.isOpen());
+
+        channel.writeInbound(Unpooled.copiedBuffer(
+                "GET /ping HTTP/1.1\r\nHost: a\r\nConnection: close\r\n\r\n", CharsetUtil.US_ASCII));
+        assertTrue(readAll(channel).contains("connection: close"));
+        assertFalse(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    public void testRouterMatchesPathWithoutQuery() {
+        HttpRoute a = (ctx, request) -> null;
+        HttpRoute b = (ctx, request) -> null;
+        HttpRouter router = new HttpRouter();
+        for (int i = 0; i < 100; i++) {
+            router.get("/r" + i, b);
+        }
+        router.get("/a", a);
+
+        assertSame(a, router.find(HttpMethod.GET, "/a"));
+        assertSame(a, router.find(HttpMethod.GET, "/a?q=1"));
+        assertSame(b, router.find(HttpMethod.GET, "/r57#top"));
+        assertNotSame(a, router.find(HttpMethod.GET, "/ab"));
+        assertNotSame(a, router.find(HttpMethod.POST, "/a"));
+        // 没有注册HEAD时使用GET路由
+        assertSame(a, router.find(HttpMethod.HEAD, "/a"));
+    }
+
+    public void testHeadRequestIsAnsweredWithoutBody() {
+        EmbeddedChannel channel = channel();
+        channel.writeInbound(Unpooled.copiedBuffer(
+                "HEAD /ping HTTP/1.1\r\nHost: a\r\n\r\nGET /ping HTTP/1.1\r\nHost: a\r\n\r\n", CharsetUtil.US_ASCII));
+        String out = readAll(channel);
+        // HEAD的响应只有响应头, 紧跟着的是GET的响应
+        assertTrue(out, out.startsWith("HTTP/1.1 200 OK"));
+        int second = out.indexOf("HTTP/1.1 200 OK", 1);
+        assertTrue(out, second > 0 && out.substring(0, second).endsWith("\r\n\r\n"));
+        assertTrue(out, out.endsWith("pong") && out.indexOf("pong") == out.length() - 4);
+        channel.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel channel() {
+        return new EmbeddedChannel(new HttpServerInitializer(HttpServer.defaultRouter(), null, 0));
+    }
+
+    private static String readAll(EmbeddedChannel channel) {
+        StringBuilder sb = new StringBuilder();
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            sb.append(buf.toString(CharsetUtil.UTF_8));
+            buf.release();
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.xdli.server;
+
+import io.netty.channel.Channel;
+import junit.framework.TestCase;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 按固定请求数验证连接复用和错误数; 吞吐量对比与机器负载有关, 用HttpLoadGenerator的compare模式手动运行
+ */
+public class HttpServerLoadTest extends TestCase {
+
+    public void testKeepAliveReusesConnections() throws Exception {
+        HttpServer server = new HttpServer(0);
+        Channel channel = server.start();
+        try {
+            int port = ((InetSocketAddress) channel.localAddress()).getPort();
+            HttpLoadGenerator generator = new HttpLoadGenerator("127.0.0.1", port, "/ping");
+
+            HttpLoadGenerator.Result close = generator.runRequests(4, 1, 25, false);
+            HttpLoadGenerator.Result keepAlive = generator.runRequests(4, 8, 100, true);
+
+            assertEquals(0, close.errors);
+            assertEquals(100, close.requests);
+            assertEquals(100, close.connects);
+            assertEquals(0, keepAlive.errors);
+            assertEquals(400, keepAlive.requests);
+            assertEquals(4, keepAlive.connects);
+        } finally {
+            channel.close().sync();
+            server.stop();
+        }
+    }
+
+    /**
+     * 相同并发度下: HTTP/1.1每个并发请求占一个连接, HTTP/2一个连接承载全部并发流
+     */
+    public void testHttp2VersusHttp1AtHighConcurrency() throws Exception {
+        HttpServer server = new HttpServer(0);
+        server.enableHttp2();
+        Channel channel = server.start();
+        try {
+            int port = ((InetSocketAddress) channel.localAddress()).getPort();
+            HttpLoadGenerator generator = new HttpLoadGenerator("127.0.0.1", port, "/ping");
+            int concurrency = 64;
+
+            HttpLoadGenerator.Result http1 = generator.runRequests(concurrency, 1, 4, true);
+            HttpLoadGenerator.Result http2 = generator.runHttp2Requests(1, concurrency, concurrency * 4);
+
+            assertEquals(0, http1.errors);
+            assertEquals(0, http2.errors);
+            assertEquals(concurrency, http1.connects);
+            assertEquals(1, http2.connects);
+            assertEquals(concurrency * 4, http1.requests);
+            assertEquals(concurrency * 4, http2.requests);
+        } finally {
+            channel.close().sync();
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.xdli.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.CharsetUtil;
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+public class HttpStreamingHandlerTest extends TestCase {
+
+    /**
+     * 由测试手动执行的文件写入任务
+     */
+    static class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll(EmbeddedChannel channel) {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            channel.runPendingTasks();
+        }
+    }
+
+    private final ManualExecutor fileExecutor = new ManualExecutor();
+    private SpillingBodyHandler handler;
+    private Path spilledFile;
+    private byte[] received;
+
+    public void testSmallBodyStaysInMemory() {
+        EmbeddedChannel channel = channel();
+        channel.writeInbound(ascii("POST /upload HTTP/1.1\r\nHost: a\r\nContent-Length: 5\r\n\r\nhello"));
+        String out = readAll(channel);
+        assertTrue(out, out.startsWith("HTTP/1.1 200 OK") && out.endsWith("5 bytes in memory"));
+        assertEquals("hello", new String(received, CharsetUtil.US_ASCII));
+        assertTrue(fileExecutor.tasks.isEmpty());
+        channel.finishAndReleaseAll();
+    }
+
+    public void testLargeBodySpillsToFileWithBackpressure() {
+        EmbeddedChannel channel = channel();
+        channel.writeInbound(ascii("POST /upload HTTP/1.1\r\nHost: a\r\nExpect: 100-continue\r\n"
+                + "Transfer-Encoding: chunked\r\n\r\n"));
+        assertTrue(readAll(channel).startsWith("HTTP/1.1 100 Continue"));
+
+        byte[] chunk = new byte[800];
+        Arrays.fill(chunk, (byte) 'x');
+        channel.writeInbound(chunkOf(chunk));
+        assertTrue(channel.config().isAutoRead());
+
+        // 超过1KB阈值后写入文件, 写入完成前暂停读取
+        channel.writeInbound(chunkOf(chunk));
+        assertFalse(channel.config().isAutoRead());
+        // 写入串行执行, 后一块在前一块写完后才提交
+        assertEquals(1, fileExecutor.tasks.size());
+        fileExecutor.runAll(channel);
+        assertTrue(channel.config().isAutoRead());
+
+        // 流水线上的下一个请求在上传的响应之后处理
+        channel.writeInbound(chunkOf(chunk), ascii("0\r\n\r\nGET /ping HTTP/1.1\r\nHost: a\r\n\r\n"));
+        assertFalse(channel.config().isAutoRead());
+        assertNull(channel.readOutbound());
+        fileExecutor.runAll(channel);
+
+        String out = readAll(channel);
+        int upload = out.indexOf("2400 bytes in file");
+        assertTrue(out, upload > 0 && out.indexOf("pong") > upload);
+        assertEquals(2400, received.length);
+        assertFalse(Files.exists(spilledFile));
+        assertTrue(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    public void testAbortDeletesSpilledFile() {
+        EmbeddedChannel channel = channel();
+        channel.writeInbound(ascii("POST /upload HTTP/1.1\r\nHost: a\r\nContent-Length: 5000\r\n\r\n"));
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[2000]));
+        fileExecutor.runAll(channel);
+        Path file = handler.getFile();
+        assertNotNull(file);
+        assertTrue(Files.exists(file));
+        channel.close();
+        fileExecutor.runAll(channel);
+        assertNull(received);
+        assertFalse(Files.exists(file));
+        channel.finishAndReleaseAll();
+    }
+
+    private EmbeddedChannel channel() {
+        HttpRouter router = HttpServer.defaultRouter()
+                .stream(HttpMethod.POST, "/upload", (ctx, request) -> handler = new SpillingBodyHandler(ctx.alloc(), 1024, fileExecutor) {
+                    @Override
+                    protected FullHttpResponse onBody(ChannelHandlerContext ctx) throws Exception {
+                        if (isSpilled()) {
+                            spilledFile = getFile();
+                            received = Files.readAllBytes(spilledFile);
+                        } else {
+                            received = new byte[content().readableBytes()];
+                            content().getBytes(content().readerIndex(), received);
+                        }
+                        return HttpResponses.text(ctx.alloc(), HttpResponseStatus.OK,
+                                length() + " bytes " + (isSpilled() ? "in file" : "in memory"));
+                    }
+                });
+        return new EmbeddedChannel(new HttpServerInitializer(router, null, 0));
+    }
+
+    private static ByteBuf chunkOf(byte[] data) {
+        return Unpooled.wrappedBuffer(ascii(Integer.toHexString(data.length) + "\r\n"),
+                Unpooled.wrappedBuffer(data), ascii("\r\n"));
+    }
+
+    private static ByteBuf ascii(String s) {
+        return Unpooled.copiedBuffer(s, CharsetUtil.US_ASCII);
+    }
+
+    private static String readAll(EmbeddedChannel channel) {
+        StringBuilder sb = new StringBuilder();
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            sb.append(buf.toString(CharsetUtil.UTF_8));
+            buf.release();
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.xdli.server;
+
+import com.github.xdli.codec.MessageDecoder;
+import com.github.xdli.codec.MessageEncoder;
+import com.github.xdli.protocol.MessageProtocol;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class WheelIdleStateHandlerTest extends TestCase {
+
+    /**
+     * 只记录登记的任务, 由测试手动触发
+     */
+    static class ManualTimer implements Timer {
+        final List<TimerTask> tasks = new ArrayList<TimerTask>();
+        final List<Timeout> timeouts = new ArrayList<Timeout>();
+        int cancelled;
+
+        @Override
+        public Timeout newTimeout(final TimerTask task, long delay, TimeUnit unit) {
+            tasks.add(task);
+            Timeout timeout = new Timeout() {
+                boolean cancel;
+                public Timer timer() { return ManualTimer.this; }
+                public TimerTask task() { return task; }
+                public boolean isExpired() { return false; }
+                public boolean isCancelled() { return cancel; }
+                public boolean cancel() { cancelled++; return cancel = true; }
+            };
+            timeouts.add(timeout);
+            return timeout;
+        }
+
+        @Override
+        public Set<Timeout> stop() {
+            return Collections.emptySet();
+        }
+
+        void fireLast(EmbeddedChannel channel) throws Exception {
+            int last = tasks.size() - 1;
+            tasks.get(last).run(timeouts.get(last));
+            channel.runPendingTasks();
+        }
+    }
+
+    public void testWriterIdleSendsHeartbeatAndReplyIsNotAnswered() throws Exception {
+        ManualTimer timer = new ManualTimer();
+        EmbeddedChannel channel = channel(timer, 0, 1);
+        assertEquals(1, timer.tasks.size());
+
+        Thread.sleep(5);
+        timer.fireLast(channel);
+        ByteBuf ping = channel.readOutbound();
+        assertEquals(MessageEncoder.pingFrame(), ping);
+        ping.release();
+        // 到期后按剩余时间重新登记
+        assertEquals(2, timer.tasks.size());
+
+        // 心跳请求未回复前, 客户端发来的心跳请求仍要应答
+        channel.writeInbound(heartbeat(MessageProtocol.HEARTBEAT_PING));
+        ByteBuf pong = channel.readOutbound();
+        assertEquals(MessageEncoder.pongFrame(), pong);
+        pong.release();
+
+        // 客户端的心跳回复不再应答
+        channel.writeInbound(heartbeat(MessageProtocol.HEARTBEAT_PONG));
+        assertNull(channel.readOutbound());
+        assertTrue(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    public void testUnansweredPingClosesConnection() throws Exception {
+        ManualTimer timer = new ManualTimer();
+        EmbeddedChannel channel = channel(timer, 0, 1);
+        Thread.sleep(5);
+        timer.fireLast(channel);
+        ((ByteBuf) channel.readOutbound()).release();
+
+        // 上一个心跳没有回复, 下一次写空闲时断开
+        Thread.sleep(5);
+        timer.fireLast(channel);
+        assertNull(channel.readOutbound());
+        assertFalse(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    public void testReaderIdleClosesConnection() throws Exception {
+        ManualTimer timer = new ManualTimer();
+        EmbeddedChannel channel = channel(timer, 1, 0);
+        Thread.sleep(5);
+        timer.fireLast(channel);
+        assertFalse(channel.isOpen());
+        assertEquals(1, timer.cancelled);
+        channel.finishAndReleaseAll();
+    }
+
+    public void testActiveChannelIsNotIdle() throws Exception {
+        ManualTimer timer = new ManualTimer();
+        EmbeddedChannel channel = channel(timer, 1000, 0);
+        timer.fireLast(channel);
+        assertTrue(channel.isOpen());
+        assertEquals(2, timer.tasks.size());
+        channel.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel channel(Timer timer, long readerIdleMillis, long writerIdleMillis) {
+        return new EmbeddedChannel(
+                new WheelIdleStateHandler(timer, readerIdleMillis, writerIdleMillis, TimeUnit.MILLISECONDS),
+                new MessageDecoder(),
+                new MessageEncoder(),
+                new NettyServerHandler());
+    }
+
+    private static ByteBuf heartbeat(byte marker) {
+        return Unpooled.wrappedBuffer(new byte[]{0, 0, 0, 1, MessageProtocol.TYPE_HEARTBEAT, marker});
+    }
+}
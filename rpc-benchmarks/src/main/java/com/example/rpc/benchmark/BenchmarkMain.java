@@ -0,0 +1,54 @@
+package com.example.rpc.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口(benchmarks.jar的主类)
+ * 不带参数时运行标准套件: 编解码、服务端分发, 以及1/16/256个并发调用方下的端到端调用,
+ * 全部结果写入一个JSON文件, 文件名带上-Dbench.label指定的标签(如提交号), 便于跨提交对比;
+ * 带参数时等同于org.openjdk.jmh.Main, 参数按JMH命令行解析
+ */
+public class BenchmarkMain {
+    // 端到端调用的并发调用方数
+    static final int[] CALLER_THREADS = {1, 16, 256};
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        
+        List<RunResult> results = new ArrayList<>();
+        Options codec = new OptionsBuilder()
+                .include(SerializerBenchmark.class.getSimpleName())
+                .include(DecoderBenchmark.class.getSimpleName())
+                .include(DispatchBenchmark.class.getSimpleName())
+                .include(MetricsBenchmark.class.getSimpleName())
+                .build();
+        results.addAll(new Runner(codec).run());
+        for (int threads : CALLER_THREADS) {
+            Options roundTrip = new OptionsBuilder()
+                    .include(RoundTripBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            results.addAll(new Runner(roundTrip).run());
+        }
+        
+        String label = System.getProperty("bench.label", "local");
+        File file = new File("jmh-result-" + label + ".json");
+        try (PrintStream out = new PrintStream(new FileOutputStream(file), true, "UTF-8")) {
+            ResultFormatFactory.getInstance(ResultFormatType.JSON, out).writeOut(results);
+        }
+        System.out.println("结果已写入: " + file.getAbsolutePath());
+    }
+}
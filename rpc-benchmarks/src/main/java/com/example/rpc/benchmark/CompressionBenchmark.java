@@ -0,0 +1,84 @@
+package com.example.rpc.benchmark;
+
+import com.example.rpc.codec.BinarySerializer;
+import com.example.rpc.codec.CompressorFactory;
+import com.example.rpc.codec.RpcDecoder;
+import com.example.rpc.codec.RpcEncoder;
+import com.example.rpc.common.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 帧压缩开销: 256KB响应编码+解码一次的吞吐, setup时打印各算法的线上帧大小
+ * 带宽受限时用帧大小之比估算吞吐提升
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark {
+    // 0: 不压缩, 1: Snappy, 2: LZ4
+    @Param({"0", "1", "2"})
+    private byte compressorId;
+    
+    private EmbeddedChannel server;
+    private EmbeddedChannel client;
+    private RpcResponse response;
+    
+    @Setup
+    public void setup() {
+        long[] data = new long[32 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i % 1000;
+        }
+        response = RpcResponse.success(1L, data);
+        
+        server = new EmbeddedChannel(new RpcEncoder(null, null, 1024));
+        client = new EmbeddedChannel(new RpcDecoder(RpcResponse.class));
+        if (compressorId != CompressorFactory.NONE) {
+            server.attr(RpcDecoder.COMPRESSOR_KEY).set(CompressorFactory.getCompressor(compressorId));
+        }
+        server.attr(RpcDecoder.SERIALIZER_KEY).set(new BinarySerializer());
+        
+        server.writeOutbound(response);
+        ByteBuf frame = server.readOutbound();
+        System.out.println("\n帧大小: " + frame.readableBytes());
+        frame.release();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        server.finishAndReleaseAll();
+        client.finishAndReleaseAll();
+    }
+    
+    @Benchmark
+    public RpcResponse roundTrip() {
+        server.writeOutbound(response);
+        client.writeInbound(server.<ByteBuf>readOutbound());
+        return client.readInbound();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CompressionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
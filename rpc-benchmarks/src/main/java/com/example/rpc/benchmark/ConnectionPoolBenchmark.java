@@ -0,0 +1,96 @@
+package com.example.rpc.benchmark;
+
+import com.example.rpc.client.RpcClient;
+import com.example.rpc.codec.SerializerFactory;
+import com.example.rpc.example.HelloService;
+import com.example.rpc.example.HelloServiceImpl;
+import com.example.rpc.registry.ServiceRegistry;
+import com.example.rpc.server.BusinessExecutor;
+import com.example.rpc.server.RpcServer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 连接池负载测试: 64个调用线程通过环回地址同步调用sayHello,
+ * 观察吞吐随连接数从1增加到N的变化
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class ConnectionPoolBenchmark {
+    private static final int PORT = 18080;
+    
+    @Param({"1", "2", "4", "8"})
+    private int connections;
+    
+    private RpcServer server;
+    private RpcClient client;
+    private HelloService helloService;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(HelloService.class.getName(), new HelloServiceImpl());
+        server = new RpcServer(PORT, registry, BusinessExecutor.inline());
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+        
+        client = new RpcClient("localhost", PORT, SerializerFactory.getDefault(), connections);
+        // 等待服务端绑定端口
+        for (int i = 0; ; i++) {
+            try {
+                client.connect();
+                break;
+            } catch (Exception e) {
+                if (i >= 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+        helloService = client.create(HelloService.class);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+    
+    @Benchmark
+    public String sayHello() {
+        return helloService.sayHello("World");
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ConnectionPoolBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
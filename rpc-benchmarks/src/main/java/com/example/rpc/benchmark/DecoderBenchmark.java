@@ -0,0 +1,94 @@
+package com.example.rpc.benchmark;
+
+import com.example.rpc.codec.BinarySerializer;
+import com.example.rpc.codec.RpcDecoder;
+import com.example.rpc.codec.RpcEncoder;
+import com.example.rpc.common.RpcRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 帧解码对比: 旧路径(整帧拷贝到byte[]再反序列化) vs 直接从入站缓冲区切片反序列化
+ * 参数为long[]形式的大数组请求, 建议加-prof gc观察分配量
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecoderBenchmark {
+    // 请求体大小: 1KB / 64KB / 4MB
+    @Param({"1024", "65536", "4194304"})
+    private int payloadSize;
+    
+    private final BinarySerializer serializer = new BinarySerializer();
+    
+    private EmbeddedChannel decoder;
+    private ByteBuf frame;
+    
+    @Setup
+    public void setup() {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(1L);
+        request.setInterfaceName("com.example.rpc.example.DataService");
+        request.setMethodName("upload");
+        request.setParameterTypes(new Class<?>[]{long[].class});
+        request.setParameters(new Object[]{new long[payloadSize / 8]});
+        
+        EmbeddedChannel encoder = new EmbeddedChannel(new RpcEncoder(serializer));
+        encoder.writeOutbound(request);
+        ByteBuf encoded = encoder.readOutbound();
+        frame = PooledByteBufAllocator.DEFAULT.directBuffer(encoded.readableBytes());
+        frame.writeBytes(encoded);
+        encoded.release();
+        encoder.finish();
+        
+        decoder = new EmbeddedChannel(new RpcDecoder(RpcRequest.class));
+    }
+    
+    @TearDown
+    public void tearDown() {
+        decoder.finishAndReleaseAll();
+        frame.release();
+    }
+    
+    @Benchmark
+    public RpcRequest decodeCopy() throws Exception {
+        ByteBuf in = frame.duplicate();
+        int dataLength = in.readInt();
+        in.skipBytes(10);
+        byte[] data = new byte[dataLength - 10];
+        in.readBytes(data);
+        return serializer.deserialize(Unpooled.wrappedBuffer(data), RpcRequest.class);
+    }
+    
+    @Benchmark
+    public RpcRequest decodeSlice() {
+        decoder.writeInbound(frame.retainedDuplicate());
+        return decoder.readInbound();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DecoderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.rpc.benchmark;
+
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.example.HelloService;
+import com.example.rpc.example.HelloServiceImpl;
+import com.example.rpc.registry.MethodInvoker;
+import com.example.rpc.registry.ServiceRegistry;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 服务端分发性能对比: 每次请求反射查找Method并invoke vs 注册时预编译的MethodHandle分发表
+ * 使用全部CPU核心并发调用, 结果即为单机每秒可分发的请求数
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+    private ServiceRegistry registry;
+    private RpcRequest request;
+    
+    @Setup
+    public void setup() {
+        registry = new ServiceRegistry();
+        registry.register(HelloService.class.getName(), new HelloServiceImpl());
+        
+        request = new RpcRequest();
+        request.setInterfaceName(HelloService.class.getName());
+        request.setMethodName("sayHello");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameters(new Object[]{"World"});
+    }
+    
+    @Benchmark
+    public Object reflective() throws Exception {
+        Object service = registry.getService(request.getInterfaceName());
+        Method method = service.getClass().getMethod(
+            request.getMethodName(),
+            request.getParameterTypes()
+        );
+        return method.invoke(service, request.getParameters());
+    }
+    
+    @Benchmark
+    public Object dispatchTable() throws Throwable {
+        MethodInvoker invoker = registry.getInvoker(
+            request.getInterfaceName(),
+            request.getMethodName(),
+            request.getParameterTypes()
+        );
+        return invoker.invoke(request.getParameters());
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DispatchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
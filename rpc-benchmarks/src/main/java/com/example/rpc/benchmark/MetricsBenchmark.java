@@ -0,0 +1,75 @@
+package com.example.rpc.benchmark;
+
+import com.example.rpc.metrics.MethodMetrics;
+import com.example.rpc.metrics.RpcMetrics;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 每次调用的统计开销: 按接口名/方法名查找统计对象, 记录开始和完成(耗时、大小、执行中计数)
+ * 与RpcClient/RpcServerHandler中的记录路径相同; contended为全部核心记录同一个方法, 是最坏情况
+ * 
+ * 分配率使用GC profiler查看, gc.alloc.rate.norm应为0:
+ *   java -jar target/benchmarks.jar MetricsBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    private static final String INTERFACE_NAME = "com.example.rpc.example.HelloService";
+    private static final String METHOD_NAME = "sayHello";
+    
+    private final RpcMetrics metrics = new RpcMetrics("benchmark");
+    
+    @Benchmark
+    public MethodMetrics uncontended(ThreadLatency latency) {
+        return record(latency);
+    }
+    
+    @Benchmark
+    @Threads(Threads.MAX)
+    public MethodMetrics contended(ThreadLatency latency) {
+        return record(latency);
+    }
+    
+    private MethodMetrics record(ThreadLatency latency) {
+        MethodMetrics methodMetrics = metrics.forMethod(INTERFACE_NAME, METHOD_NAME);
+        methodMetrics.onStart();
+        methodMetrics.onComplete(latency.next(), true, 128, 256);
+        return methodMetrics;
+    }
+    
+    /**
+     * 每线程生成分布在几十微秒到几毫秒之间的耗时, 避免总落在同一个桶
+     */
+    @State(Scope.Thread)
+    public static class ThreadLatency {
+        private long seed = System.nanoTime();
+        
+        long next() {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            return 20_000 + ((seed >>> 33) & 0x3FFFFF);
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(MetricsBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
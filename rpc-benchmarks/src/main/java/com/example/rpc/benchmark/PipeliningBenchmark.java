@@ -0,0 +1,124 @@
+package com.example.rpc.benchmark;
+
+import com.example.rpc.client.RpcClient;
+import com.example.rpc.registry.ServiceRegistry;
+import com.example.rpc.server.BusinessExecutor;
+import com.example.rpc.server.RejectPolicy;
+import com.example.rpc.server.ResponseOrdering;
+import com.example.rpc.server.RpcServer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 单连接混合延迟负载: 16个调用线程共用一个连接, 每10次调用中有1次耗时20ms, 其余立即返回
+ * SERIAL为每连接串行执行, ORDERED为并发执行但按序响应, UNORDERED为完成即响应;
+ * 对比各模式下的延迟分位数(p50/p99)
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class PipeliningBenchmark {
+    private static final int PORT = 18083;
+    
+    @Param({"SERIAL", "ORDERED", "UNORDERED"})
+    private String mode;
+    
+    private RpcServer server;
+    private RpcClient client;
+    private LatencyService latencyService;
+    
+    public interface LatencyService {
+        int sleep(int millis);
+    }
+    
+    public static class LatencyServiceImpl implements LatencyService {
+        @Override
+        public int sleep(int millis) {
+            if (millis > 0) {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return millis;
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class CallCounter {
+        int calls;
+    }
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(LatencyService.class.getName(), new LatencyServiceImpl());
+        server = new RpcServer(PORT, registry, BusinessExecutor.pool(32, 1024, RejectPolicy.ABORT));
+        if ("SERIAL".equals(mode)) {
+            server.setConnectionConcurrency(1, ResponseOrdering.UNORDERED);
+        } else {
+            server.setConnectionConcurrency(64, ResponseOrdering.valueOf(mode));
+        }
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+        
+        client = new RpcClient("localhost", PORT);
+        // 等待服务端绑定端口
+        for (int i = 0; ; i++) {
+            try {
+                client.connect();
+                break;
+            } catch (Exception e) {
+                if (i >= 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+        latencyService = client.create(LatencyService.class);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+    
+    @Benchmark
+    public int mixedLatency(CallCounter counter) {
+        return latencyService.sleep(++counter.calls % 10 == 0 ? 20 : 0);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PipeliningBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
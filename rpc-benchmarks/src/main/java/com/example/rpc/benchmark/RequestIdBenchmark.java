@@ -0,0 +1,63 @@
+package com.example.rpc.benchmark;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import io.netty.util.collection.LongObjectHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 请求ID与未完成调用表的开销对比:
+ * UUID字符串 + ConcurrentHashMap vs 连接内递增long + LongObjectHashMap
+ * 
+ * 分配率使用GC profiler查看(gc.alloc.rate.norm即每次调用分配的字节数):
+ *   java -jar target/benchmarks.jar RequestIdBenchmark -prof gc
+ * 端到端分配率可对ConnectionPoolBenchmark开启JFR后比较jdk.ObjectAllocationSample事件:
+ *   -jvmArgsAppend "-XX:StartFlightRecording=filename=rpc.jfr,settings=profile"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestIdBenchmark {
+    private static final CompletableFuture<Object> FUTURE = new CompletableFuture<>();
+    
+    private final Map<String, CompletableFuture<Object>> stringPending = new ConcurrentHashMap<>();
+    private final LongObjectHashMap<CompletableFuture<Object>> longPending = new LongObjectHashMap<>();
+    private long nextRequestId;
+    
+    @Benchmark
+    public Object uuidString() {
+        String requestId = UUID.randomUUID().toString();
+        stringPending.put(requestId, FUTURE);
+        return stringPending.remove(requestId);
+    }
+    
+    @Benchmark
+    public Object primitiveLong() {
+        long requestId = ++nextRequestId;
+        longPending.put(requestId, FUTURE);
+        return longPending.remove(requestId);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(RequestIdBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
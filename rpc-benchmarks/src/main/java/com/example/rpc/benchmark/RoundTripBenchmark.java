@@ -0,0 +1,92 @@
+package com.example.rpc.benchmark;
+
+import com.example.rpc.client.RpcClient;
+import com.example.rpc.example.HelloService;
+import com.example.rpc.example.HelloServiceImpl;
+import com.example.rpc.registry.ServiceRegistry;
+import com.example.rpc.server.BusinessExecutor;
+import com.example.rpc.server.RpcServer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 端到端环回调用: RpcClient -> RpcServer同步调用HelloService.sayHello
+ * 同时统计吞吐(ops/s)和延迟分位数(SampleTime), 调用方并发数由-t指定, BenchmarkMain依次使用1/16/256
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoundTripBenchmark {
+    private static final int PORT = 18085;
+    
+    private RpcServer server;
+    private RpcClient client;
+    private HelloService helloService;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(HelloService.class.getName(), new HelloServiceImpl());
+        server = new RpcServer(PORT, registry, BusinessExecutor.inline());
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+        
+        client = new RpcClient("localhost", PORT);
+        // 等待服务端绑定端口
+        for (int i = 0; ; i++) {
+            try {
+                client.connect();
+                break;
+            } catch (Exception e) {
+                if (i >= 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+        helloService = client.create(HelloService.class);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+    
+    @Benchmark
+    public String sayHello() {
+        return helloService.sayHello("World");
+    }
+    
+    public static void main(String[] args) throws Exception {
+        for (int threads : BenchmarkMain.CALLER_THREADS) {
+            new Runner(new OptionsBuilder()
+                    .include(RoundTripBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.rpc.benchmark;
+
+import com.example.rpc.codec.BinarySerializer;
+import com.example.rpc.codec.JsonSerializer;
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.example.HelloService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 序列化性能对比: 旧的JSON路径(先写byte[]再拷贝进ByteBuf) vs JSON直写ByteBuf vs 二进制
+ * 运行: 直接运行main方法, 或java -jar target/benchmarks.jar SerializerBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializerBenchmark {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    // hello: sayHello("World")大小的请求, 10k: 10KB字符串参数
+    @Param({"hello", "10k"})
+    private String payload;
+    
+    private final JsonSerializer json = new JsonSerializer();
+    private final BinarySerializer binary = new BinarySerializer();
+    
+    private RpcRequest request;
+    private ByteBuf out;
+    private ByteBuf legacyJsonFrame;
+    private ByteBuf jsonFrame;
+    private ByteBuf binaryFrame;
+    
+    @Setup
+    public void setup() throws Exception {
+        String name;
+        if ("hello".equals(payload)) {
+            name = "World";
+        } else {
+            char[] chars = new char[10 * 1024];
+            Arrays.fill(chars, 'x');
+            name = new String(chars);
+        }
+        
+        request = new RpcRequest();
+        request.setRequestId(1L);
+        request.setInterfaceName(HelloService.class.getName());
+        request.setMethodName("sayHello");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameters(new Object[]{name});
+        
+        out = PooledByteBufAllocator.DEFAULT.directBuffer(16 * 1024);
+        legacyJsonFrame = PooledByteBufAllocator.DEFAULT.directBuffer();
+        legacyJsonFrame.writeBytes(OBJECT_MAPPER.writeValueAsBytes(request));
+        jsonFrame = PooledByteBufAllocator.DEFAULT.directBuffer();
+        json.serialize(request, jsonFrame);
+        binaryFrame = PooledByteBufAllocator.DEFAULT.directBuffer();
+        binary.serialize(request, binaryFrame);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        out.release();
+        legacyJsonFrame.release();
+        jsonFrame.release();
+        binaryFrame.release();
+    }
+    
+    @Benchmark
+    public ByteBuf encodeLegacyJson() throws Exception {
+        out.clear();
+        byte[] data = OBJECT_MAPPER.writeValueAsBytes(request);
+        out.writeInt(data.length);
+        out.writeBytes(data);
+        return out;
+    }
+    
+    @Benchmark
+    public ByteBuf encodeJson() throws Exception {
+        out.clear();
+        json.serialize(request, out);
+        return out;
+    }
+    
+    @Benchmark
+    public ByteBuf encodeBinary() throws Exception {
+        out.clear();
+        binary.serialize(request, out);
+        return out;
+    }
+    
+    @Benchmark
+    public RpcRequest decodeLegacyJson() throws Exception {
+        ByteBuf in = legacyJsonFrame.duplicate();
+        byte[] data = new byte[in.readableBytes()];
+        in.readBytes(data);
+        return OBJECT_MAPPER.readValue(data, RpcRequest.class);
+    }
+    
+    @Benchmark
+    public RpcRequest decodeJson() throws Exception {
+        return json.deserialize(jsonFrame.duplicate(), RpcRequest.class);
+    }
+    
+    @Benchmark
+    public RpcRequest decodeBinary() throws Exception {
+        return binary.deserialize(binaryFrame.duplicate(), RpcRequest.class);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(SerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
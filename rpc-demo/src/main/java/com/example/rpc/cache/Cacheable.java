@@ -0,0 +1,28 @@
+package com.example.rpc.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在服务接口的幂等方法上, 客户端代理按方法+参数缓存调用结果
+ * 同一时刻相同参数的调用共享一次RPC; 调用失败不缓存
+ * 参数需正确实现equals/hashCode(数组按内容比较), 且在调用后不应再被修改
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cacheable {
+    
+    /**
+     * 最多缓存的结果数, 超出时淘汰最久未访问的
+     */
+    int maxSize() default 1024;
+    
+    /**
+     * 结果的存活时间(毫秒), 从调用完成时开始计算
+     */
+    long ttlMillis() default 60_000;
+}
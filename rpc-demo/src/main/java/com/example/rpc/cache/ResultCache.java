@@ -0,0 +1,191 @@
+package com.example.rpc.cache;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 客户端调用结果缓存
+ * 有界LRU + TTL, 值为调用的future: 调用进行中的条目同样可以命中, 相同参数的并发调用由此合并为一次RPC
+ * 调用失败的条目立即移除, 不缓存异常
+ */
+public class ResultCache {
+    private final int maxSize;
+    private final long ttlNanos;
+    // 按访问顺序排列, 由自身加锁保护
+    private final LinkedHashMap<Key, CacheEntry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    
+    public ResultCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("缓存大小必须大于0: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<Key, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CacheEntry> eldest) {
+                if (size() > ResultCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * 返回缓存中的结果, 未命中或已过期时调用loader发起一次调用并缓存其future
+     * @param args 方法参数, 与方法一起构成缓存键
+     */
+    public CompletableFuture<Object> get(Object[] args, Supplier<CompletableFuture<Object>> loader) {
+        Key key = new Key(args);
+        CacheEntry entry;
+        synchronized (entries) {
+            CacheEntry existing = entries.get(key);
+            if (existing != null) {
+                if (!existing.future.isDone()) {
+                    coalesced.increment();
+                    return existing.future;
+                }
+                if (System.nanoTime() - existing.expireAtNanos < 0) {
+                    hits.increment();
+                    return existing.future;
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+            misses.increment();
+            entry = new CacheEntry();
+            entries.put(key, entry);
+        }
+        
+        // 在锁外发起调用
+        CompletableFuture<Object> result;
+        try {
+            result = loader.get();
+        } catch (RuntimeException e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((value, error) -> {
+            synchronized (entries) {
+                if (error != null) {
+                    // 仅当条目仍是本次调用时移除, 避免误删之后的新条目
+                    entries.remove(key, entry);
+                } else {
+                    entry.expireAtNanos = System.nanoTime() + ttlNanos;
+                }
+            }
+            if (error != null) {
+                entry.future.completeExceptionally(error);
+            } else {
+                entry.future.complete(value);
+            }
+        });
+        return entry.future;
+    }
+    
+    /**
+     * 清理已过期的条目
+     */
+    public void cleanUp() {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Iterator<CacheEntry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                CacheEntry entry = it.next();
+                if (entry.future.isDone() && now - entry.expireAtNanos >= 0) {
+                    it.remove();
+                    expirations.increment();
+                }
+            }
+        }
+    }
+    
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+    
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    public long getHitCount() {
+        return hits.sum();
+    }
+    
+    /**
+     * 命中了进行中调用的次数, 即被合并掉的RPC数
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+    
+    public long getMissCount() {
+        return misses.sum();
+    }
+    
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+    
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+    
+    /**
+     * 命中率, 合并的调用计为命中
+     */
+    public double getHitRate() {
+        long hit = hits.sum() + coalesced.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+    
+    @Override
+    public String toString() {
+        return "ResultCache[size=" + size() + ", hits=" + hits.sum() + ", coalesced=" + coalesced.sum()
+                + ", misses=" + misses.sum() + ", evictions=" + evictions.sum()
+                + ", expirations=" + expirations.sum() + "]";
+    }
+    
+    private static final class CacheEntry {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        // 在future完成之前设置, 调用完成前不过期
+        volatile long expireAtNanos;
+    }
+    
+    private static final class Key {
+        private final Object[] args;
+        private final int hash;
+        
+        Key(Object[] args) {
+            this.args = args == null ? new Object[0] : args.clone();
+            this.hash = Arrays.deepHashCode(this.args);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && hash == ((Key) o).hash && Arrays.deepEquals(args, ((Key) o).args);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
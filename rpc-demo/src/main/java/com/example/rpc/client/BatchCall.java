@@ -0,0 +1,86 @@
+package com.example.rpc.client;
+
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.common.RpcResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 批量调用: 收集多个调用后用一个请求帧发出, 服务端返回一个包含全部结果的响应
+ * 每个调用的结果通过add返回的future获取, 单个调用失败不影响其他调用;
+ * 整批路由到第一个调用所属服务的同一个提供者, 因此批内的服务需由同一提供者提供
+ */
+public class BatchCall {
+    private final RpcClient client;
+    private final List<RpcRequest> calls = new ArrayList<>();
+    private final List<CompletableFuture<Object>> futures = new ArrayList<>();
+    private boolean executed;
+    
+    BatchCall(RpcClient client) {
+        this.client = client;
+    }
+    
+    /**
+     * 添加一个泛化调用, 服务端按参数值匹配重载
+     */
+    public CompletableFuture<Object> add(String interfaceName, String methodName, Object... args) {
+        return add(interfaceName, methodName, null, args);
+    }
+    
+    /**
+     * @param parameterTypes 参数类型, 为null时服务端按参数值匹配重载
+     */
+    public synchronized CompletableFuture<Object> add(String interfaceName, String methodName,
+                                                      Class<?>[] parameterTypes, Object[] args) {
+        if (executed) {
+            throw new IllegalStateException("批量调用已发出");
+        }
+        calls.add(RpcClient.newRequest(interfaceName, methodName, parameterTypes, args));
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        futures.add(future);
+        return future;
+    }
+    
+    public synchronized int size() {
+        return calls.size();
+    }
+    
+    /**
+     * 发出批量请求, 只能调用一次
+     * @param parallel 子调用是否在服务端并行执行, false时按添加顺序逐个执行
+     * @return 全部调用的future都完成后完成, 不论成败
+     */
+    public synchronized CompletableFuture<Void> execute(boolean parallel) {
+        if (executed) {
+            throw new IllegalStateException("批量调用已发出");
+        }
+        if (calls.isEmpty()) {
+            throw new IllegalStateException("批量调用为空");
+        }
+        executed = true;
+        
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        client.sendRequestAsync(RpcRequest.batch(calls, parallel)).whenComplete((response, error) -> {
+            if (error == null && !response.isSuccess()) {
+                error = new RuntimeException(response.getError());
+            } else if (error == null && (response.getBatch() == null || response.getBatch().size() != calls.size())) {
+                error = new IllegalStateException("批量响应与请求数量不符");
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                if (error != null) {
+                    futures.get(i).completeExceptionally(error);
+                    continue;
+                }
+                RpcResponse result = response.getBatch().get(i);
+                if (result.isSuccess()) {
+                    futures.get(i).complete(result.getResult());
+                } else {
+                    futures.get(i).completeExceptionally(new RuntimeException(result.getError()));
+                }
+            }
+            done.complete(null);
+        });
+        return done;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.rpc.client;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * 单个服务端地址的连接池
+ * 按未完成请求数最少选择连接, 关闭的连接在下次选择时懒惰重连; 连接池关闭后不再分配和重连
+ */
+public class ChannelPool {
+    private final Bootstrap bootstrap;
+    private final String host;
+    private final int port;
+    private final BiConsumer<Channel, PooledChannel> channelInitializer;
+    private final PooledChannel[] channels;
+    private final int maxConsecutiveTimeouts;
+    // 选择起点轮转, 未完成数相同时把请求分散到不同连接
+    private final AtomicInteger index = new AtomicInteger();
+    private volatile boolean closed;
+    
+    /**
+     * @param size 连接数
+     * @param maxConsecutiveTimeouts 连续超时多少次后剔除连接
+     * @param channelInitializer 为新连接安装pipeline
+     */
+    public ChannelPool(Bootstrap bootstrap, String host, int port, int size, int maxConsecutiveTimeouts,
+                       BiConsumer<Channel, PooledChannel> channelInitializer) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("连接数必须大于0: " + size);
+        }
+        this.bootstrap = bootstrap;
+        this.host = host;
+        this.port = port;
+        this.maxConsecutiveTimeouts = maxConsecutiveTimeouts;
+        this.channelInitializer = channelInitializer;
+        this.channels = new PooledChannel[size];
+        for (int i = 0; i < size; i++) {
+            channels[i] = new PooledChannel(this);
+        }
+    }
+    
+    /**
+     * 建立全部连接
+     */
+    public void connectAll() throws InterruptedException {
+        for (PooledChannel channel : channels) {
+            ChannelFuture future = channel.connect();
+            if (future == null) {
+                throw new IllegalStateException("连接池已关闭: " + this);
+            }
+            future.sync();
+        }
+    }
+    
+    /**
+     * 选择调用数最少且可写的活跃连接并占用一个名额, 调用完成后须调用PooledChannel.release;
+     * 没有活跃连接时占用一个正在重连的槽位
+     * @param maxInflight 每个连接的调用数上限, 0表示不限制
+     * @return 所有连接都已达上限或不可写, 或连接池已关闭时返回null
+     */
+    public PooledChannel acquire(int maxInflight) {
+        if (closed) {
+            return null;
+        }
+        int size = channels.length;
+        int start = size == 1 ? 0 : (index.getAndIncrement() & Integer.MAX_VALUE) % size;
+        PooledChannel best = null;
+        PooledChannel connecting = null;
+        int bestInflight = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            PooledChannel channel = channels[(start + i) % size];
+            if (!channel.isActive()) {
+                channel.connect();
+                if (connecting == null) {
+                    connecting = channel;
+                }
+                continue;
+            }
+            // 写缓冲区超过高水位说明对端读得慢, 不再向该连接追加请求
+            if (!channel.isWritable()) {
+                continue;
+            }
+            int inflight = channel.getInflight();
+            if (inflight < bestInflight) {
+                best = channel;
+                bestInflight = inflight;
+            }
+        }
+        
+        if (best != null) {
+            if (best.tryAcquire(maxInflight)) {
+                return best;
+            }
+            // 与其他调用方竞争失败, 退而尝试其余可写连接
+            for (int i = 0; i < size; i++) {
+                PooledChannel channel = channels[(start + i) % size];
+                if (channel != best && channel.isWritable() && channel.tryAcquire(maxInflight)) {
+                    return channel;
+                }
+            }
+            return null;
+        }
+        return connecting != null && connecting.tryAcquire(maxInflight) ? connecting : null;
+    }
+    
+    ChannelFuture connect(PooledChannel pooledChannel) {
+        return bootstrap.clone()
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        channelInitializer.accept(ch, pooledChannel);
+                    }
+                })
+                .connect(host, port);
+    }
+    
+    int getMaxConsecutiveTimeouts() {
+        return maxConsecutiveTimeouts;
+    }
+    
+    public int size() {
+        return channels.length;
+    }
+    
+    /**
+     * 所有连接上的未完成请求数之和, 包括等待写出的请求
+     */
+    public int getPendingCount() {
+        int pending = 0;
+        for (PooledChannel channel : channels) {
+            pending += channel.getInflight();
+        }
+        return pending;
+    }
+    
+    public int getActiveCount() {
+        int active = 0;
+        for (PooledChannel channel : channels) {
+            if (channel.isActive()) {
+                active++;
+            }
+        }
+        return active;
+    }
+    
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    /**
+     * 关闭全部连接; 之后acquire返回null, 已分配出去的槽位也不再重连
+     */
+    public void close() {
+        closed = true;
+        for (PooledChannel channel : channels) {
+            channel.close();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
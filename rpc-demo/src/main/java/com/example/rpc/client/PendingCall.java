@@ -0,0 +1,45 @@
+package com.example.rpc.client;
+
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.common.RpcResponse;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 一次未完成的调用
+ * 作为出站消息写入pipeline, 由RpcClientHandler在EventLoop中分配请求ID并登记
+ */
+public class PendingCall {
+    private final RpcRequest request;
+    private final CompletableFuture<RpcResponse> future;
+    private final long deadlineNanos;
+    // 流式调用的接收端, 普通调用为null
+    private final RpcStream<?> stream;
+    
+    public PendingCall(RpcRequest request, CompletableFuture<RpcResponse> future, long deadlineNanos) {
+        this(request, future, deadlineNanos, null);
+    }
+    
+    public PendingCall(RpcRequest request, CompletableFuture<RpcResponse> future, long deadlineNanos,
+                       RpcStream<?> stream) {
+        this.request = request;
+        this.future = future;
+        this.deadlineNanos = deadlineNanos;
+        this.stream = stream;
+    }
+    
+    public RpcRequest getRequest() {
+        return request;
+    }
+    
+    public CompletableFuture<RpcResponse> getFuture() {
+        return future;
+    }
+    
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+    
+    public RpcStream<?> getStream() {
+        return stream;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.rpc.client;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接池中的一个连接槽位
+ * 持有当前连接(或正在建立的连接)及其RpcClientHandler,
+ * 连接关闭后由下一次acquire懒惰地重连
+ */
+public class PooledChannel {
+    // 连接失败后的重连冷却时间, 避免对不可用的服务端反复发起连接
+    private static final long RECONNECT_BACKOFF_MILLIS = 1000;
+    
+    private final ChannelPool pool;
+    private final AtomicInteger consecutiveTimeouts = new AtomicInteger();
+    // 已分配到该连接且尚未完成的调用数, 包括等待写出的调用
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile ChannelFuture connectFuture;
+    private volatile RpcClientHandler handler;
+    private volatile long lastFailureTime;
+    
+    PooledChannel(ChannelPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * 返回当前连接的future, 连接不可用时发起重连; 连接池已关闭且没有可用连接时返回null
+     */
+    public ChannelFuture connect() {
+        ChannelFuture future = connectFuture;
+        if (future != null && future.isSuccess() && future.channel().isActive()) {
+            return future;
+        }
+        return reconnect();
+    }
+    
+    private synchronized ChannelFuture reconnect() {
+        ChannelFuture future = connectFuture;
+        // 与close互斥: 关闭之后不会再建立新连接
+        if (pool.isClosed()) {
+            return null;
+        }
+        if (future != null) {
+            if (!future.isDone() || (future.isSuccess() && future.channel().isActive())) {
+                return future;
+            }
+            if (!future.isSuccess() && System.currentTimeMillis() - lastFailureTime < RECONNECT_BACKOFF_MILLIS) {
+                return future;
+            }
+        }
+        
+        future = pool.connect(this);
+        connectFuture = future;
+        future.addListener(f -> {
+            if (!f.isSuccess()) {
+                lastFailureTime = System.currentTimeMillis();
+            }
+        });
+        return future;
+    }
+    
+    public boolean isActive() {
+        ChannelFuture future = connectFuture;
+        return future != null && future.isSuccess() && future.channel().isActive();
+    }
+    
+    /**
+     * 连接已建立且写缓冲区未超过高水位
+     */
+    public boolean isWritable() {
+        ChannelFuture future = connectFuture;
+        return future != null && future.isSuccess() && future.channel().isWritable();
+    }
+    
+    /**
+     * 在并发数未达上限时占用一个名额, 调用完成后须调用release
+     * @param maxInflight 上限, 0表示不限制
+     */
+    boolean tryAcquire(int maxInflight) {
+        for (;;) {
+            int current = inflight.get();
+            if (maxInflight > 0 && current >= maxInflight) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    void release() {
+        inflight.decrementAndGet();
+    }
+    
+    public int getInflight() {
+        return inflight.get();
+    }
+    
+    void setHandler(RpcClientHandler handler) {
+        this.handler = handler;
+    }
+    
+    public int getPendingCount() {
+        RpcClientHandler h = handler;
+        return h == null ? 0 : h.getPendingCount();
+    }
+    
+    void recordSuccess() {
+        if (consecutiveTimeouts.get() != 0) {
+            consecutiveTimeouts.set(0);
+        }
+    }
+    
+    /**
+     * 连续超时达到阈值时认为连接不健康, 关闭后由下次acquire重连
+     */
+    void recordTimeout() {
+        if (consecutiveTimeouts.incrementAndGet() >= pool.getMaxConsecutiveTimeouts()) {
+            consecutiveTimeouts.set(0);
+            evict();
+        }
+    }
+    
+    void evict() {
+        ChannelFuture future = connectFuture;
+        if (future != null) {
+            Channel channel = future.channel();
+            System.err.println("连接不健康, 关闭: " + channel);
+            channel.close();
+        }
+    }
+    
+    synchronized void close() {
+        ChannelFuture future = connectFuture;
+        if (future != null) {
+            future.channel().close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.rpc.client;
+
+import com.example.rpc.registry.ProviderAddress;
+
+/**
+ * 客户端视角的一个服务提供者: 地址及到它的连接池
+ */
+public class Provider {
+    private final ChannelPool channelPool;
+    private volatile ProviderAddress address;
+    
+    public Provider(ProviderAddress address, ChannelPool channelPool) {
+        this.address = address;
+        this.channelPool = channelPool;
+    }
+    
+    public ProviderAddress getAddress() {
+        return address;
+    }
+    
+    void setAddress(ProviderAddress address) {
+        this.address = address;
+    }
+    
+    public int getWeight() {
+        return address.getWeight();
+    }
+    
+    /**
+     * 该提供者上的未完成请求数
+     */
+    public int getActiveCount() {
+        return channelPool.getPendingCount();
+    }
+    
+    public ChannelPool getChannelPool() {
+        return channelPool;
+    }
+    
+    @Override
+    public String toString() {
+        return address.toString();
+    }
+}
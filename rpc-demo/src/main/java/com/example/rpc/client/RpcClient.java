@@ -1,89 +1,534 @@
 package com.example.rpc.client;
 
+import com.example.rpc.cache.Cacheable;
+import com.example.rpc.cache.ResultCache;
+import com.example.rpc.codec.Compressor;
 import com.example.rpc.codec.RpcDecoder;
 import com.example.rpc.codec.RpcEncoder;
+import com.example.rpc.codec.Serializer;
+import com.example.rpc.codec.SerializerFactory;
 import com.example.rpc.common.RpcRequest;
 import com.example.rpc.common.RpcResponse;
+import com.example.rpc.limit.ConcurrencyLimiter;
+import com.example.rpc.loadbalance.LoadBalancer;
+import com.example.rpc.loadbalance.RoundRobinLoadBalancer;
+import com.example.rpc.metrics.MethodMetrics;
+import com.example.rpc.metrics.RpcMetrics;
+import com.example.rpc.registry.ProviderAddress;
+import com.example.rpc.registry.ServiceDiscovery;
+import com.example.rpc.transport.FlushBatchingHandler;
+import com.example.rpc.transport.Transport;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class RpcClient {
-    private final String host;
-    private final int port;
+    // 连续超时多少次后剔除连接
+    private static final int MAX_CONSECUTIVE_TIMEOUTS = 3;
+    // 每个连接默认的未完成调用数上限
+    public static final int DEFAULT_MAX_INFLIGHT_PER_CONNECTION = 1024;
+    
     private final Bootstrap bootstrap;
+    private final Transport transport;
     private final EventLoopGroup group;
-    private Channel channel;
-    private final Map<String, CompletableFuture<RpcResponse>> pendingRequests = new ConcurrentHashMap<>();
+    private final BiConsumer<Channel, PooledChannel> channelInitializer;
+    private final int connectionsPerProvider;
+    private final LoadBalancer loadBalancer;
+    // 为null时为直连模式, 所有服务都发往fixedProviders
+    private final ServiceDiscovery discovery;
+    private final List<Provider> fixedProviders;
+    // 服务名 -> 本地缓存的提供者列表(不可变), 由服务发现推送更新
+    private final Map<String, List<Provider>> providerCache = new ConcurrentHashMap<>();
+    // 地址 -> 提供者, 多个服务共享同一提供者的连接池
+    private final Map<ProviderAddress, Provider> providers = new ConcurrentHashMap<>();
+    // 服务名 -> 向服务发现注册的监听器, 关闭时取消订阅
+    private final Map<String, Consumer<List<ProviderAddress>>> subscriptions = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+    private volatile long requestTimeoutMillis = 5000;
+    private volatile int maxInflightPerConnection = DEFAULT_MAX_INFLIGHT_PER_CONNECTION;
+    // 整个客户端的并发限制, 为null表示不限制
+    private volatile ConcurrencyLimiter limiter;
+    // 流式调用的额度(块数)
+    private volatile int streamWindow = 8;
+    // 标注了@Cacheable的方法 -> 结果缓存, 同一接口的多个代理共享
+    private final Map<Method, ResultCache> resultCaches = new ConcurrentHashMap<>();
+    // 按方法统计的调用耗时、请求/响应大小、执行中调用数和失败数
+    private final RpcMetrics metrics = new RpcMetrics("client");
+    // flush合并, flushBatchSize为0表示关闭
+    private volatile int flushBatchSize;
+    private volatile long flushMaxDelayMicros;
+    // 压缩, compressor为null表示关闭
+    private volatile Compressor compressor;
+    private volatile int compressionThreshold;
     
     public RpcClient(String host, int port) {
-        this.host = host;
-        this.port = port;
-        this.group = new NioEventLoopGroup();
+        this(host, port, SerializerFactory.getDefault());
+    }
+    
+    public RpcClient(String host, int port, Serializer serializer) {
+        this(host, port, serializer, 1);
+    }
+    
+    /**
+     * 直连单个服务端
+     * @param connections 到该服务端的连接数
+     */
+    public RpcClient(String host, int port, Serializer serializer, int connections) {
+        this(host, port, serializer, connections, Transport.auto(), 0);
+    }
+    
+    /**
+     * @param transport 传输实现, 默认Transport.auto()
+     * @param ioThreads I/O线程数, 0表示使用Netty默认值
+     */
+    public RpcClient(String host, int port, Serializer serializer, int connections,
+                     Transport transport, int ioThreads) {
+        this(new ProviderAddress(host, port), null, new RoundRobinLoadBalancer(), serializer, connections,
+                transport, ioThreads);
+    }
+    
+    /**
+     * 基于服务发现的客户端, 按服务名解析提供者并在客户端做负载均衡
+     */
+    public RpcClient(ServiceDiscovery discovery, LoadBalancer loadBalancer) {
+        this(discovery, loadBalancer, SerializerFactory.getDefault(), 1);
+    }
+    
+    /**
+     * @param connectionsPerProvider 到每个提供者的连接数
+     */
+    public RpcClient(ServiceDiscovery discovery, LoadBalancer loadBalancer, Serializer serializer,
+                     int connectionsPerProvider) {
+        this(discovery, loadBalancer, serializer, connectionsPerProvider, Transport.auto(), 0);
+    }
+    
+    public RpcClient(ServiceDiscovery discovery, LoadBalancer loadBalancer, Serializer serializer,
+                     int connectionsPerProvider, Transport transport, int ioThreads) {
+        this(null, discovery, loadBalancer, serializer, connectionsPerProvider, transport, ioThreads);
+    }
+    
+    private RpcClient(ProviderAddress fixedAddress, ServiceDiscovery discovery, LoadBalancer loadBalancer,
+                      Serializer serializer, int connectionsPerProvider, Transport transport, int ioThreads) {
+        this.discovery = discovery;
+        this.loadBalancer = loadBalancer;
+        this.connectionsPerProvider = connectionsPerProvider;
+        this.transport = transport;
+        this.group = transport.newEventLoopGroup(ioThreads, "rpc-client-io");
         this.bootstrap = new Bootstrap();
         bootstrap.group(group)
-                .channel(NioSocketChannel.class)
-                .handler(new ChannelInitializer<SocketChannel>() {
-                    @Override
-                    protected void initChannel(SocketChannel ch) {
-                        ChannelPipeline pipeline = ch.pipeline();
-                        pipeline.addLast(new RpcDecoder(RpcResponse.class));
-                        pipeline.addLast(new RpcEncoder());
-                        pipeline.addLast(new RpcClientHandler(pendingRequests));
-                    }
-                })
+                .channel(transport.getChannelClass())
                 .option(ChannelOption.TCP_NODELAY, true);
+        this.channelInitializer = (ch, pooledChannel) -> {
+            ChannelPipeline pipeline = ch.pipeline();
+            if (flushBatchSize > 0) {
+                pipeline.addLast(new FlushBatchingHandler(
+                        flushBatchSize, flushMaxDelayMicros, TimeUnit.MICROSECONDS));
+            }
+            pipeline.addLast(new RpcDecoder(RpcResponse.class));
+            pipeline.addLast(new RpcEncoder(serializer, compressor, compressionThreshold));
+            RpcClientHandler handler = new RpcClientHandler();
+            pooledChannel.setHandler(handler);
+            pipeline.addLast(handler);
+        };
+        this.fixedProviders = fixedAddress == null
+                ? Collections.emptyList()
+                : Collections.singletonList(getOrCreateProvider(fixedAddress));
     }
     
+    /**
+     * 建立到所有已知提供者的连接; 服务发现模式下新提供者的连接在首次调用时懒惰建立
+     */
     public void connect() throws InterruptedException {
-        ChannelFuture future = bootstrap.connect(host, port).sync();
-        channel = future.channel();
+        for (Provider provider : providers.values()) {
+            provider.getChannelPool().connectAll();
+        }
     }
     
     public RpcResponse sendRequest(RpcRequest request) throws Exception {
+        try {
+            return sendRequestAsync(request).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+    
+    public CompletableFuture<RpcResponse> sendRequestAsync(RpcRequest request) {
+        return sendRequestAsync(request, requestTimeoutMillis);
+    }
+    
+    /**
+     * 异步发送请求
+     * 请求ID在写出时由所选连接分配; 超时由连接的EventLoop周期扫描, 调用线程无需阻塞等待
+     * 客户端或连接的并发已达上限时, future立即以RejectedExecutionException完成
+     * 返回的future在I/O线程上完成, 回调中不应执行阻塞操作
+     * @param timeoutMillis 本次调用的超时时间, 超时后future以TimeoutException完成
+     */
+    public CompletableFuture<RpcResponse> sendRequestAsync(RpcRequest request, long timeoutMillis) {
         CompletableFuture<RpcResponse> future = new CompletableFuture<>();
-        pendingRequests.put(request.getRequestId(), future);
+        send(request, future, timeoutMillis, null);
+        return future;
+    }
+    
+    /**
+     * 发起流式调用, 服务方法需返回Iterator
+     * 结果按块到达, 服务端最多领先消费者streamWindow块; 等待下一块超过请求超时时间时抛出异常
+     * 提前停止消费时应关闭返回的RpcStream
+     */
+    public <T> RpcStream<T> sendStreamRequest(RpcRequest request) {
+        RpcStream<T> stream = new RpcStream<>(streamWindow, requestTimeoutMillis);
+        request.setStreamCredit(stream.getWindow());
+        send(request, stream.getFuture(), requestTimeoutMillis, stream);
+        return stream;
+    }
+    
+    private void send(RpcRequest request, CompletableFuture<RpcResponse> future, long timeoutMillis,
+                      RpcStream<?> stream) {
+        // 批量请求按第一个子调用选择提供者
+        RpcRequest routing = request.isBatch() && !request.getBatch().isEmpty() ? request.getBatch().get(0) : request;
+        List<Provider> candidates = getProviders(routing.getInterfaceName());
+        if (candidates.isEmpty()) {
+            future.completeExceptionally(
+                    new IllegalStateException("没有可用的服务提供者: " + routing.getInterfaceName()));
+            return;
+        }
+        
+        // 饱和时立即拒绝, 而不是让请求在内存中无限堆积
+        ConcurrencyLimiter limiter = this.limiter;
+        if (limiter != null && !limiter.tryAcquire()) {
+            future.completeExceptionally(new RejectedExecutionException("客户端并发已达上限: " + limiter));
+            return;
+        }
+        Provider provider;
+        PooledChannel pooledChannel;
+        try {
+            provider = loadBalancer.select(candidates, routing);
+            pooledChannel = provider.getChannelPool().acquire(maxInflightPerConnection);
+        } catch (RuntimeException e) {
+            // 选择失败时归还许可, 否则许可会逐渐耗尽
+            if (limiter != null) {
+                limiter.onIgnore();
+            }
+            future.completeExceptionally(e);
+            return;
+        }
+        if (pooledChannel == null) {
+            if (limiter != null) {
+                limiter.onDropped();
+            }
+            future.completeExceptionally(provider.getChannelPool().isClosed()
+                    ? new IllegalStateException("服务提供者已下线: " + provider)
+                    : new RejectedExecutionException("连接已达并发上限或不可写: " + provider));
+            return;
+        }
+        
+        long startNanos = System.nanoTime();
+        MethodMetrics methodMetrics = metrics.forRequest(request);
+        methodMetrics.onStart();
+        PendingCall call = new PendingCall(request, future,
+                startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), stream);
+        future.whenComplete((response, error) -> {
+            pooledChannel.release();
+            // 请求大小由编码器写出时填写, 未写出(如连接失败)时为0
+            methodMetrics.onComplete(System.nanoTime() - startNanos, error == null && response.isSuccess(),
+                    request.getWireSize(), response == null ? 0 : response.getWireSize());
+            if (error == null) {
+                pooledChannel.recordSuccess();
+                // 流式调用的耗时取决于消费速度, 不作为RTT样本
+                if (limiter != null && stream != null) {
+                    limiter.onIgnore();
+                } else if (limiter != null) {
+                    limiter.onSuccess(System.nanoTime() - startNanos);
+                }
+            } else if (error instanceof TimeoutException) {
+                pooledChannel.recordTimeout();
+                if (limiter != null) {
+                    limiter.onDropped();
+                }
+            } else if (limiter != null) {
+                limiter.onIgnore();
+            }
+        });
         
-        channel.writeAndFlush(request).addListener((ChannelFutureListener) channelFuture -> {
+        // 连接可能正在(重)建立, 建立完成后再写出
+        ChannelFuture connectFuture = pooledChannel.connect();
+        if (connectFuture == null) {
+            // 选中提供者之后其连接池被关闭(提供者下线或客户端关闭)
+            future.completeExceptionally(new IllegalStateException("服务提供者已下线: " + provider));
+        } else if (connectFuture.isDone()) {
+            write(connectFuture, call);
+        } else {
+            connectFuture.addListener((ChannelFutureListener) f -> write(f, call));
+        }
+    }
+    
+    private static void write(ChannelFuture connectFuture, PendingCall call) {
+        if (!connectFuture.isSuccess()) {
+            call.getFuture().completeExceptionally(connectFuture.cause());
+            return;
+        }
+        
+        Channel channel = connectFuture.channel();
+        channel.writeAndFlush(call).addListener((ChannelFutureListener) channelFuture -> {
             if (!channelFuture.isSuccess()) {
-                future.completeExceptionally(channelFuture.cause());
-                channel.close();
+                call.getFuture().completeExceptionally(channelFuture.cause());
+                // 编码失败只影响本次调用; I/O错误时连接已不可用, 关闭后其上的调用立即失败
+                if (channelFuture.cause() instanceof IOException) {
+                    channel.close();
+                }
             }
         });
+    }
+    
+    /**
+     * 默认的调用超时时间, 也是流式调用等待下一块的超时时间
+     */
+    public void setRequestTimeoutMillis(long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+    
+    /**
+     * 每个连接的未完成调用数上限, 达到上限或连接不可写时该连接不再接收新调用, 0表示不限制
+     */
+    public void setMaxInflightPerConnection(int maxInflightPerConnection) {
+        this.maxInflightPerConnection = maxInflightPerConnection;
+    }
+    
+    /**
+     * 设置整个客户端的并发限制器, 为null表示不限制
+     * 见FixedConcurrencyLimiter和基于RTT自适应的AimdConcurrencyLimiter
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+    
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return limiter;
+    }
+    
+    /**
+     * 流式调用的额度(块数), 即服务端最多领先消费者的块数
+     */
+    public void setStreamWindow(int streamWindow) {
+        this.streamWindow = streamWindow;
+    }
+    
+    /**
+     * 开启请求flush合并, 对之后建立的连接生效, 需在connect之前调用
+     * @param maxBatchSize 最多合并多少个请求后强制flush
+     * @param maxDelayMicros 请求最多被推迟多久, 0表示推迟到当前EventLoop任务处理完
+     */
+    public void enableFlushBatching(int maxBatchSize, long maxDelayMicros) {
+        this.flushBatchSize = maxBatchSize;
+        this.flushMaxDelayMicros = maxDelayMicros;
+    }
+    
+    /**
+     * 开启帧压缩, 对之后建立的连接生效, 需在connect之前调用
+     * 请求体达到阈值时压缩; 同时向服务端声明可接受该算法, 服务端开启压缩时按同一算法压缩大响应
+     * @param compressor 压缩算法, 见CompressorFactory
+     * @param threshold 消息体达到该字节数才压缩
+     */
+    public void enableCompression(Compressor compressor, int threshold) {
+        this.compressionThreshold = threshold;
+        this.compressor = compressor;
+    }
+    
+    /**
+     * 返回服务当前的提供者列表, 首次访问时向服务发现订阅
+     */
+    public List<Provider> getProviders(String serviceName) {
+        if (discovery == null) {
+            return fixedProviders;
+        }
+        List<Provider> cached = providerCache.get(serviceName);
+        return cached != null ? cached : subscribe(serviceName);
+    }
+    
+    private synchronized List<Provider> subscribe(String serviceName) {
+        List<Provider> cached = providerCache.get(serviceName);
+        if (cached != null) {
+            return cached;
+        }
+        if (closed) {
+            return Collections.emptyList();
+        }
+        // 先订阅再查询, 避免错过两者之间的变更
+        Consumer<List<ProviderAddress>> listener = addresses -> updateProviders(serviceName, addresses);
+        subscriptions.put(serviceName, listener);
+        discovery.subscribe(serviceName, listener);
+        updateProviders(serviceName, discovery.lookup(serviceName));
+        return providerCache.get(serviceName);
+    }
+    
+    private synchronized void updateProviders(String serviceName, List<ProviderAddress> addresses) {
+        // 关闭之后到达的推送不再创建连接池
+        if (closed) {
+            return;
+        }
+        List<Provider> updated = new ArrayList<>(addresses.size());
+        for (ProviderAddress address : addresses) {
+            Provider provider = getOrCreateProvider(address);
+            provider.setAddress(address);
+            updated.add(provider);
+        }
+        providerCache.put(serviceName, Collections.unmodifiableList(updated));
         
-        return future.get(5, TimeUnit.SECONDS);
+        // 关闭不再被任何服务引用的提供者连接
+        Set<ProviderAddress> referenced = new HashSet<>();
+        for (List<Provider> list : providerCache.values()) {
+            for (Provider provider : list) {
+                referenced.add(provider.getAddress());
+            }
+        }
+        providers.entrySet().removeIf(entry -> {
+            if (referenced.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().getChannelPool().close();
+            return true;
+        });
+    }
+    
+    private Provider getOrCreateProvider(ProviderAddress address) {
+        return providers.computeIfAbsent(address, a -> new Provider(a, new ChannelPool(
+                bootstrap, a.getHost(), a.getPort(), connectionsPerProvider,
+                MAX_CONSECUTIVE_TIMEOUTS, channelInitializer)));
+    }
+    
+    /**
+     * 泛化调用, 无需服务接口的Class; 服务端按参数值匹配重载, 基本类型参数传对应的包装类型
+     */
+    public Object invoke(String interfaceName, String methodName, Object... args) throws Exception {
+        return unwrapResult(sendRequest(newRequest(interfaceName, methodName, null, args)));
+    }
+    
+    public CompletableFuture<Object> invokeAsync(String interfaceName, String methodName, Object... args) {
+        return sendRequestAsync(newRequest(interfaceName, methodName, null, args)).thenApply(RpcClient::unwrapResult);
+    }
+    
+    /**
+     * 创建批量调用, 多个调用合并为一个请求帧发往同一提供者
+     */
+    public BatchCall newBatch() {
+        return new BatchCall(this);
+    }
+    
+    static RpcRequest newRequest(String interfaceName, String methodName, Class<?>[] parameterTypes, Object[] args) {
+        RpcRequest request = new RpcRequest();
+        request.setInterfaceName(interfaceName);
+        request.setMethodName(methodName);
+        request.setParameterTypes(parameterTypes);
+        request.setParameters(args);
+        return request;
     }
     
     @SuppressWarnings("unchecked")
     public <T> T create(Class<T> serviceClass) {
+        for (Method method : serviceClass.getMethods()) {
+            Cacheable cacheable = method.getAnnotation(Cacheable.class);
+            if (cacheable == null) {
+                continue;
+            }
+            if (method.getReturnType() == Iterator.class) {
+                throw new IllegalArgumentException("流式方法不支持缓存: " + method);
+            }
+            resultCaches.computeIfAbsent(method, m -> new ResultCache(cacheable.maxSize(), cacheable.ttlMillis()));
+        }
+        
         return (T) java.lang.reflect.Proxy.newProxyInstance(
             serviceClass.getClassLoader(),
             new Class<?>[]{serviceClass},
             (proxy, method, args) -> {
                 RpcRequest request = new RpcRequest();
-                request.setRequestId(UUID.randomUUID().toString());
                 request.setInterfaceName(serviceClass.getName());
                 request.setMethodName(method.getName());
                 request.setParameterTypes(method.getParameterTypes());
                 request.setParameters(args);
+    
+                // 返回Iterator的方法按流式调用, 结果逐块拉取
+                if (method.getReturnType() == Iterator.class) {
+                    return sendStreamRequest(request);
+                }
+                boolean async = method.getReturnType() == CompletableFuture.class;
+                ResultCache cache = resultCaches.get(method);
+                if (cache != null) {
+                    CompletableFuture<Object> cached = cache.get(args,
+                            () -> sendRequestAsync(request).thenApply(RpcClient::unwrapResult));
+                    if (async) {
+                        // 返回副本, 调用方无法完成或取消共享的future
+                        return cached.thenApply(result -> result);
+                    }
+                    try {
+                        return cached.join();
+                    } catch (CompletionException e) {
+                        throw e.getCause();
+                    }
+                }
                 
-                RpcResponse response = sendRequest(request);
-                if (!response.isSuccess()) {
-                    throw new RuntimeException(response.getError());
+                // 返回CompletableFuture的方法走异步路径, 不占用调用线程
+                if (async) {
+                    return sendRequestAsync(request).thenApply(RpcClient::unwrapResult);
                 }
-                return response.getResult();
+                return unwrapResult(sendRequest(request));
             }
         );
     }
     
+    /**
+     * 返回方法的结果缓存(命中率、淘汰数等统计), 方法未标注@Cacheable时返回null
+     */
+    public ResultCache getResultCache(Method method) {
+        return resultCaches.get(method);
+    }
+    
+    private static Object unwrapResult(RpcResponse response) {
+        if (!response.isSuccess()) {
+            throw new RuntimeException(response.getError());
+        }
+        return response.getResult();
+    }
+    
+    /**
+     * 按接口和方法汇总的调用统计, 耗时从发出调用到收到响应
+     */
+    public RpcMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public Transport getTransport() {
+        return transport;
+    }
+    
     public void close() {
+        synchronized (this) {
+            closed = true;
+            for (Map.Entry<String, Consumer<List<ProviderAddress>>> entry : subscriptions.entrySet()) {
+                discovery.unsubscribe(entry.getKey(), entry.getValue());
+            }
+            subscriptions.clear();
+        }
+        for (Provider provider : providers.values()) {
+            provider.getChannelPool().close();
+        }
+        metrics.stopPeriodicDump();
         group.shutdownGracefully();
     }
-} 
\ No newline at end of file
+}
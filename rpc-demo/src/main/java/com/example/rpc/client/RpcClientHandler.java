@@ -1,26 +1,115 @@
 package com.example.rpc.client;
 
-import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import com.example.rpc.common.RpcRequest;
 import com.example.rpc.common.RpcResponse;
 
+import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap.PrimitiveEntry;
+import io.netty.util.concurrent.ScheduledFuture;
 
-public class RpcClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
-    private final Map<String, CompletableFuture<RpcResponse>> pendingRequests;
+/**
+ * 客户端处理器, 每个连接一个实例
+ * 请求ID分配、未完成调用表和超时扫描都只在该连接的EventLoop中进行, 无需同步;
+ * 请求ID在连接内单调递增, 调用表以long为键, 不产生装箱和字符串哈希
+ */
+public class RpcClientHandler extends ChannelDuplexHandler {
+    // 超时扫描间隔
+    private static final long SWEEP_INTERVAL_MILLIS = 10;
     
-    public RpcClientHandler(Map<String, CompletableFuture<RpcResponse>> pendingRequests) {
-        this.pendingRequests = pendingRequests;
+    private final LongObjectHashMap<PendingCall> pendingCalls = new LongObjectHashMap<>();
+    private long nextRequestId;
+    // 未完成调用数, 供其他线程选择连接时读取
+    private volatile int pendingCount;
+    private ScheduledFuture<?> sweepFuture;
+    
+    public int getPendingCount() {
+        return pendingCount;
+    }
+    
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (!(msg instanceof PendingCall)) {
+            ctx.write(msg, promise);
+            return;
+        }
+        
+        PendingCall call = (PendingCall) msg;
+        long requestId = ++nextRequestId;
+        call.getRequest().setRequestId(requestId);
+        pendingCalls.put(requestId, call);
+        pendingCount = pendingCalls.size();
+        if (call.getStream() != null) {
+            call.getStream().bind(ctx.channel(), requestId);
+        }
+        if (sweepFuture == null) {
+            scheduleSweep(ctx);
+        }
+        // 写出失败(如参数无法序列化)时只让本次调用失败, 不影响同一连接上的其他调用
+        ChannelPromise writePromise = promise.unvoid();
+        writePromise.addListener(f -> {
+            if (!f.isSuccess()) {
+                onWriteFailed(requestId, f.cause());
+            }
+        });
+        ctx.write(call.getRequest(), writePromise);
+    }
+    
+    private void onWriteFailed(long requestId, Throwable cause) {
+        PendingCall call = pendingCalls.remove(requestId);
+        if (call != null) {
+            pendingCount = pendingCalls.size();
+            call.getFuture().completeExceptionally(cause);
+        }
+    }
+    
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof RpcResponse)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        
+        RpcResponse response = (RpcResponse) msg;
+        // 流式调用的中间块: 交给接收端, 调用仍未结束
+        if (response.isPartial()) {
+            PendingCall call = pendingCalls.get(response.getRequestId());
+            if (call != null && call.getStream() != null) {
+                call.getStream().onChunk((List<?>) response.getResult());
+            }
+            return;
+        }
+        PendingCall call = pendingCalls.remove(response.getRequestId());
+        if (call != null) {
+            pendingCount = pendingCalls.size();
+            call.getFuture().complete(response);
+        }
     }
     
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, RpcResponse response) {
-        CompletableFuture<RpcResponse> future = pendingRequests.remove(response.getRequestId());
-        if (future != null) {
-            future.complete(response);
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (sweepFuture != null) {
+            sweepFuture.cancel(false);
+            sweepFuture = null;
+        }
+        // 连接关闭, 未完成的调用立即失败而不是等到超时
+        List<PendingCall> calls = new ArrayList<>(pendingCalls.values());
+        pendingCalls.clear();
+        pendingCount = 0;
+        IOException cause = new IOException("连接已关闭");
+        for (PendingCall call : calls) {
+            call.getFuture().completeExceptionally(cause);
         }
+        super.channelInactive(ctx);
     }
     
     @Override
@@ -28,4 +117,44 @@ public class RpcClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
         cause.printStackTrace();
         ctx.close();
     }
-} 
\ No newline at end of file
+    
+    private void scheduleSweep(ChannelHandlerContext ctx) {
+        sweepFuture = ctx.executor().schedule(() -> {
+            sweepFuture = null;
+            sweepTimeouts(ctx);
+            if (!pendingCalls.isEmpty()) {
+                scheduleSweep(ctx);
+            }
+        }, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    private void sweepTimeouts(ChannelHandlerContext ctx) {
+        long now = System.nanoTime();
+        List<PendingCall> expired = null;
+        Iterator<PrimitiveEntry<PendingCall>> it = pendingCalls.entries().iterator();
+        while (it.hasNext()) {
+            PendingCall call = it.next().value();
+            // 流式调用按空闲时间计算超时: 长时间既没有新块也没有被消费(如调用方忘记close)
+            if (call.getStream() == null ? now - call.getDeadlineNanos() >= 0 : call.getStream().isIdle(now)) {
+                it.remove();
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(call);
+            }
+        }
+        if (expired == null) {
+            return;
+        }
+        
+        pendingCount = pendingCalls.size();
+        for (PendingCall call : expired) {
+            long requestId = call.getRequest().getRequestId();
+            if (call.getStream() != null) {
+                // 通知服务端停止发送
+                ctx.writeAndFlush(RpcRequest.credit(requestId, 0));
+            }
+            call.getFuture().completeExceptionally(new TimeoutException("请求超时: " + requestId));
+        }
+    }
+}
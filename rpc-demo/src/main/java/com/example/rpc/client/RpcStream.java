@@ -0,0 +1,162 @@
+package com.example.rpc.client;
+
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.common.RpcResponse;
+import io.netty.channel.Channel;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 流式调用的客户端接收端, 以阻塞Iterator的形式逐个返回元素
+ * 基于额度的流控: 初始授予window块额度, 每消费掉一半额度再追加, 服务端最多领先消费者window块,
+ * 因此无论结果多大, 客户端内存占用都是常量
+ * 不是线程安全的, 应由单个线程消费; 提前停止消费时应调用close以取消服务端的发送;
+ * 既没有收到新块也没有被消费超过timeoutMillis时, 由RpcClientHandler的超时扫描取消, 避免未关闭的流泄漏
+ */
+public class RpcStream<T> implements Iterator<T>, AutoCloseable {
+    // 流结束标记
+    private static final Object END = new Object();
+    
+    private final CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+    // 元素为块(List)、END或异常
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final int window;
+    private final long timeoutMillis;
+    private volatile Channel channel;
+    private volatile long requestId;
+    private volatile boolean cancelled;
+    // 最近一次收到块或消费者取走块的时间
+    private volatile long lastActivityNanos = System.nanoTime();
+    private Iterator<?> current = Collections.emptyIterator();
+    private boolean finished;
+    private int consumedChunks;
+    
+    /**
+     * @param window 额度(块数), 即服务端最多领先消费者的块数
+     * @param timeoutMillis 等待下一块的最长时间
+     */
+    RpcStream(int window, long timeoutMillis) {
+        this.window = window;
+        this.timeoutMillis = timeoutMillis;
+        future.whenComplete((response, error) -> {
+            if (error != null) {
+                queue.offer(error);
+            } else if (!response.isSuccess()) {
+                queue.offer(new RuntimeException(response.getError()));
+            } else {
+                queue.offer(END);
+            }
+        });
+    }
+    
+    CompletableFuture<RpcResponse> getFuture() {
+        return future;
+    }
+    
+    int getWindow() {
+        return window;
+    }
+    
+    /**
+     * 请求写出时由RpcClientHandler在EventLoop中调用
+     */
+    void bind(Channel channel, long requestId) {
+        this.requestId = requestId;
+        this.channel = channel;
+        if (cancelled) {
+            channel.writeAndFlush(RpcRequest.credit(requestId, 0));
+        }
+    }
+    
+    void onChunk(List<?> items) {
+        lastActivityNanos = System.nanoTime();
+        queue.offer(items);
+    }
+    
+    /**
+     * 超时扫描在EventLoop中调用
+     */
+    boolean isIdle(long now) {
+        return now - lastActivityNanos >= TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (finished) {
+                return false;
+            }
+            Object next;
+            try {
+                next = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new RuntimeException("等待流式响应时被中断", e);
+            }
+            if (next == null) {
+                close();
+                throw new RuntimeException(new TimeoutException("流式响应超时: " + requestId));
+            }
+            lastActivityNanos = System.nanoTime();
+            if (next == END) {
+                finished = true;
+                return false;
+            }
+            if (next instanceof Throwable) {
+                finished = true;
+                Throwable error = (Throwable) next;
+                throw error instanceof RuntimeException ? (RuntimeException) error : new RuntimeException(error);
+            }
+            current = ((List<?>) next).iterator();
+            grantCredit();
+        }
+        return true;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return (T) current.next();
+    }
+    
+    private void grantCredit() {
+        // 批量追加额度, 减少流控帧数量
+        if (++consumedChunks >= Math.max(1, window / 2)) {
+            Channel ch = channel;
+            if (ch != null) {
+                ch.writeAndFlush(RpcRequest.credit(requestId, consumedChunks));
+            }
+            consumedChunks = 0;
+        }
+    }
+    
+    /**
+     * 提前结束消费: 通知服务端停止发送并释放本次调用占用的连接名额
+     */
+    @Override
+    public void close() {
+        if (finished || future.isDone()) {
+            finished = true;
+            return;
+        }
+        finished = true;
+        cancelled = true;
+        Channel ch = channel;
+        if (ch != null) {
+            ch.writeAndFlush(RpcRequest.credit(requestId, 0));
+        }
+        future.completeExceptionally(new CancellationException("流式调用已取消"));
+    }
+}
@@ -0,0 +1,490 @@
+package com.example.rpc.codec;
+
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.common.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 紧凑二进制序列化器
+ * RpcRequest/RpcResponse按字段顺序直接写入ByteBuf(requestId在帧头中, 不在此处写入),
+ * 参数和返回值使用单字节类型标签编码, 长度使用变长整数。List/Map分别还原为ArrayList/LinkedHashMap;
+ * 其余类型(POJO等)按类名+JSON写入, 由Jackson还原; 不退化为Java原生序列化
+ */
+public class BinarySerializer implements Serializer {
+    // 类型标签
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte SHORT = 7;
+    private static final byte BYTE = 8;
+    private static final byte CHAR = 9;
+    private static final byte BYTES = 10;
+    private static final byte INT_ARRAY = 11;
+    private static final byte LONG_ARRAY = 12;
+    private static final byte DOUBLE_ARRAY = 13;
+    private static final byte OBJECT_ARRAY = 14;
+    private static final byte LIST = 15;
+    private static final byte MAP = 16;
+    private static final byte JSON = 17;
+    // 数组/集合的最大嵌套层数, 防止伪造的深层嵌套帧递归耗尽事件循环线程的栈
+    private static final int MAX_DEPTH = 64;
+
+    // 类名 -> Class缓存, 避免每次反序列化参数类型都走Class.forName
+    private static final Map<String, Class<?>> CLASS_CACHE = new ConcurrentHashMap<>();
+    // 内置标签不支持的类型交给JSON序列化器
+    private static final JsonSerializer JSON_SERIALIZER = new JsonSerializer();
+
+    static {
+        Class<?>[] primitives = {int.class, long.class, boolean.class, double.class, float.class,
+                short.class, byte.class, char.class, void.class};
+        for (Class<?> primitive : primitives) {
+            CLASS_CACHE.put(primitive.getName(), primitive);
+        }
+    }
+
+    @Override
+    public byte getId() {
+        return SerializerFactory.BINARY;
+    }
+
+    @Override
+    public void serialize(Object obj, ByteBuf out) throws IOException {
+        if (obj instanceof RpcRequest) {
+            writeRequest((RpcRequest) obj, out);
+        } else if (obj instanceof RpcResponse) {
+            writeResponse((RpcResponse) obj, out);
+        } else {
+            writeObject(obj, out);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) throws IOException {
+        if (clazz == RpcRequest.class) {
+            return (T) readRequest(in, false);
+        } else if (clazz == RpcResponse.class) {
+            return (T) readResponse(in, false);
+        }
+        return clazz.cast(readObject(in, 0));
+    }
+
+    private void writeRequest(RpcRequest request, ByteBuf out) throws IOException {
+        writeString(request.getInterfaceName(), out);
+        writeString(request.getMethodName(), out);
+
+        // 参数类型个数+1写入, 0表示null(按参数值匹配)
+        Class<?>[] parameterTypes = request.getParameterTypes();
+        if (parameterTypes == null) {
+            writeVarInt(0, out);
+        } else {
+            writeVarInt(parameterTypes.length + 1, out);
+            for (Class<?> parameterType : parameterTypes) {
+                writeString(parameterType.getName(), out);
+            }
+        }
+
+        Object[] parameters = request.getParameters();
+        int paramCount = parameters == null ? 0 : parameters.length;
+        writeVarInt(paramCount, out);
+        for (int i = 0; i < paramCount; i++) {
+            writeObject(parameters[i], out);
+        }
+        writeVarInt(request.getStreamCredit(), out);
+        
+        // 子请求个数+1写入, 0表示非批量请求
+        List<RpcRequest> batch = request.getBatch();
+        if (batch == null) {
+            writeVarInt(0, out);
+        } else {
+            writeVarInt(batch.size() + 1, out);
+            out.writeBoolean(request.isParallel());
+            for (RpcRequest call : batch) {
+                writeRequest(call, out);
+            }
+        }
+    }
+
+    /**
+     * @param nested 是否为批量请求中的子请求, 子请求不允许再携带批量, 避免伪造的嵌套帧递归耗尽栈
+     */
+    private RpcRequest readRequest(ByteBuf in, boolean nested) throws IOException {
+        RpcRequest request = new RpcRequest();
+        request.setInterfaceName(readString(in));
+        request.setMethodName(readString(in));
+
+        int typeCount = readOptionalLength(in, 1);
+        if (typeCount >= 0) {
+            Class<?>[] parameterTypes = new Class<?>[typeCount];
+            for (int i = 0; i < typeCount; i++) {
+                parameterTypes[i] = resolveClass(readString(in));
+            }
+            request.setParameterTypes(parameterTypes);
+        }
+
+        Object[] parameters = new Object[readLength(in, 1)];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = readObject(in, 0);
+        }
+        request.setParameters(parameters);
+        request.setStreamCredit(readVarInt(in));
+        
+        int batchSize = readOptionalLength(in, 1);
+        if (batchSize >= 0) {
+            if (nested) {
+                throw new IOException("批量请求不能嵌套");
+            }
+            request.setParallel(in.readBoolean());
+            List<RpcRequest> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(readRequest(in, true));
+            }
+            request.setBatch(batch);
+        }
+        return request;
+    }
+
+    private void writeResponse(RpcResponse response, ByteBuf out) throws IOException {
+        out.writeBoolean(response.isSuccess());
+        out.writeBoolean(response.isPartial());
+        writeString(response.getError(), out);
+        writeObject(response.getResult(), out);
+        
+        List<RpcResponse> batch = response.getBatch();
+        if (batch == null) {
+            writeVarInt(0, out);
+        } else {
+            writeVarInt(batch.size() + 1, out);
+            for (RpcResponse result : batch) {
+                writeResponse(result, out);
+            }
+        }
+    }
+
+    private RpcResponse readResponse(ByteBuf in, boolean nested) throws IOException {
+        RpcResponse response = new RpcResponse();
+        response.setSuccess(in.readBoolean());
+        response.setPartial(in.readBoolean());
+        response.setError(readString(in));
+        response.setResult(readObject(in, 0));
+        
+        int batchSize = readOptionalLength(in, 1);
+        if (batchSize >= 0) {
+            if (nested) {
+                throw new IOException("批量响应不能嵌套");
+            }
+            List<RpcResponse> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(readResponse(in, true));
+            }
+            response.setBatch(batch);
+        }
+        return response;
+    }
+
+    private void writeObject(Object obj, ByteBuf out) throws IOException {
+        if (obj == null) {
+            out.writeByte(NULL);
+        } else if (obj instanceof String) {
+            out.writeByte(STRING);
+            writeString((String) obj, out);
+        } else if (obj instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) obj);
+        } else if (obj instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) obj);
+        } else if (obj instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) obj);
+        } else if (obj instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) obj);
+        } else if (obj instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) obj);
+        } else if (obj instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) obj);
+        } else if (obj instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) obj);
+        } else if (obj instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) obj);
+        } else if (obj instanceof byte[]) {
+            byte[] bytes = (byte[]) obj;
+            out.writeByte(BYTES);
+            writeVarInt(bytes.length, out);
+            out.writeBytes(bytes);
+        } else if (obj instanceof int[]) {
+            int[] array = (int[]) obj;
+            out.writeByte(INT_ARRAY);
+            writeVarInt(array.length, out);
+            out.ensureWritable(array.length * 4);
+            for (int value : array) {
+                out.writeInt(value);
+            }
+        } else if (obj instanceof long[]) {
+            long[] array = (long[]) obj;
+            out.writeByte(LONG_ARRAY);
+            writeVarInt(array.length, out);
+            out.ensureWritable(array.length * 8);
+            for (long value : array) {
+                out.writeLong(value);
+            }
+        } else if (obj instanceof double[]) {
+            double[] array = (double[]) obj;
+            out.writeByte(DOUBLE_ARRAY);
+            writeVarInt(array.length, out);
+            out.ensureWritable(array.length * 8);
+            for (double value : array) {
+                out.writeDouble(value);
+            }
+        } else if (obj instanceof Object[]) {
+            Object[] array = (Object[]) obj;
+            out.writeByte(OBJECT_ARRAY);
+            writeString(array.getClass().getComponentType().getName(), out);
+            writeVarInt(array.length, out);
+            for (Object element : array) {
+                writeObject(element, out);
+            }
+        } else if (obj instanceof List) {
+            List<?> list = (List<?>) obj;
+            out.writeByte(LIST);
+            writeVarInt(list.size(), out);
+            for (Object element : list) {
+                writeObject(element, out);
+            }
+        } else if (obj instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) obj;
+            out.writeByte(MAP);
+            writeVarInt(map.size(), out);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeObject(entry.getKey(), out);
+                writeObject(entry.getValue(), out);
+            }
+        } else {
+            // 类名 + 4字节长度 + JSON, 长度在写完后回填
+            out.writeByte(JSON);
+            writeString(obj.getClass().getName(), out);
+            int lengthIndex = out.writerIndex();
+            out.writeInt(0);
+            JSON_SERIALIZER.serialize(obj, out);
+            out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+        }
+    }
+
+    /**
+     * @param depth 当前所在的数组/集合嵌套层数
+     */
+    private Object readObject(ByteBuf in, int depth) throws IOException {
+        byte tag = in.readByte();
+        if (depth >= MAX_DEPTH && (tag == OBJECT_ARRAY || tag == LIST || tag == MAP)) {
+            throw new IOException("嵌套层数超过上限" + MAX_DEPTH);
+        }
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case BOOLEAN:
+                return in.readBoolean();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case CHAR:
+                return in.readChar();
+            case BYTES: {
+                byte[] bytes = new byte[readLength(in, 1)];
+                in.readBytes(bytes);
+                return bytes;
+            }
+            case INT_ARRAY: {
+                int[] array = new int[readLength(in, 4)];
+                ByteBuffer view = bulkView(in, array.length * 4);
+                if (view != null) {
+                    view.asIntBuffer().get(array);
+                } else {
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = in.readInt();
+                    }
+                }
+                return array;
+            }
+            case LONG_ARRAY: {
+                long[] array = new long[readLength(in, 8)];
+                ByteBuffer view = bulkView(in, array.length * 8);
+                if (view != null) {
+                    view.asLongBuffer().get(array);
+                } else {
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = in.readLong();
+                    }
+                }
+                return array;
+            }
+            case DOUBLE_ARRAY: {
+                double[] array = new double[readLength(in, 8)];
+                ByteBuffer view = bulkView(in, array.length * 8);
+                if (view != null) {
+                    view.asDoubleBuffer().get(array);
+                } else {
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = in.readDouble();
+                    }
+                }
+                return array;
+            }
+            case OBJECT_ARRAY: {
+                Class<?> componentType = resolveClass(readString(in));
+                int length = readLength(in, 1);
+                Object[] array = (Object[]) Array.newInstance(componentType, length);
+                for (int i = 0; i < length; i++) {
+                    array[i] = readObject(in, depth + 1);
+                }
+                return array;
+            }
+            case LIST: {
+                int size = readLength(in, 1);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readObject(in, depth + 1));
+                }
+                return list;
+            }
+            case MAP: {
+                // 每个键值对至少两个类型标签
+                int size = readLength(in, 2);
+                Map<Object, Object> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+                for (int i = 0; i < size; i++) {
+                    map.put(readObject(in, depth + 1), readObject(in, depth + 1));
+                }
+                return map;
+            }
+            case JSON: {
+                Class<?> clazz = resolveClass(readString(in));
+                int length = in.readInt();
+                if (length < 0 || length > in.readableBytes()) {
+                    throw new IOException("长度超出消息体: " + length + ", 剩余字节: " + in.readableBytes());
+                }
+                ByteBuf json = in.readSlice(length);
+                return JSON_SERIALIZER.deserialize(json, clazz);
+            }
+            default:
+                throw new IOException("未知的类型标签: " + tag);
+        }
+    }
+
+    /**
+     * 连续内存的缓冲区返回length字节的NIO视图并跳过这些字节, 用于原生数组的批量读取;
+     * 由多段组成的缓冲区返回null, 由调用方逐个读取
+     */
+    private static ByteBuffer bulkView(ByteBuf in, int length) {
+        if (in.nioBufferCount() != 1) {
+            return null;
+        }
+        ByteBuffer view = in.nioBuffer(in.readerIndex(), length).order(ByteOrder.BIG_ENDIAN);
+        in.skipBytes(length);
+        return view;
+    }
+    
+    private static void writeString(String value, ByteBuf out) {
+        // 长度+1写入, 0表示null
+        if (value == null) {
+            writeVarInt(0, out);
+            return;
+        }
+        writeVarInt(ByteBufUtil.utf8Bytes(value) + 1, out);
+        ByteBufUtil.writeUtf8(out, value);
+    }
+
+    private static String readString(ByteBuf in) throws IOException {
+        int length = readOptionalLength(in, 1);
+        if (length < 0) {
+            return null;
+        }
+        String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return value;
+    }
+
+    private static void writeVarInt(int value, ByteBuf out) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuf in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("变长整数格式错误");
+    }
+
+    /**
+     * 读取元素个数, 按每个元素至少minBytes字节校验剩余字节数, 在分配数组或集合之前拒绝伪造的长度
+     */
+    private static int readLength(ByteBuf in, int minBytes) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0 || length > in.readableBytes() / minBytes) {
+            throw new IOException("长度超出消息体: " + length + ", 剩余字节: " + in.readableBytes());
+        }
+        return length;
+    }
+
+    /**
+     * 读取按"个数+1"写入的长度, 返回-1表示null
+     */
+    private static int readOptionalLength(ByteBuf in, int minBytes) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < -1 || length > in.readableBytes() / minBytes) {
+            throw new IOException("长度超出消息体: " + length + ", 剩余字节: " + in.readableBytes());
+        }
+        return length;
+    }
+
+    private static Class<?> resolveClass(String name) throws IOException {
+        Class<?> clazz = CLASS_CACHE.get(name);
+        if (clazz == null) {
+            try {
+                clazz = Class.forName(name, false, BinarySerializer.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IOException("类未找到: " + name, e);
+            }
+            CLASS_CACHE.put(name, clazz);
+        }
+        return clazz;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.rpc.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 帧体压缩SPI
+ * 压缩后的帧体前带有4字节原始长度, 由编解码器读写, 实现只处理压缩数据本身
+ */
+public interface Compressor {
+    
+    /**
+     * 压缩算法ID(1~15), 写入帧头flags用于两端协商
+     */
+    byte getId();
+    
+    /**
+     * 压缩in中全部可读字节并写入out
+     */
+    void compress(ByteBuf in, ByteBuf out);
+    
+    /**
+     * 解压in中全部可读字节并写入out, 解压结果应恰好为originalLength字节
+     */
+    void decompress(ByteBuf in, ByteBuf out, int originalLength);
+}
@@ -0,0 +1,37 @@
+package com.example.rpc.codec;
+
+/**
+ * 压缩器注册表
+ * 按帧头flags中的压缩算法ID查找实现, ID为0表示不压缩
+ */
+public final class CompressorFactory {
+    public static final byte NONE = 0;
+    public static final byte SNAPPY = 1;
+    public static final byte LZ4 = 2;
+    
+    private static final Compressor[] COMPRESSORS = new Compressor[16];
+    
+    static {
+        register(new SnappyCompressor());
+        register(new Lz4Compressor());
+    }
+    
+    private CompressorFactory() {
+    }
+    
+    public static synchronized void register(Compressor compressor) {
+        int id = compressor.getId();
+        if (id <= NONE || id >= COMPRESSORS.length) {
+            throw new IllegalArgumentException("压缩算法ID必须在1~15之间: " + id);
+        }
+        COMPRESSORS[id] = compressor;
+    }
+    
+    public static Compressor getCompressor(int id) {
+        Compressor compressor = COMPRESSORS[id];
+        if (compressor == null) {
+            throw new IllegalArgumentException("未知的压缩算法: " + id);
+        }
+        return compressor;
+    }
+}
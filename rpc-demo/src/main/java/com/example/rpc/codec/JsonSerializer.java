@@ -1,16 +1,36 @@
 package com.example.rpc.codec;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
-public class JsonSerializer {
+public class JsonSerializer implements Serializer {
     private static final ObjectMapper objectMapper = new ObjectMapper();
     
-    public static byte[] serialize(Object obj) throws IOException {
-        return objectMapper.writeValueAsBytes(obj);
+    @Override
+    public byte getId() {
+        return SerializerFactory.JSON;
     }
     
-    public static <T> T deserialize(byte[] bytes, Class<T> clazz) throws IOException {
-        return objectMapper.readValue(bytes, clazz);
+    @Override
+    public void serialize(Object obj, ByteBuf out) throws IOException {
+        // ByteBufOutputStream同时实现了DataOutput, 需显式指定重载
+        objectMapper.writeValue((OutputStream) new ByteBufOutputStream(out), obj);
     }
-} 
\ No newline at end of file
+    
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) throws IOException {
+        // 堆内缓冲区直接解析底层数组, 省去流包装
+        if (in.hasArray()) {
+            int length = in.readableBytes();
+            T value = objectMapper.readValue(in.array(), in.arrayOffset() + in.readerIndex(), length, clazz);
+            in.skipBytes(length);
+            return value;
+        }
+        return objectMapper.readValue((InputStream) new ByteBufInputStream(in), clazz);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.rpc.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.compression.DecompressionException;
+import java.nio.ByteBuffer;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * 基于lz4-java的LZ4块压缩器, 直接在ByteBuf的NIO视图上读写
+ */
+public class Lz4Compressor implements Compressor {
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    // 帧来自网络, 使用带边界检查的解压器
+    private static final LZ4SafeDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+    
+    @Override
+    public byte getId() {
+        return CompressorFactory.LZ4;
+    }
+    
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        int length = in.readableBytes();
+        int maxLength = COMPRESSOR.maxCompressedLength(length);
+        out.ensureWritable(maxLength);
+        ByteBuffer src = in.nioBuffer(in.readerIndex(), length);
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), maxLength);
+        int written = COMPRESSOR.compress(src, src.position(), length, dest, dest.position(), maxLength);
+        in.skipBytes(length);
+        out.writerIndex(out.writerIndex() + written);
+    }
+    
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out, int originalLength) {
+        int length = in.readableBytes();
+        out.ensureWritable(originalLength);
+        ByteBuffer src = in.nioBuffer(in.readerIndex(), length);
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), originalLength);
+        int written = DECOMPRESSOR.decompress(src, src.position(), length, dest, dest.position(), originalLength);
+        if (written != originalLength) {
+            throw new DecompressionException("LZ4解压长度不符: " + written + ", 期望" + originalLength);
+        }
+        in.skipBytes(length);
+        out.writerIndex(out.writerIndex() + written);
+    }
+}
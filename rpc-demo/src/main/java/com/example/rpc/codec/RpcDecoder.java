@@ -2,15 +2,43 @@ package com.example.rpc.codec;
 
 import java.util.List;
 
+import com.example.rpc.common.RpcMessage;
+
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
 
 public class RpcDecoder extends ByteToMessageDecoder {
+    // 记录对端使用的序列化器, 响应时沿用
+    public static final AttributeKey<Serializer> SERIALIZER_KEY = AttributeKey.valueOf("rpc.serializer");
+    // 记录对端声明可接受的压缩算法, 响应时使用
+    public static final AttributeKey<Compressor> COMPRESSOR_KEY = AttributeKey.valueOf("rpc.compressor");
+    // 默认最大帧长度16MB
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+    // 长度字段之后的帧头: 1字节flags + 1字节序列化器ID + 8字节请求ID
+    private static final int HEADER_LENGTH = 10;
+    // 帧未收齐时累积缓冲区每次最多预留64KB
+    private static final int MAX_RESERVE_BYTES = 64 * 1024;
+    
     private final Class<?> targetClass;
+    private final int maxFrameLength;
     
     public RpcDecoder(Class<?> targetClass) {
+        this(targetClass, DEFAULT_MAX_FRAME_LENGTH);
+    }
+    
+    /**
+     * @param maxFrameLength 允许的最大帧长度(不含长度字段), 超过时直接拒绝而不是继续缓冲;
+     *                       同时限制压缩帧解压后的长度
+     */
+    public RpcDecoder(Class<?> targetClass, int maxFrameLength) {
         this.targetClass = targetClass;
+        this.maxFrameLength = maxFrameLength;
     }
     
     @Override
@@ -19,18 +47,87 @@ public class RpcDecoder extends ByteToMessageDecoder {
             return;
         }
         
-        in.markReaderIndex();
-        int dataLength = in.readInt();
+        int dataLength = in.getInt(in.readerIndex());
+        if (dataLength < HEADER_LENGTH) {
+            in.skipBytes(in.readableBytes());
+            throw new CorruptedFrameException("非法的帧长度: " + dataLength);
+        }
+        if (dataLength > maxFrameLength) {
+            // 读到帧头就拒绝, 不等待超长帧的剩余数据
+            in.skipBytes(in.readableBytes());
+            throw new TooLongFrameException("帧长度" + dataLength + "超过上限" + maxFrameLength);
+        }
         
-        if (in.readableBytes() < dataLength) {
-            in.resetReaderIndex();
+        int missing = dataLength + 4 - in.readableBytes();
+        if (missing > 0) {
+            // 预扩容以实际到达的数据为限, 不按对端声明的长度分配, 避免少量字节换取大块内存
+            int reserve = Math.min(missing, MAX_RESERVE_BYTES);
+            if (in.writableBytes() < reserve && in.maxWritableBytes() >= reserve) {
+                in.ensureWritable(reserve);
+            }
             return;
         }
         
-        byte[] data = new byte[dataLength];
-        in.readBytes(data);
+        in.skipBytes(4);
+        int flags = in.readByte();
+        Serializer serializer = SerializerFactory.getSerializer(in.readByte());
+        long requestId = in.readLong();
+        Attribute<Serializer> attr = ctx.channel().attr(SERIALIZER_KEY);
+        if (attr.get() != serializer) {
+            attr.set(serializer);
+        }
+        int acceptedId = (flags >>> 4) & 0x0F;
+        Attribute<Compressor> compressorAttr = ctx.channel().attr(COMPRESSOR_KEY);
+        Compressor accepted = compressorAttr.get();
+        if (acceptedId != (accepted == null ? CompressorFactory.NONE : accepted.getId())) {
+            compressorAttr.set(acceptedId == CompressorFactory.NONE ? null : CompressorFactory.getCompressor(acceptedId));
+        }
         
-        Object obj = JsonSerializer.deserialize(data, targetClass);
+        int bodyLength = dataLength - HEADER_LENGTH;
+        int compressorId = flags & 0x0F;
+        ByteBuf body;
+        if (compressorId == CompressorFactory.NONE) {
+            // 序列化器直接读取入站缓冲区的切片, 不拷贝到临时byte[];
+            // 切片被retain, 反序列化期间累积缓冲区即使被压缩或替换也不受影响
+            body = in.readRetainedSlice(bodyLength);
+        } else {
+            body = decompress(ctx, CompressorFactory.getCompressor(compressorId), in, bodyLength);
+        }
+        Object obj;
+        try {
+            obj = serializer.deserialize(body, targetClass);
+        } finally {
+            body.release();
+        }
+        if (obj instanceof RpcMessage) {
+            ((RpcMessage) obj).setRequestId(requestId);
+            ((RpcMessage) obj).setWireSize(dataLength + 4);
+        }
         out.add(obj);
     }
-} 
\ No newline at end of file
+    
+    private ByteBuf decompress(ChannelHandlerContext ctx, Compressor compressor, ByteBuf in, int bodyLength) {
+        if (bodyLength < 4) {
+            in.skipBytes(bodyLength);
+            throw new CorruptedFrameException("压缩帧缺少原始长度字段");
+        }
+        int originalLength = in.readInt();
+        ByteBuf compressed = in.readSlice(bodyLength - 4);
+        if (originalLength < 0 || originalLength > maxFrameLength) {
+            throw new TooLongFrameException("解压后长度" + originalLength + "超过上限" + maxFrameLength);
+        }
+        
+        // 容量上限即原始长度, 防止伪造的压缩数据无限膨胀
+        ByteBuf body = ctx.alloc().buffer(originalLength, originalLength);
+        try {
+            compressor.decompress(compressed, body, originalLength);
+            if (body.readableBytes() != originalLength) {
+                throw new DecompressionException("解压长度不符: " + body.readableBytes() + ", 期望" + originalLength);
+            }
+            return body;
+        } catch (RuntimeException e) {
+            body.release();
+            throw e instanceof DecompressionException ? e : new DecompressionException(e);
+        }
+    }
+}
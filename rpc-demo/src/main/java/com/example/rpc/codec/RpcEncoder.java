@@ -1,14 +1,87 @@
 package com.example.rpc.codec;
 
+import com.example.rpc.common.RpcMessage;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
-public class RpcEncoder extends MessageToByteEncoder<Object> {
+/**
+ * 帧格式: | 4字节长度 | 1字节flags | 1字节序列化器ID | 8字节请求ID | 消息体 |
+ * 长度字段包含flags、序列化器ID、请求ID和消息体
+ * flags低4位为消息体的压缩算法ID(0为未压缩), 高4位为发送方可接受的压缩算法ID;
+ * 消息体被压缩时以4字节原始长度开头
+ */
+public class RpcEncoder extends MessageToByteEncoder<RpcMessage> {
+    // 为null时沿用对端请求所使用的序列化器(服务端)
+    private final Serializer serializer;
+    // 为null时沿用对端声明可接受的压缩算法(服务端)
+    private final Compressor compressor;
+    // 消息体达到该字节数才压缩, 0表示不压缩
+    private final int compressionThreshold;
+    
+    public RpcEncoder() {
+        this(null);
+    }
+    
+    public RpcEncoder(Serializer serializer) {
+        this(serializer, null, 0);
+    }
+    
+    /**
+     * @param compressor 本端使用并向对端声明的压缩算法, 为null时使用对端声明的算法
+     * @param compressionThreshold 消息体达到该字节数才压缩, 0表示不压缩
+     */
+    public RpcEncoder(Serializer serializer, Compressor compressor, int compressionThreshold) {
+        this.serializer = serializer;
+        this.compressor = compressor;
+        this.compressionThreshold = compressionThreshold;
+    }
+    
     @Override
-    protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
-        byte[] data = JsonSerializer.serialize(msg);
-        out.writeInt(data.length);
-        out.writeBytes(data);
+    protected void encode(ChannelHandlerContext ctx, RpcMessage msg, ByteBuf out) throws Exception {
+        Serializer s = serializer;
+        if (s == null) {
+            s = ctx.channel().attr(RpcDecoder.SERIALIZER_KEY).get();
+            if (s == null) {
+                s = SerializerFactory.getDefault();
+            }
+        }
+        
+        // 预留长度字段, 直接序列化进out后回填
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        int flagsIndex = out.writerIndex();
+        out.writeByte(compressor == null ? 0 : compressor.getId() << 4);
+        out.writeByte(s.getId());
+        out.writeLong(msg.getRequestId());
+        int bodyIndex = out.writerIndex();
+        s.serialize(msg, out);
+        
+        int bodyLength = out.writerIndex() - bodyIndex;
+        if (compressionThreshold > 0 && bodyLength >= compressionThreshold) {
+            Compressor c = compressor != null ? compressor : ctx.channel().attr(RpcDecoder.COMPRESSOR_KEY).get();
+            if (c != null) {
+                compress(ctx, c, out, flagsIndex, bodyIndex, bodyLength);
+            }
+        }
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+        msg.setWireSize(out.writerIndex() - lengthIndex);
+    }
+    
+    private static void compress(ChannelHandlerContext ctx, Compressor c, ByteBuf out,
+                                 int flagsIndex, int bodyIndex, int bodyLength) {
+        ByteBuf compressed = ctx.alloc().buffer(bodyLength);
+        try {
+            c.compress(out.slice(bodyIndex, bodyLength), compressed);
+            // 压缩收益抵不过原始长度字段时按未压缩发送
+            if (compressed.readableBytes() + 4 < bodyLength) {
+                out.writerIndex(bodyIndex);
+                out.writeInt(bodyLength);
+                out.writeBytes(compressed);
+                out.setByte(flagsIndex, out.getByte(flagsIndex) | c.getId());
+            }
+        } finally {
+            compressed.release();
+        }
     }
-} 
\ No newline at end of file
+}
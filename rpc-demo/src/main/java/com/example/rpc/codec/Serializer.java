@@ -0,0 +1,26 @@
+package com.example.rpc.codec;
+
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+
+/**
+ * 序列化SPI
+ * 直接读写Netty的ByteBuf, 避免中间byte[]拷贝
+ */
+public interface Serializer {
+    
+    /**
+     * 序列化器ID, 写入帧头用于两端协商
+     */
+    byte getId();
+    
+    /**
+     * 将对象序列化写入out
+     */
+    void serialize(Object obj, ByteBuf out) throws IOException;
+    
+    /**
+     * 从in中读取一个对象, in中可读的字节即为完整的消息体
+     */
+    <T> T deserialize(ByteBuf in, Class<T> clazz) throws IOException;
+}
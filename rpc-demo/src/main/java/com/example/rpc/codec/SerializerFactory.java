@@ -0,0 +1,36 @@
+package com.example.rpc.codec;
+
+/**
+ * 序列化器注册表
+ * 按帧头中的序列化器ID查找实现
+ */
+public final class SerializerFactory {
+    public static final byte JSON = 0;
+    public static final byte BINARY = 1;
+    
+    private static final Serializer[] SERIALIZERS = new Serializer[256];
+    
+    static {
+        register(new JsonSerializer());
+        register(new BinarySerializer());
+    }
+    
+    private SerializerFactory() {
+    }
+    
+    public static synchronized void register(Serializer serializer) {
+        SERIALIZERS[serializer.getId() & 0xFF] = serializer;
+    }
+    
+    public static Serializer getSerializer(byte id) {
+        Serializer serializer = SERIALIZERS[id & 0xFF];
+        if (serializer == null) {
+            throw new IllegalArgumentException("未知的序列化器: " + id);
+        }
+        return serializer;
+    }
+    
+    public static Serializer getDefault() {
+        return SERIALIZERS[BINARY];
+    }
+}
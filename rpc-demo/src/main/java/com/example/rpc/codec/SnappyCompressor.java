@@ -0,0 +1,26 @@
+package com.example.rpc.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.compression.Snappy;
+
+/**
+ * 基于Netty内置Snappy实现的压缩器, 无额外依赖
+ */
+public class SnappyCompressor implements Compressor {
+    
+    @Override
+    public byte getId() {
+        return CompressorFactory.SNAPPY;
+    }
+    
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        // Snappy实例带有解码状态, 不能跨线程共享
+        new Snappy().encode(in, out, in.readableBytes());
+    }
+    
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out, int originalLength) {
+        new Snappy().decode(in, out);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.rpc.common;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.io.Serializable;
+
+/**
+ * 请求/响应的公共父类
+ * requestId写在帧头中而不是消息体里, 由编解码器负责读写, 序列化器不处理该字段
+ */
+public abstract class RpcMessage implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private long requestId;    // 请求唯一标识, 同一连接内单调递增
+    // 帧的字节数, 由编解码器在编码/解码时填写, 仅用于统计, 不参与序列化
+    private transient int wireSize;
+    
+    @JsonIgnore
+    public long getRequestId() {
+        return requestId;
+    }
+    
+    @JsonIgnore
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+    
+    @JsonIgnore
+    public int getWireSize() {
+        return wireSize;
+    }
+    
+    @JsonIgnore
+    public void setWireSize(int wireSize) {
+        this.wireSize = wireSize;
+    }
+}
@@ -1,22 +1,52 @@
 package com.example.rpc.common;
 
-import java.io.Serializable;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.List;
 
-public class RpcRequest implements Serializable {
+public class RpcRequest extends RpcMessage {
     private static final long serialVersionUID = 1L;
     
-    private String requestId;        // 请求唯一标识
     private String interfaceName;    // 接口名称
     private String methodName;       // 方法名称
     private Object[] parameters;     // 参数值
-    private Class<?>[] parameterTypes;  // 参数类型
+    private Class<?>[] parameterTypes;  // 参数类型, 为null时服务端按参数值匹配重载
+    private int streamCredit;        // 流式调用的接收额度(块数), 0表示普通调用
+    private List<RpcRequest> batch;  // 批量调用的子请求, 非null时本请求为批量请求
+    private boolean parallel;        // 批量请求的子调用是否在服务端并行执行
+    private transient long receivedNanos;  // 服务端收到请求的时间(System.nanoTime), 仅用于统计
     
-    public String getRequestId() {
-        return requestId;
+    /**
+     * 流控帧: 为进行中的流式调用追加额度, 额度为0表示取消该调用
+     */
+    public static RpcRequest credit(long requestId, int credit) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(requestId);
+        request.setStreamCredit(credit);
+        return request;
     }
     
-    public void setRequestId(String requestId) {
-        this.requestId = requestId;
+    /**
+     * 批量请求: 一帧携带多个调用, 服务端返回一个包含全部结果的响应
+     * @param parallel 子调用是否在服务端并行执行, false时按顺序逐个执行
+     */
+    public static RpcRequest batch(List<RpcRequest> calls, boolean parallel) {
+        RpcRequest request = new RpcRequest();
+        request.setBatch(calls);
+        request.setParallel(parallel);
+        return request;
+    }
+    
+    /**
+     * 是否为流控帧(不携带调用信息)
+     */
+    @JsonIgnore
+    public boolean isControl() {
+        return interfaceName == null && batch == null;
+    }
+    
+    @JsonIgnore
+    public boolean isBatch() {
+        return batch != null;
     }
     
     public String getInterfaceName() {
@@ -50,4 +80,38 @@ public class RpcRequest implements Serializable {
     public void setParameterTypes(Class<?>[] parameterTypes) {
         this.parameterTypes = parameterTypes;
     }
-} 
\ No newline at end of file
+    
+    public int getStreamCredit() {
+        return streamCredit;
+    }
+    
+    public void setStreamCredit(int streamCredit) {
+        this.streamCredit = streamCredit;
+    }
+    
+    public List<RpcRequest> getBatch() {
+        return batch;
+    }
+    
+    public void setBatch(List<RpcRequest> batch) {
+        this.batch = batch;
+    }
+    
+    public boolean isParallel() {
+        return parallel;
+    }
+    
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+    
+    @JsonIgnore
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+    
+    @JsonIgnore
+    public void setReceivedNanos(long receivedNanos) {
+        this.receivedNanos = receivedNanos;
+    }
+}
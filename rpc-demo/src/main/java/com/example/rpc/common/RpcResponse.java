@@ -1,16 +1,17 @@
 package com.example.rpc.common;
 
-import java.io.Serializable;
+import java.util.List;
 
-public class RpcResponse implements Serializable {
+public class RpcResponse extends RpcMessage {
     private static final long serialVersionUID = 1L;
     
-    private String requestId;    // 对应请求的ID
     private Object result;       // 返回结果
     private String error;        // 错误信息
     private boolean success;     // 调用是否成功
+    private boolean partial;     // 流式调用的中间块, result为本块的元素列表, 之后还有后续帧
+    private List<RpcResponse> batch;  // 批量请求的结果, 与子请求一一对应
     
-    public static RpcResponse success(String requestId, Object result) {
+    public static RpcResponse success(long requestId, Object result) {
         RpcResponse response = new RpcResponse();
         response.setRequestId(requestId);
         response.setResult(result);
@@ -18,7 +19,7 @@ public class RpcResponse implements Serializable {
         return response;
     }
     
-    public static RpcResponse error(String requestId, String error) {
+    public static RpcResponse error(long requestId, String error) {
         RpcResponse response = new RpcResponse();
         response.setRequestId(requestId);
         response.setError(error);
@@ -26,12 +27,16 @@ public class RpcResponse implements Serializable {
         return response;
     }
     
-    public String getRequestId() {
-        return requestId;
+    public static RpcResponse chunk(long requestId, List<?> items) {
+        RpcResponse response = success(requestId, items);
+        response.setPartial(true);
+        return response;
     }
     
-    public void setRequestId(String requestId) {
-        this.requestId = requestId;
+    public static RpcResponse batch(long requestId, List<RpcResponse> results) {
+        RpcResponse response = success(requestId, null);
+        response.setBatch(results);
+        return response;
     }
     
     public Object getResult() {
@@ -57,4 +62,20 @@ public class RpcResponse implements Serializable {
     public void setSuccess(boolean success) {
         this.success = success;
     }
-} 
\ No newline at end of file
+    
+    public boolean isPartial() {
+        return partial;
+    }
+    
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
+    
+    public List<RpcResponse> getBatch() {
+        return batch;
+    }
+    
+    public void setBatch(List<RpcResponse> batch) {
+        this.batch = batch;
+    }
+}
@@ -3,7 +3,7 @@ package com.example.rpc.example;
 import com.example.rpc.client.RpcClient;
 
 public class ClientExample {
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws Exception {
         RpcClient client = new RpcClient("localhost", 8080);
         client.connect();
         
@@ -11,6 +11,11 @@ public class ClientExample {
         String result = helloService.sayHello("World");
         System.out.println(result);
         
+        // 异步调用
+        helloService.sayHelloAsync("Async")
+                .thenAccept(System.out::println)
+                .get();
+        
         client.close();
     }
-} 
\ No newline at end of file
+}
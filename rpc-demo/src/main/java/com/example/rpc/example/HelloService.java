@@ -1,5 +1,10 @@
 package com.example.rpc.example;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface HelloService {
     String sayHello(String name);
-} 
\ No newline at end of file
+    
+    // 异步方法: 客户端代理直接返回future, 不阻塞调用线程
+    CompletableFuture<String> sayHelloAsync(String name);
+}
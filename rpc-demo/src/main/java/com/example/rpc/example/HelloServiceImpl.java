@@ -1,8 +1,15 @@
 package com.example.rpc.example;
 
+import java.util.concurrent.CompletableFuture;
+
 public class HelloServiceImpl implements HelloService {
     @Override
     public String sayHello(String name) {
         return "Hello, " + name;
     }
-} 
\ No newline at end of file
+    
+    @Override
+    public CompletableFuture<String> sayHelloAsync(String name) {
+        return CompletableFuture.completedFuture(sayHello(name));
+    }
+}
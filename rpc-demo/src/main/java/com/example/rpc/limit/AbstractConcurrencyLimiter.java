@@ -0,0 +1,67 @@
+package com.example.rpc.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 许可计数的公共实现, 子类只需根据样本调整limit
+ */
+public abstract class AbstractConcurrencyLimiter implements ConcurrencyLimiter {
+    private final AtomicInteger inflight = new AtomicInteger();
+    protected volatile int limit;
+    
+    protected AbstractConcurrencyLimiter(int initialLimit) {
+        if (initialLimit <= 0) {
+            throw new IllegalArgumentException("并发上限必须大于0: " + initialLimit);
+        }
+        this.limit = initialLimit;
+    }
+    
+    @Override
+    public boolean tryAcquire() {
+        for (;;) {
+            int current = inflight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    @Override
+    public void onSuccess(long rttNanos) {
+        onSample(rttNanos, false, inflight.getAndDecrement());
+    }
+    
+    @Override
+    public void onDropped() {
+        onSample(0, true, inflight.getAndDecrement());
+    }
+    
+    @Override
+    public void onIgnore() {
+        inflight.decrementAndGet();
+    }
+    
+    /**
+     * 根据一次调用的结果调整上限
+     * @param inflight 该调用结束前的并发数
+     */
+    protected abstract void onSample(long rttNanos, boolean dropped, int inflight);
+    
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+    
+    @Override
+    public int getInflight() {
+        return inflight.get();
+    }
+    
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[limit=" + limit + ", inflight=" + inflight.get() + "]";
+    }
+}
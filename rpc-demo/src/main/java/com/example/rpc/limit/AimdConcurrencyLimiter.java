@@ -0,0 +1,64 @@
+package com.example.rpc.limit;
+
+/**
+ * 基于RTT的AIMD自适应并发限制
+ * 以窗口内最小RTT作为无排队时的基准, 样本RTT超过基准的rttTolerance倍或调用超时时按backoffRatio乘性减小上限;
+ * 否则在并发接近上限时加1, 逐步探测服务端容量
+ */
+public class AimdConcurrencyLimiter extends AbstractConcurrencyLimiter {
+    // 每隔多少个样本重置RTT基准, 以跟随服务端延迟的长期变化
+    private static final int RTT_WINDOW = 1000;
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double rttTolerance;
+    private long minRttNanos = Long.MAX_VALUE;
+    private int samples;
+    
+    public AimdConcurrencyLimiter() {
+        this(20, 1, 1000, 0.9, 2.0);
+    }
+    
+    /**
+     * @param backoffRatio 拥塞时上限乘以该系数, 取值(0, 1)
+     * @param rttTolerance 样本RTT超过基准的多少倍视为排队
+     */
+    public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                  double backoffRatio, double rttTolerance) {
+        super(initialLimit);
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoffRatio必须在0和1之间: " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.rttTolerance = rttTolerance;
+    }
+    
+    @Override
+    protected synchronized void onSample(long rttNanos, boolean dropped, int inflight) {
+        if (dropped) {
+            decrease();
+            return;
+        }
+        
+        if (++samples >= RTT_WINDOW) {
+            samples = 0;
+            minRttNanos = Long.MAX_VALUE;
+        }
+        if (rttNanos < minRttNanos) {
+            minRttNanos = rttNanos;
+        }
+        if (rttNanos > minRttNanos * rttTolerance) {
+            decrease();
+        } else if (inflight * 2 >= limit && limit < maxLimit) {
+            // 只在上限被实际用到时增加, 避免空闲时上限无意义地膨胀
+            limit++;
+        }
+    }
+    
+    private void decrease() {
+        limit = Math.max(minLimit, Math.min(limit - 1, (int) (limit * backoffRatio)));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.rpc.limit;
+
+/**
+ * 客户端并发限制器
+ * 发送前获取许可, 调用结束后按结果归还许可并反馈RTT, 自适应实现据此调整上限
+ */
+public interface ConcurrencyLimiter {
+    
+    /**
+     * 尝试获取一个许可, 已达上限时立即返回false
+     */
+    boolean tryAcquire();
+    
+    /**
+     * 调用成功, 归还许可
+     * @param rttNanos 本次调用的往返时间
+     */
+    void onSuccess(long rttNanos);
+    
+    /**
+     * 调用超时或被拒绝, 归还许可, 视为拥塞信号
+     */
+    void onDropped();
+    
+    /**
+     * 调用因其他原因失败(如连接断开), 归还许可, 不影响上限
+     */
+    void onIgnore();
+    
+    /**
+     * 当前并发上限
+     */
+    int getLimit();
+    
+    /**
+     * 当前已获取的许可数
+     */
+    int getInflight();
+}
@@ -0,0 +1,15 @@
+package com.example.rpc.limit;
+
+/**
+ * 固定并发上限
+ */
+public class FixedConcurrencyLimiter extends AbstractConcurrencyLimiter {
+    
+    public FixedConcurrencyLimiter(int limit) {
+        super(limit);
+    }
+    
+    @Override
+    protected void onSample(long rttNanos, boolean dropped, int inflight) {
+    }
+}
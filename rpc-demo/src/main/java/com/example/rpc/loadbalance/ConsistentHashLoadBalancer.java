@@ -0,0 +1,97 @@
+package com.example.rpc.loadbalance;
+
+import com.example.rpc.client.Provider;
+import com.example.rpc.common.RpcRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一致性哈希
+ * 按指定位置的参数值选择提供者, 相同参数总是落到同一提供者; 提供者增减时只有少量参数需要迁移
+ */
+public class ConsistentHashLoadBalancer implements LoadBalancer {
+    // 每个提供者的虚拟节点数
+    private static final int VIRTUAL_NODES = 160;
+    
+    private final int argumentIndex;
+    // 服务名 -> 哈希环, 提供者列表变化时重建
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+    
+    public ConsistentHashLoadBalancer() {
+        this(0);
+    }
+    
+    /**
+     * @param argumentIndex 用于计算哈希的参数下标
+     */
+    public ConsistentHashLoadBalancer(int argumentIndex) {
+        this.argumentIndex = argumentIndex;
+    }
+    
+    @Override
+    public Provider select(List<Provider> providers, RpcRequest request) {
+        if (providers.size() == 1) {
+            return providers.get(0);
+        }
+        
+        Ring r = rings.get(request.getInterfaceName());
+        if (r == null || r.providers != providers) {
+            r = new Ring(providers);
+            rings.put(request.getInterfaceName(), r);
+        }
+        
+        Object[] args = request.getParameters();
+        Object key = args != null && args.length > argumentIndex
+                ? args[argumentIndex] : request.getMethodName();
+        return r.select(hash(keyString(key)));
+    }
+    
+    /**
+     * 数组按内容转为字符串, String.valueOf只会得到与内容无关的identity字符串
+     */
+    private static String keyString(Object key) {
+        if (key != null && key.getClass().isArray()) {
+            return Arrays.deepToString(new Object[]{key});
+        }
+        return String.valueOf(key);
+    }
+    
+    private static long hash(String key) {
+        // FNV-1a 64位, 再用murmur3的finalizer打散
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+    
+    private static class Ring {
+        private final List<Provider> providers;
+        private final TreeMap<Long, Provider> nodes = new TreeMap<>();
+        
+        Ring(List<Provider> providers) {
+            this.providers = providers;
+            for (Provider provider : providers) {
+                String address = provider.getAddress().toString();
+                for (int i = 0; i < VIRTUAL_NODES; i++) {
+                    nodes.put(hash(address + "#" + i), provider);
+                }
+            }
+        }
+        
+        Provider select(long hash) {
+            Map.Entry<Long, Provider> entry = nodes.ceilingEntry(hash);
+            return entry != null ? entry.getValue() : nodes.firstEntry().getValue();
+        }
+    }
+}
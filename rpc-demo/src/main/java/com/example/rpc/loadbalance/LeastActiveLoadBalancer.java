@@ -0,0 +1,39 @@
+package com.example.rpc.loadbalance;
+
+import com.example.rpc.client.Provider;
+import com.example.rpc.common.RpcRequest;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最少活跃调用
+ * 选择未完成请求数最少的提供者, 多个并列时随机选择一个
+ */
+public class LeastActiveLoadBalancer implements LoadBalancer {
+    
+    @Override
+    public Provider select(List<Provider> providers, RpcRequest request) {
+        int size = providers.size();
+        if (size == 1) {
+            return providers.get(0);
+        }
+        
+        Provider best = null;
+        int leastActive = Integer.MAX_VALUE;
+        int ties = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            Provider provider = providers.get(i);
+            int active = provider.getActiveCount();
+            if (active < leastActive) {
+                best = provider;
+                leastActive = active;
+                ties = 1;
+            } else if (active == leastActive && random.nextInt(++ties) == 0) {
+                // 蓄水池抽样, 并列者等概率被选中
+                best = provider;
+            }
+        }
+        return best;
+    }
+}
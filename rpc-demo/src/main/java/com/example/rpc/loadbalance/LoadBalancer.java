@@ -0,0 +1,16 @@
+package com.example.rpc.loadbalance;
+
+import com.example.rpc.client.Provider;
+import com.example.rpc.common.RpcRequest;
+import java.util.List;
+
+/**
+ * 客户端负载均衡策略
+ */
+public interface LoadBalancer {
+    
+    /**
+     * 从非空的提供者列表中为本次请求选择一个
+     */
+    Provider select(List<Provider> providers, RpcRequest request);
+}
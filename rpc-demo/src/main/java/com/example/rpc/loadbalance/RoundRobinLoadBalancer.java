@@ -0,0 +1,22 @@
+package com.example.rpc.loadbalance;
+
+import com.example.rpc.client.Provider;
+import com.example.rpc.common.RpcRequest;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 轮询
+ */
+public class RoundRobinLoadBalancer implements LoadBalancer {
+    private final AtomicInteger index = new AtomicInteger();
+    
+    @Override
+    public Provider select(List<Provider> providers, RpcRequest request) {
+        int size = providers.size();
+        if (size == 1) {
+            return providers.get(0);
+        }
+        return providers.get((index.getAndIncrement() & Integer.MAX_VALUE) % size);
+    }
+}
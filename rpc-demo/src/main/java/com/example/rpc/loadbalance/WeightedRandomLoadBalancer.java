@@ -0,0 +1,44 @@
+package com.example.rpc.loadbalance;
+
+import com.example.rpc.client.Provider;
+import com.example.rpc.common.RpcRequest;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按权重随机
+ */
+public class WeightedRandomLoadBalancer implements LoadBalancer {
+    
+    @Override
+    public Provider select(List<Provider> providers, RpcRequest request) {
+        int size = providers.size();
+        if (size == 1) {
+            return providers.get(0);
+        }
+        
+        int totalWeight = 0;
+        boolean sameWeight = true;
+        int firstWeight = providers.get(0).getWeight();
+        for (int i = 0; i < size; i++) {
+            int weight = providers.get(i).getWeight();
+            totalWeight += weight;
+            if (weight != firstWeight) {
+                sameWeight = false;
+            }
+        }
+        
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (sameWeight || totalWeight <= 0) {
+            return providers.get(random.nextInt(size));
+        }
+        int offset = random.nextInt(totalWeight);
+        for (int i = 0; i < size; i++) {
+            offset -= providers.get(i).getWeight();
+            if (offset < 0) {
+                return providers.get(i);
+            }
+        }
+        return providers.get(size - 1);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.rpc.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个服务方法的调用统计: 耗时、请求/响应大小分布、执行中调用数和失败数
+ */
+public class MethodMetrics {
+    // 耗时最大记录1分钟, 更长的按1分钟计
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long MAX_PAYLOAD_BYTES = Integer.MAX_VALUE;
+    
+    private final String interfaceName;
+    private final String methodName;
+    private final Histogram latency = new Histogram(MAX_LATENCY_NANOS);
+    private final Histogram requestSize = new Histogram(MAX_PAYLOAD_BYTES);
+    private final Histogram responseSize = new Histogram(MAX_PAYLOAD_BYTES);
+    private final LongAdder inflight = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    
+    MethodMetrics(String interfaceName, String methodName) {
+        this.interfaceName = interfaceName;
+        this.methodName = methodName;
+    }
+    
+    public void onStart() {
+        inflight.increment();
+    }
+    
+    /**
+     * @param requestBytes 请求帧的字节数, 未知时传0
+     * @param responseBytes 响应帧的字节数, 未知时传0
+     */
+    public void onComplete(long latencyNanos, boolean success, int requestBytes, int responseBytes) {
+        inflight.decrement();
+        latency.record(latencyNanos);
+        if (!success) {
+            errors.increment();
+        }
+        if (requestBytes > 0) {
+            requestSize.record(requestBytes);
+        }
+        if (responseBytes > 0) {
+            responseSize.record(responseBytes);
+        }
+    }
+    
+    public String getInterfaceName() {
+        return interfaceName;
+    }
+    
+    public String getMethodName() {
+        return methodName;
+    }
+    
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+    
+    public void reset() {
+        latency.reset();
+        requestSize.reset();
+        responseSize.reset();
+        errors.reset();
+    }
+    
+    /**
+     * 方法统计的只读副本, 耗时单位为纳秒, 大小单位为字节
+     */
+    public static final class Snapshot {
+        private final String interfaceName;
+        private final String methodName;
+        private final Histogram.Snapshot latency;
+        private final Histogram.Snapshot requestSize;
+        private final Histogram.Snapshot responseSize;
+        private final long inflight;
+        private final long errors;
+        
+        Snapshot(MethodMetrics metrics) {
+            this.interfaceName = metrics.interfaceName;
+            this.methodName = metrics.methodName;
+            this.latency = metrics.latency.snapshot();
+            this.requestSize = metrics.requestSize.snapshot();
+            this.responseSize = metrics.responseSize.snapshot();
+            this.inflight = metrics.inflight.sum();
+            this.errors = metrics.errors.sum();
+        }
+        
+        public String getInterfaceName() {
+            return interfaceName;
+        }
+        
+        public String getMethodName() {
+            return methodName;
+        }
+        
+        public long getCalls() {
+            return latency.getCount();
+        }
+        
+        public long getErrors() {
+            return errors;
+        }
+        
+        public long getInflight() {
+            return inflight;
+        }
+        
+        public Histogram.Snapshot getLatency() {
+            return latency;
+        }
+        
+        public Histogram.Snapshot getRequestSize() {
+            return requestSize;
+        }
+        
+        public Histogram.Snapshot getResponseSize() {
+            return responseSize;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s#%s calls=%d errors=%d inflight=%d latency(us) p50=%.1f p99=%.1f p999=%.1f max=%.1f"
+                            + " reqBytes p50=%d p99=%d respBytes p50=%d p99=%d",
+                    interfaceName, methodName, getCalls(), errors, inflight,
+                    latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getValueAtPercentile(99.9) / 1000.0, latency.getMax() / 1000.0,
+                    requestSize.getValueAtPercentile(50), requestSize.getValueAtPercentile(99),
+                    responseSize.getValueAtPercentile(50), responseSize.getValueAtPercentile(99));
+        }
+    }
+}
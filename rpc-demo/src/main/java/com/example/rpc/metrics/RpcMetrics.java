@@ -0,0 +1,115 @@
+package com.example.rpc.metrics;
+
+import com.example.rpc.common.RpcRequest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 按接口和方法汇总的调用统计, 客户端和服务端各持有一个
+ * 记录路径上只有两次ConcurrentHashMap查找, 方法首次出现时才创建统计对象
+ */
+public class RpcMetrics {
+    // 批量请求整体记录在该接口名和方法名下
+    public static final String BATCH = "batch";
+    // 服务端未注册的接口或方法统一记录在该接口名和方法名下
+    public static final String UNKNOWN = "unknown";
+    
+    private final String name;
+    // 接口名 -> 方法名 -> 统计; 分两层避免每次调用拼接key
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, MethodMetrics>> methods = new ConcurrentHashMap<>();
+    private ScheduledExecutorService dumpExecutor;
+    
+    /**
+     * @param name 输出时的前缀, 如client/server
+     */
+    public RpcMetrics(String name) {
+        this.name = name;
+    }
+    
+    public MethodMetrics forMethod(String interfaceName, String methodName) {
+        ConcurrentHashMap<String, MethodMetrics> byMethod = methods.get(interfaceName);
+        if (byMethod == null) {
+            byMethod = methods.computeIfAbsent(interfaceName, k -> new ConcurrentHashMap<>());
+        }
+        MethodMetrics metrics = byMethod.get(methodName);
+        if (metrics == null) {
+            metrics = byMethod.computeIfAbsent(methodName, k -> new MethodMetrics(interfaceName, k));
+        }
+        return metrics;
+    }
+    
+    public MethodMetrics forRequest(RpcRequest request) {
+        return request.isBatch()
+                ? forMethod(BATCH, BATCH)
+                : forMethod(request.getInterfaceName(), request.getMethodName());
+    }
+    
+    /**
+     * 所有方法当前统计的副本, 按接口名和方法名排序
+     */
+    public List<MethodMetrics.Snapshot> snapshot() {
+        List<MethodMetrics.Snapshot> snapshots = new ArrayList<>();
+        for (ConcurrentHashMap<String, MethodMetrics> byMethod : methods.values()) {
+            for (MethodMetrics metrics : byMethod.values()) {
+                snapshots.add(metrics.snapshot());
+            }
+        }
+        snapshots.sort(Comparator.comparing(MethodMetrics.Snapshot::getInterfaceName)
+                .thenComparing(MethodMetrics.Snapshot::getMethodName));
+        return snapshots;
+    }
+    
+    /**
+     * 清零耗时、大小和失败数, 执行中调用数不受影响
+     */
+    public void reset() {
+        for (ConcurrentHashMap<String, MethodMetrics> byMethod : methods.values()) {
+            for (MethodMetrics metrics : byMethod.values()) {
+                metrics.reset();
+            }
+        }
+    }
+    
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (MethodMetrics.Snapshot snapshot : snapshot()) {
+            sb.append('[').append(name).append("] ").append(snapshot).append('\n');
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * 定期输出统计, 重复调用时替换之前的输出任务
+     * @param reset 每次输出后是否清零, 为true时每次输出的是该周期内的分布
+     */
+    public synchronized void startPeriodicDump(long period, TimeUnit unit, boolean reset, Consumer<String> sink) {
+        stopPeriodicDump();
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rpc-metrics-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumpExecutor.scheduleAtFixedRate(() -> {
+            String report = report();
+            if (reset) {
+                reset();
+            }
+            if (!report.isEmpty()) {
+                sink.accept(report);
+            }
+        }, period, period, unit);
+    }
+    
+    public synchronized void stopPeriodicDump() {
+        if (dumpExecutor != null) {
+            dumpExecutor.shutdownNow();
+            dumpExecutor = null;
+        }
+    }
+}
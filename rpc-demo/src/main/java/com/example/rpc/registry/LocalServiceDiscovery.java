@@ -0,0 +1,59 @@
+package com.example.rpc.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 进程内的服务发现实现
+ * 适用于测试和单机演示, 生产环境可替换为基于ZooKeeper/Nacos的实现
+ */
+public class LocalServiceDiscovery implements ServiceDiscovery {
+    private final Map<String, List<ProviderAddress>> providers = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<List<ProviderAddress>>>> listeners = new ConcurrentHashMap<>();
+    
+    public synchronized void register(String serviceName, ProviderAddress address) {
+        List<ProviderAddress> current = new ArrayList<>(lookup(serviceName));
+        current.remove(address);
+        current.add(address);
+        update(serviceName, current);
+    }
+    
+    public synchronized void unregister(String serviceName, ProviderAddress address) {
+        List<ProviderAddress> current = new ArrayList<>(lookup(serviceName));
+        if (current.remove(address)) {
+            update(serviceName, current);
+        }
+    }
+    
+    @Override
+    public List<ProviderAddress> lookup(String serviceName) {
+        return providers.getOrDefault(serviceName, Collections.emptyList());
+    }
+    
+    @Override
+    public void subscribe(String serviceName, Consumer<List<ProviderAddress>> listener) {
+        listeners.computeIfAbsent(serviceName, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+    
+    @Override
+    public void unsubscribe(String serviceName, Consumer<List<ProviderAddress>> listener) {
+        List<Consumer<List<ProviderAddress>>> list = listeners.get(serviceName);
+        if (list != null) {
+            list.remove(listener);
+        }
+    }
+    
+    private void update(String serviceName, List<ProviderAddress> addresses) {
+        List<ProviderAddress> snapshot = Collections.unmodifiableList(addresses);
+        providers.put(serviceName, snapshot);
+        for (Consumer<List<ProviderAddress>> listener
+                : listeners.getOrDefault(serviceName, Collections.emptyList())) {
+            listener.accept(snapshot);
+        }
+    }
+}
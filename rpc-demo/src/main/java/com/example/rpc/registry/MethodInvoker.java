@@ -0,0 +1,87 @@
+package com.example.rpc.registry;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 预编译的方法调用器
+ * 注册时将Method转换为绑定了服务实例的MethodHandle, 签名统一为(Object[])Object,
+ * 调用时无需再做反射查找和访问检查
+ */
+public class MethodInvoker {
+    private static final Object[] EMPTY_ARGS = new Object[0];
+    // 基本类型 -> 包装类型, 按参数值匹配时使用
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<>();
+    
+    static {
+        WRAPPERS.put(int.class, Integer.class);
+        WRAPPERS.put(long.class, Long.class);
+        WRAPPERS.put(boolean.class, Boolean.class);
+        WRAPPERS.put(double.class, Double.class);
+        WRAPPERS.put(float.class, Float.class);
+        WRAPPERS.put(short.class, Short.class);
+        WRAPPERS.put(byte.class, Byte.class);
+        WRAPPERS.put(char.class, Character.class);
+    }
+    
+    private final Method method;
+    private final Class<?>[] parameterTypes;
+    private final MethodHandle handle;
+    
+    MethodInvoker(Object service, Method method) throws IllegalAccessException {
+        this.method = method;
+        this.parameterTypes = method.getParameterTypes();
+        // 实现类可能不是public的, 关闭访问检查
+        method.setAccessible(true);
+        MethodHandle mh = MethodHandles.lookup().unreflect(method).bindTo(service);
+        this.handle = mh.asType(mh.type().generic())
+                .asSpreader(Object[].class, parameterTypes.length);
+    }
+    
+    public Object invoke(Object[] args) throws Throwable {
+        return handle.invokeExact(args == null ? EMPTY_ARGS : args);
+    }
+    
+    public Method getMethod() {
+        return method;
+    }
+    
+    boolean matches(Class<?>[] types) {
+        if (types == null) {
+            return parameterTypes.length == 0;
+        }
+        if (types.length != parameterTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] != parameterTypes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 参数值能否传给该方法: 个数相同, 且每个值为null(非基本类型参数)或可赋值给对应参数类型
+     */
+    boolean accepts(Object[] args) {
+        int count = args == null ? 0 : args.length;
+        if (count != parameterTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            Class<?> type = parameterTypes[i];
+            if (args[i] == null) {
+                if (type.isPrimitive()) {
+                    return false;
+                }
+            } else if (!(type.isPrimitive() ? WRAPPERS.get(type) : type).isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.rpc.registry;
+
+/**
+ * 服务提供者地址
+ * 相等性只比较host和port, 权重变化视为同一提供者的属性更新
+ */
+public class ProviderAddress {
+    public static final int DEFAULT_WEIGHT = 100;
+    
+    private final String host;
+    private final int port;
+    private final int weight;
+    
+    public ProviderAddress(String host, int port) {
+        this(host, port, DEFAULT_WEIGHT);
+    }
+    
+    public ProviderAddress(String host, int port, int weight) {
+        this.host = host;
+        this.port = port;
+        this.weight = weight;
+    }
+    
+    public String getHost() {
+        return host;
+    }
+    
+    public int getPort() {
+        return port;
+    }
+    
+    public int getWeight() {
+        return weight;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProviderAddress)) {
+            return false;
+        }
+        ProviderAddress that = (ProviderAddress) o;
+        return port == that.port && host.equals(that.host);
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * host.hashCode() + port;
+    }
+    
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
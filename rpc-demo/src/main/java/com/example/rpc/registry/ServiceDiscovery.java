@@ -0,0 +1,26 @@
+package com.example.rpc.registry;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 服务发现
+ * 客户端通过它把服务名解析为提供者地址列表, 并在列表变化时收到推送
+ */
+public interface ServiceDiscovery {
+    
+    /**
+     * 查询服务当前的提供者列表
+     */
+    List<ProviderAddress> lookup(String serviceName);
+    
+    /**
+     * 订阅服务的提供者变化, 每次变化推送完整的最新列表
+     */
+    void subscribe(String serviceName, Consumer<List<ProviderAddress>> listener);
+    
+    /**
+     * 取消subscribe注册的监听器
+     */
+    void unsubscribe(String serviceName, Consumer<List<ProviderAddress>> listener);
+}
@@ -0,0 +1,79 @@
+package com.example.rpc.registry;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个服务的分发表
+ * 方法名 -> 该名称下所有重载的调用器, 按参数类型精确匹配
+ */
+public class ServiceInvoker {
+    private final Object service;
+    private final Map<String, MethodInvoker[]> invokers = new HashMap<>();
+    
+    public ServiceInvoker(Object service) {
+        this.service = service;
+        
+        Map<String, List<MethodInvoker>> grouped = new HashMap<>();
+        for (Method method : service.getClass().getMethods()) {
+            if (method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            try {
+                grouped.computeIfAbsent(method.getName(), k -> new ArrayList<>())
+                        .add(new MethodInvoker(service, method));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("无法访问方法: " + method, e);
+            }
+        }
+        for (Map.Entry<String, List<MethodInvoker>> entry : grouped.entrySet()) {
+            invokers.put(entry.getKey(), entry.getValue().toArray(new MethodInvoker[0]));
+        }
+    }
+    
+    public Object getService() {
+        return service;
+    }
+    
+    public boolean hasMethod(String methodName) {
+        return invokers.containsKey(methodName);
+    }
+    
+    public MethodInvoker getInvoker(String methodName, Class<?>[] parameterTypes) {
+        MethodInvoker[] candidates = invokers.get(methodName);
+        if (candidates != null) {
+            for (MethodInvoker invoker : candidates) {
+                if (invoker.matches(parameterTypes)) {
+                    return invoker;
+                }
+            }
+        }
+        throw new RuntimeException("方法未找到: " + methodName);
+    }
+    
+    /**
+     * 按参数值匹配重载, 用于不携带参数类型的泛化调用; 基本类型参数接受对应的包装类型
+     */
+    public MethodInvoker getInvoker(String methodName, Object[] args) {
+        MethodInvoker[] candidates = invokers.get(methodName);
+        MethodInvoker found = null;
+        if (candidates != null) {
+            for (MethodInvoker invoker : candidates) {
+                if (!invoker.accepts(args)) {
+                    continue;
+                }
+                if (found != null) {
+                    throw new RuntimeException("方法重载有歧义, 需指定参数类型: " + methodName);
+                }
+                found = invoker;
+            }
+        }
+        if (found == null) {
+            throw new RuntimeException("方法未找到: " + methodName);
+        }
+        return found;
+    }
+}
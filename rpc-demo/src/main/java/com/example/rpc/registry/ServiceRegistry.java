@@ -4,22 +4,49 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class ServiceRegistry {
-    private final Map<String, Object> serviceMap = new ConcurrentHashMap<>();
+    private final Map<String, ServiceInvoker> serviceMap = new ConcurrentHashMap<>();
     
     public void register(String serviceName, Object serviceImpl) {
-        serviceMap.put(serviceName, serviceImpl);
+        // 注册时预编译分发表, 请求处理时不再反射查找方法
+        serviceMap.put(serviceName, new ServiceInvoker(serviceImpl));
         System.out.println("注册服务: " + serviceName);
     }
     
     public Object getService(String serviceName) {
-        Object service = serviceMap.get(serviceName);
-        if (service == null) {
+        return getServiceInvoker(serviceName).getService();
+    }
+    
+    public ServiceInvoker getServiceInvoker(String serviceName) {
+        ServiceInvoker invoker = serviceMap.get(serviceName);
+        if (invoker == null) {
             throw new RuntimeException("服务未找到: " + serviceName);
         }
-        return service;
+        return invoker;
+    }
+    
+    public MethodInvoker getInvoker(String serviceName, String methodName, Class<?>[] parameterTypes) {
+        return getServiceInvoker(serviceName).getInvoker(methodName, parameterTypes);
+    }
+    
+    /**
+     * @param parameterTypes 为null时按参数值匹配重载(泛化调用)
+     */
+    public MethodInvoker getInvoker(String serviceName, String methodName, Class<?>[] parameterTypes, Object[] args) {
+        ServiceInvoker serviceInvoker = getServiceInvoker(serviceName);
+        return parameterTypes == null
+                ? serviceInvoker.getInvoker(methodName, args)
+                : serviceInvoker.getInvoker(methodName, parameterTypes);
     }
     
     public boolean hasService(String serviceName) {
         return serviceMap.containsKey(serviceName);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 服务已注册且有该名称的方法(不区分重载)
+     */
+    public boolean hasMethod(String serviceName, String methodName) {
+        ServiceInvoker invoker = serviceName == null ? null : serviceMap.get(serviceName);
+        return invoker != null && invoker.hasMethod(methodName);
+    }
+}
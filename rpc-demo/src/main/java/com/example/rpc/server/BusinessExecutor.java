@@ -0,0 +1,159 @@
+package com.example.rpc.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 业务执行器
+ * 将服务方法调用从Netty I/O线程上卸载, 并统计排队深度与拒绝次数
+ */
+public class BusinessExecutor {
+    private final DispatchMode mode;
+    private final RejectPolicy rejectPolicy;
+    private final ExecutorService executor;
+    
+    // 已提交但尚未开始执行的任务数
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    // 正在执行的任务数
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    
+    private BusinessExecutor(DispatchMode mode, RejectPolicy rejectPolicy, ExecutorService executor) {
+        this.mode = mode;
+        this.rejectPolicy = rejectPolicy;
+        this.executor = executor;
+    }
+    
+    public static BusinessExecutor inline() {
+        return new BusinessExecutor(DispatchMode.INLINE, RejectPolicy.CALLER_RUNS, null);
+    }
+    
+    /**
+     * @param threads 业务线程数
+     * @param queueCapacity 等待队列容量
+     * @param rejectPolicy 队列满时的处理策略
+     */
+    public static BusinessExecutor pool(int threads, int queueCapacity, RejectPolicy rejectPolicy) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new NamedThreadFactory("rpc-business-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        return new BusinessExecutor(DispatchMode.POOL, rejectPolicy, pool);
+    }
+    
+    public static BusinessExecutor pool() {
+        return pool(Runtime.getRuntime().availableProcessors() * 2, 1024, RejectPolicy.ABORT);
+    }
+    
+    public static BusinessExecutor virtual() {
+        ExecutorService executor;
+        try {
+            // 通过反射调用, 保持对JDK 8的编译兼容
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            executor = (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("当前JDK不支持虚拟线程, 退化为按需创建的平台线程");
+            executor = Executors.newCachedThreadPool(new NamedThreadFactory("rpc-request-"));
+        }
+        return new BusinessExecutor(DispatchMode.VIRTUAL, RejectPolicy.ABORT, executor);
+    }
+    
+    /**
+     * 提交任务
+     * @return false表示任务被拒绝, 调用方负责返回错误响应
+     */
+    public boolean execute(Runnable task) {
+        if (executor == null) {
+            runTask(task);
+            return true;
+        }
+        
+        queueDepth.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                queueDepth.decrementAndGet();
+                runTask(task);
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            queueDepth.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            if (rejectPolicy == RejectPolicy.CALLER_RUNS) {
+                runTask(task);
+                return true;
+            }
+            return false;
+        }
+    }
+    
+    private void runTask(Runnable task) {
+        activeCount.incrementAndGet();
+        try {
+            task.run();
+        } finally {
+            activeCount.decrementAndGet();
+            completedCount.incrementAndGet();
+        }
+    }
+    
+    public DispatchMode getMode() {
+        return mode;
+    }
+    
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+    
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+    
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+    
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+    
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "BusinessExecutor{mode=" + mode
+                + ", queueDepth=" + getQueueDepth()
+                + ", active=" + getActiveCount()
+                + ", rejected=" + getRejectedCount()
+                + ", completed=" + getCompletedCount() + "}";
+    }
+    
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger index = new AtomicInteger();
+        
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+        
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.rpc.server;
+
+/**
+ * 服务端业务方法的执行模式
+ */
+public enum DispatchMode {
+    // 直接在Netty I/O线程上执行, 仅适用于极快的非阻塞方法
+    INLINE,
+    // 有界业务线程池, 队列满时按拒绝策略处理
+    POOL,
+    // 每个请求一个虚拟线程(JDK 21+), 低版本JDK退化为按需创建的平台线程
+    VIRTUAL
+}
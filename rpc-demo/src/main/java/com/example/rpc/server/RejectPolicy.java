@@ -0,0 +1,11 @@
+package com.example.rpc.server;
+
+/**
+ * 业务线程池饱和时的拒绝策略
+ */
+public enum RejectPolicy {
+    // 立即向客户端返回错误响应
+    ABORT,
+    // 退回到I/O线程上执行, 以牺牲该连接所在EventLoop为代价保证请求被处理
+    CALLER_RUNS
+}
@@ -0,0 +1,11 @@
+package com.example.rpc.server;
+
+/**
+ * 同一连接上响应的返回顺序
+ */
+public enum ResponseOrdering {
+    // 请求完成即返回, 快请求不被慢请求阻塞; 客户端按请求ID匹配响应
+    UNORDERED,
+    // 请求仍并发执行, 但响应按请求到达顺序返回, 先完成的响应在服务端暂存
+    ORDERED
+}
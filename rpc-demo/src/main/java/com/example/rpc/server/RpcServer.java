@@ -3,53 +3,183 @@ package com.example.rpc.server;
 import com.example.rpc.codec.RpcDecoder;
 import com.example.rpc.codec.RpcEncoder;
 import com.example.rpc.common.RpcRequest;
+import com.example.rpc.metrics.RpcMetrics;
 import com.example.rpc.registry.ServiceRegistry;
+import com.example.rpc.transport.FlushBatchingHandler;
+import com.example.rpc.transport.Transport;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class RpcServer {
     private final int port;
     private final ServiceRegistry serviceRegistry;
-    private final EventLoopGroup bossGroup;
-    private final EventLoopGroup workerGroup;
+    private final BusinessExecutor businessExecutor;
+    // 按方法统计的处理耗时、请求/响应大小、执行中调用数和失败数
+    private final RpcMetrics metrics = new RpcMetrics("server");
+    private Transport transport = Transport.auto();
+    // I/O线程数, 0表示使用Netty默认值
+    private int ioThreads;
+    // 绑定同一端口的acceptor数, 大于1时需要SO_REUSEPORT
+    private int acceptors = 1;
+    private volatile EventLoopGroup bossGroup;
+    private volatile EventLoopGroup workerGroup;
+    // 每个连接的并发上限(0表示不限制)和响应顺序
+    private int maxConcurrentPerConnection;
+    private ResponseOrdering ordering = ResponseOrdering.UNORDERED;
+    private int streamChunkSize = RpcServerHandler.DEFAULT_STREAM_CHUNK_SIZE;
+    // flush合并, flushBatchSize为0表示关闭
+    private int flushBatchSize;
+    private long flushMaxDelayMicros;
+    // 响应压缩阈值, 0表示关闭
+    private int compressionThreshold;
     
     public RpcServer(int port, ServiceRegistry serviceRegistry) {
+        this(port, serviceRegistry, BusinessExecutor.pool());
+    }
+    
+    /**
+     * @param businessExecutor 业务方法执行器, 见BusinessExecutor.inline()/pool()/virtual()
+     */
+    public RpcServer(int port, ServiceRegistry serviceRegistry, BusinessExecutor businessExecutor) {
         this.port = port;
         this.serviceRegistry = serviceRegistry;
-        this.bossGroup = new NioEventLoopGroup(1);
-        this.workerGroup = new NioEventLoopGroup();
+        this.businessExecutor = businessExecutor;
     }
     
     public void start() throws InterruptedException {
+        RpcServerHandler serverHandler = new RpcServerHandler(
+                serviceRegistry, businessExecutor, maxConcurrentPerConnection, ordering);
+        serverHandler.setStreamChunkSize(streamChunkSize);
+        serverHandler.setMetrics(metrics);
+        // 不支持SO_REUSEPORT时退化为单个acceptor
+        int bindCount = acceptors > 1 && transport.isReusePortSupported() ? acceptors : 1;
+        bossGroup = transport.newEventLoopGroup(bindCount, "rpc-boss");
+        workerGroup = transport.newEventLoopGroup(ioThreads, "rpc-worker");
         try {
             ServerBootstrap bootstrap = new ServerBootstrap();
             bootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+                    .channel(transport.getServerChannelClass())
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel ch) {
                             ChannelPipeline pipeline = ch.pipeline();
+                            if (flushBatchSize > 0) {
+                                pipeline.addLast(new FlushBatchingHandler(
+                                        flushBatchSize, flushMaxDelayMicros, TimeUnit.MICROSECONDS));
+                            }
                             pipeline.addLast(new RpcDecoder(RpcRequest.class));
-                            pipeline.addLast(new RpcEncoder());
-                            pipeline.addLast(new RpcServerHandler(serviceRegistry));
+                            pipeline.addLast(new RpcEncoder(null, null, compressionThreshold));
+                            pipeline.addLast(serverHandler);
                         }
                     })
                     .option(ChannelOption.SO_BACKLOG, 128)
                     .childOption(ChannelOption.SO_KEEPALIVE, true);
             
-            ChannelFuture future = bootstrap.bind(port).sync();
-            System.out.println("RPC服务器启动在端口: " + port);
-            future.channel().closeFuture().sync();
+            if (bindCount > 1) {
+                transport.enableReusePort(bootstrap);
+            }
+            
+            // 每次bind产生一个监听channel, 注册到boss group中不同的EventLoop上, 由内核在它们之间分发新连接
+            List<Channel> serverChannels = new ArrayList<>(bindCount);
+            for (int i = 0; i < bindCount; i++) {
+                serverChannels.add(bootstrap.bind(port).sync().channel());
+            }
+            System.out.println("RPC服务器启动在端口: " + port + ", 传输: " + transport + ", acceptor数: " + bindCount
+                    + ", 执行模式: " + businessExecutor.getMode());
+            for (Channel channel : serverChannels) {
+                channel.closeFuture().sync();
+            }
         } finally {
             shutdown();
         }
     }
     
+    /**
+     * 开启响应flush合并, 需在start之前调用
+     * @param maxBatchSize 最多合并多少个响应后强制flush
+     * @param maxDelayMicros 响应最多被推迟多久, 0表示推迟到当前EventLoop任务处理完
+     */
+    public void enableFlushBatching(int maxBatchSize, long maxDelayMicros) {
+        this.flushBatchSize = maxBatchSize;
+        this.flushMaxDelayMicros = maxDelayMicros;
+    }
+    
+    /**
+     * 配置单个连接上的请求流水线, 需在start之前调用
+     * 默认同一连接上的请求并发执行、完成即返回, 慢请求不会阻塞其后的快请求
+     * @param maxConcurrent 每个连接同时执行的请求数上限, 超出时暂停读取该连接, 0表示不限制, 1表示串行执行
+     * @param ordering 响应顺序, ORDERED时按请求到达顺序返回
+     */
+    public void setConnectionConcurrency(int maxConcurrent, ResponseOrdering ordering) {
+        this.maxConcurrentPerConnection = maxConcurrent;
+        this.ordering = ordering;
+    }
+    
+    /**
+     * 流式调用(服务方法返回Iterator)每块的元素数, 需在start之前调用
+     */
+    public void setStreamChunkSize(int streamChunkSize) {
+        this.streamChunkSize = streamChunkSize;
+    }
+    
+    /**
+     * 开启响应压缩, 需在start之前调用
+     * 仅对声明了可接受压缩算法的客户端生效, 按客户端声明的算法压缩; 压缩的请求总是可以解码
+     * @param threshold 响应体达到该字节数才压缩
+     */
+    public void enableCompression(int threshold) {
+        this.compressionThreshold = threshold;
+    }
+    
+    /**
+     * 指定传输实现, 需在start之前调用; 默认Transport.auto()
+     */
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+    
+    /**
+     * I/O(worker)线程数, 需在start之前调用; 0表示使用Netty默认值
+     */
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+    
+    /**
+     * 以SO_REUSEPORT将同一端口绑定多次, 每个监听channel一个accept线程, 需在start之前调用
+     * 传输实现不支持SO_REUSEPORT时忽略, 仍使用单个acceptor
+     */
+    public void setAcceptors(int acceptors) {
+        this.acceptors = acceptors;
+    }
+    
+    public Transport getTransport() {
+        return transport;
+    }
+    
+    /**
+     * 按接口和方法汇总的调用统计, 耗时从收到请求到写出响应(含排队)
+     */
+    public RpcMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public BusinessExecutor getBusinessExecutor() {
+        return businessExecutor;
+    }
+    
     public void shutdown() {
-        bossGroup.shutdownGracefully();
-        workerGroup.shutdownGracefully();
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully();
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully();
+        }
+        businessExecutor.shutdown();
+        metrics.stopPeriodicDump();
     }
 } 
\ No newline at end of file
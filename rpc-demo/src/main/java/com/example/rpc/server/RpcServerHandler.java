@@ -2,34 +2,377 @@ package com.example.rpc.server;
 
 import com.example.rpc.common.RpcRequest;
 import com.example.rpc.common.RpcResponse;
+import com.example.rpc.metrics.MethodMetrics;
+import com.example.rpc.metrics.RpcMetrics;
+import com.example.rpc.registry.MethodInvoker;
 import com.example.rpc.registry.ServiceRegistry;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-import java.lang.reflect.Method;
+import io.netty.util.AttributeKey;
+import io.netty.util.collection.LongObjectHashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+@ChannelHandler.Sharable
 public class RpcServerHandler extends SimpleChannelInboundHandler<RpcRequest> {
+    private static final AttributeKey<ConnectionState> STATE_KEY = AttributeKey.valueOf("rpc.connectionState");
+    private static final AttributeKey<LongObjectHashMap<ServerStream>> STREAMS_KEY = AttributeKey.valueOf("rpc.streams");
+    // 流式调用每块的默认元素数
+    public static final int DEFAULT_STREAM_CHUNK_SIZE = 256;
+    
     private final ServiceRegistry serviceRegistry;
+    private final BusinessExecutor businessExecutor;
+    // 每个连接同时执行的请求数上限, 0表示不限制
+    private final int maxConcurrentPerConnection;
+    private final ResponseOrdering ordering;
+    private volatile int streamChunkSize = DEFAULT_STREAM_CHUNK_SIZE;
+    // 为null时不记录统计
+    private volatile RpcMetrics metrics;
     
     public RpcServerHandler(ServiceRegistry serviceRegistry) {
+        this(serviceRegistry, BusinessExecutor.inline());
+    }
+    
+    public RpcServerHandler(ServiceRegistry serviceRegistry, BusinessExecutor businessExecutor) {
+        this(serviceRegistry, businessExecutor, 0, ResponseOrdering.UNORDERED);
+    }
+    
+    /**
+     * @param maxConcurrentPerConnection 每个连接同时执行的请求数上限, 超出的请求在连接上排队并暂停读取, 0表示不限制
+     * @param ordering 同一连接上响应的返回顺序
+     */
+    public RpcServerHandler(ServiceRegistry serviceRegistry, BusinessExecutor businessExecutor,
+                            int maxConcurrentPerConnection, ResponseOrdering ordering) {
         this.serviceRegistry = serviceRegistry;
+        this.businessExecutor = businessExecutor;
+        this.maxConcurrentPerConnection = maxConcurrentPerConnection;
+        this.ordering = ordering;
+    }
+    
+    /**
+     * 流式调用每块的元素数
+     */
+    public void setStreamChunkSize(int streamChunkSize) {
+        this.streamChunkSize = streamChunkSize;
+    }
+    
+    /**
+     * 按方法记录耗时(收到请求到写出响应)、请求/响应大小、执行中调用数和失败数, 为null时不记录
+     */
+    public void setMetrics(RpcMetrics metrics) {
+        this.metrics = metrics;
     }
     
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RpcRequest request) {
-        RpcResponse response;
+        // 流控帧直接在EventLoop上处理, 不占用并发名额
+        if (request.isControl()) {
+            onCredit(ctx, request);
+            return;
+        }
+        // 流式请求在分发之前登记, 服务方法返回之前到达的额度和取消不会丢失
+        if (request.getStreamCredit() > 0) {
+            registerStream(ctx, request);
+        }
+        RpcMetrics m = metrics;
+        if (m != null) {
+            request.setReceivedNanos(System.nanoTime());
+            metricsFor(m, request).onStart();
+        }
+        
+        // 不限并发且不要求顺序时无需连接状态, 请求完成即直接写回
+        if (maxConcurrentPerConnection <= 0 && ordering == ResponseOrdering.UNORDERED) {
+            dispatch(ctx, null, request, 0);
+            return;
+        }
+        
+        ConnectionState state = ctx.channel().attr(STATE_KEY).get();
+        if (state == null) {
+            state = new ConnectionState();
+            ctx.channel().attr(STATE_KEY).set(state);
+        }
+        long sequence = state.nextSequence++;
+        if (maxConcurrentPerConnection > 0 && state.inflight >= maxConcurrentPerConnection) {
+            // 已达并发上限: 暂停读取, 已解码出的请求排队等待
+            state.backlog.add(new QueuedRequest(request, sequence));
+            ctx.channel().config().setAutoRead(false);
+            return;
+        }
+        state.inflight++;
+        dispatch(ctx, state, request, sequence);
+    }
+    
+    private void dispatch(ChannelHandlerContext ctx, ConnectionState state, RpcRequest request, long sequence) {
+        boolean accepted = businessExecutor.execute(() -> handle(ctx, state, request, sequence));
+        if (!accepted) {
+            unregisterStream(ctx, request);
+            respond(ctx, state, sequence, request, RpcResponse.error(request.getRequestId(), "服务端繁忙, 请求被拒绝"));
+        }
+    }
+    
+    private void handle(ChannelHandlerContext ctx, ConnectionState state, RpcRequest request, long sequence) {
+        if (request.isBatch()) {
+            handleBatch(ctx, state, request, sequence);
+            return;
+        }
+        
+        Object result;
         try {
-            Object service = serviceRegistry.getService(request.getInterfaceName());
-            Method method = service.getClass().getMethod(
-                request.getMethodName(), 
-                request.getParameterTypes()
-            );
-            Object result = method.invoke(service, request.getParameters());
-            response = RpcResponse.success(request.getRequestId(), result);
-        } catch (Exception e) {
-            response = RpcResponse.error(request.getRequestId(), e.getMessage());
+            result = lookup(request).invoke(request.getParameters());
+            // 返回迭代器的方法: 客户端请求流式接收时分块发送, 否则一次性取完
+            if (result instanceof Iterator) {
+                if (request.getStreamCredit() > 0) {
+                    startStream(ctx, state, sequence, request, (Iterator<?>) result);
+                    return;
+                }
+                result = drain((Iterator<?>) result);
+            }
+        } catch (Throwable e) {
+            unregisterStream(ctx, request);
+            respond(ctx, state, sequence, request, RpcResponse.error(request.getRequestId(), e.getMessage()));
+            return;
+        }
+        // 请求了流式接收但方法没有返回迭代器, 按普通调用响应
+        unregisterStream(ctx, request);
+        
+        // 异步服务方法: 等future完成后再响应, 不占用业务线程
+        if (result instanceof CompletableFuture) {
+            ((CompletableFuture<?>) result).whenComplete((value, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    respond(ctx, state, sequence, request, RpcResponse.error(request.getRequestId(), cause.getMessage()));
+                } else {
+                    respond(ctx, state, sequence, request, RpcResponse.success(request.getRequestId(), value));
+                }
+            });
+            return;
+        }
+        respond(ctx, state, sequence, request, RpcResponse.success(request.getRequestId(), result));
+    }
+    
+    private MethodInvoker lookup(RpcRequest request) {
+        return serviceRegistry.getInvoker(
+            request.getInterfaceName(),
+            request.getMethodName(),
+            request.getParameterTypes(),
+            request.getParameters()
+        );
+    }
+    
+    /**
+     * 批量请求整体占用一个并发名额, 全部子调用完成后返回一个响应;
+     * 并行时除最后一个外的子调用提交给业务执行器, 顺序时前一个子调用(含异步方法)完成后才开始下一个
+     */
+    private void handleBatch(ChannelHandlerContext ctx, ConnectionState state, RpcRequest request, long sequence) {
+        List<RpcRequest> calls = request.getBatch();
+        List<CompletableFuture<RpcResponse>> results = new ArrayList<>(calls.size());
+        if (request.isParallel()) {
+            for (int i = 0; i < calls.size(); i++) {
+                RpcRequest call = calls.get(i);
+                if (i == calls.size() - 1) {
+                    results.add(invokeInBatch(call));
+                    break;
+                }
+                CompletableFuture<RpcResponse> result = new CompletableFuture<>();
+                boolean accepted = businessExecutor.execute(
+                        () -> invokeInBatch(call).thenAccept(result::complete));
+                if (!accepted) {
+                    result.complete(RpcResponse.error(0, "服务端繁忙, 请求被拒绝"));
+                }
+                results.add(result);
+            }
+        } else {
+            CompletableFuture<RpcResponse> previous = CompletableFuture.completedFuture(null);
+            for (RpcRequest call : calls) {
+                previous = previous.thenCompose(ignored -> invokeInBatch(call));
+                results.add(previous);
+            }
         }
         
-        ctx.writeAndFlush(response);
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+            List<RpcResponse> responses = new ArrayList<>(results.size());
+            for (CompletableFuture<RpcResponse> result : results) {
+                responses.add(result.join());
+            }
+            respond(ctx, state, sequence, request, RpcResponse.batch(request.getRequestId(), responses));
+        });
+    }
+    
+    /**
+     * 执行批量请求中的一个子调用, 返回的future总是正常完成, 失败记录在响应中;
+     * 返回迭代器的方法一次性取完, 子调用本身是批量请求时直接拒绝
+     */
+    private CompletableFuture<RpcResponse> invokeInBatch(RpcRequest call) {
+        if (call.isBatch()) {
+            return CompletableFuture.completedFuture(RpcResponse.error(0, "批量请求不能嵌套"));
+        }
+        Object result;
+        try {
+            result = lookup(call).invoke(call.getParameters());
+            if (result instanceof Iterator) {
+                result = drain((Iterator<?>) result);
+            }
+        } catch (Throwable e) {
+            return CompletableFuture.completedFuture(RpcResponse.error(0, e.getMessage()));
+        }
+        if (result instanceof CompletableFuture) {
+            return ((CompletableFuture<?>) result).handle((value, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    return RpcResponse.error(0, cause.getMessage());
+                }
+                return RpcResponse.success(0, value);
+            });
+        }
+        return CompletableFuture.completedFuture(RpcResponse.success(0, result));
+    }
+    
+    /**
+     * 在EventLoop上收到流式请求时登记, 初始额度随请求到达
+     */
+    private void registerStream(ChannelHandlerContext ctx, RpcRequest request) {
+        LongObjectHashMap<ServerStream> streams = ctx.channel().attr(STREAMS_KEY).get();
+        if (streams == null) {
+            streams = new LongObjectHashMap<>();
+            ctx.channel().attr(STREAMS_KEY).set(streams);
+        }
+        ServerStream stream = new ServerStream(ctx, request.getRequestId(), streamChunkSize, businessExecutor);
+        streams.put(request.getRequestId(), stream);
+        stream.addCredit(request.getStreamCredit());
+    }
+    
+    private void unregisterStream(ChannelHandlerContext ctx, RpcRequest request) {
+        if (request.getStreamCredit() <= 0) {
+            return;
+        }
+        ctx.executor().execute(() -> {
+            LongObjectHashMap<ServerStream> streams = ctx.channel().attr(STREAMS_KEY).get();
+            if (streams != null) {
+                streams.remove(request.getRequestId());
+            }
+        });
+    }
+    
+    private void startStream(ChannelHandlerContext ctx, ConnectionState state, long sequence,
+                             RpcRequest request, Iterator<?> iterator) {
+        long requestId = request.getRequestId();
+        ctx.executor().execute(() -> {
+            LongObjectHashMap<ServerStream> streams = ctx.channel().attr(STREAMS_KEY).get();
+            ServerStream stream = streams == null ? null : streams.get(requestId);
+            if (stream == null) {
+                // 连接已关闭, 登记已被清除
+                ServerStream.closeIterator(iterator);
+                return;
+            }
+            stream.start(iterator, response -> {
+                streams.remove(requestId);
+                respond(ctx, state, sequence, request, response);
+            });
+        });
+    }
+    
+    private void onCredit(ChannelHandlerContext ctx, RpcRequest control) {
+        LongObjectHashMap<ServerStream> streams = ctx.channel().attr(STREAMS_KEY).get();
+        ServerStream stream = streams == null ? null : streams.get(control.getRequestId());
+        if (stream == null) {
+            return;
+        }
+        if (control.getStreamCredit() > 0) {
+            stream.addCredit(control.getStreamCredit());
+        } else {
+            stream.cancel();
+        }
+    }
+    
+    private static List<Object> drain(Iterator<?> iterator) {
+        List<Object> items = new ArrayList<>();
+        while (iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        return items;
+    }
+    
+    private void respond(ChannelHandlerContext ctx, ConnectionState state, long sequence,
+                         RpcRequest request, RpcResponse response) {
+        if (state == null && metrics == null) {
+            ctx.writeAndFlush(response);
+        } else if (ctx.executor().inEventLoop()) {
+            complete(ctx, state, sequence, request, response);
+        } else {
+            // 连接状态只在EventLoop上修改; 统计需要在EventLoop上写出后才能取得响应大小
+            ctx.executor().execute(() -> complete(ctx, state, sequence, request, response));
+        }
+    }
+    
+    private void complete(ChannelHandlerContext ctx, ConnectionState state, long sequence,
+                          RpcRequest request, RpcResponse response) {
+        if (ordering == ResponseOrdering.UNORDERED) {
+            // 编码器位于本handler之前, 在EventLoop上写出时同步完成编码
+            ctx.writeAndFlush(response);
+            record(request, response);
+        } else {
+            // 按到达顺序写出: 暂存先完成的响应, 直到前面的请求全部完成
+            state.completed.put(sequence, new Completion(request, response));
+            Completion next;
+            while ((next = state.completed.remove(state.nextToWrite)) != null) {
+                ctx.write(next.response);
+                record(next.request, next.response);
+                state.nextToWrite++;
+            }
+            ctx.flush();
+        }
+        if (state == null) {
+            return;
+        }
+        
+        state.inflight--;
+        QueuedRequest queued = state.backlog.poll();
+        if (queued != null) {
+            state.inflight++;
+            dispatch(ctx, state, queued.request, queued.sequence);
+        } else if (!ctx.channel().config().isAutoRead()) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+    
+    private void record(RpcRequest request, RpcResponse response) {
+        RpcMetrics m = metrics;
+        // receivedNanos为0说明请求到达时未开启统计
+        if (m == null || request.getReceivedNanos() == 0) {
+            return;
+        }
+        MethodMetrics methodMetrics = metricsFor(m, request);
+        methodMetrics.onComplete(System.nanoTime() - request.getReceivedNanos(), response.isSuccess(),
+                request.getWireSize(), response.getWireSize());
+    }
+    
+    /**
+     * 只为已注册的方法分别统计, 客户端随意构造的接口名和方法名记在同一个UNKNOWN条目下, 统计对象的数量不由客户端决定
+     */
+    private MethodMetrics metricsFor(RpcMetrics m, RpcRequest request) {
+        if (!request.isBatch() && !serviceRegistry.hasMethod(request.getInterfaceName(), request.getMethodName())) {
+            return m.forMethod(RpcMetrics.UNKNOWN, RpcMetrics.UNKNOWN);
+        }
+        return m.forRequest(request);
+    }
+    
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        LongObjectHashMap<ServerStream> streams = ctx.channel().attr(STREAMS_KEY).get();
+        if (streams != null) {
+            for (ServerStream stream : streams.values()) {
+                stream.abort();
+            }
+            streams.clear();
+        }
+        super.channelInactive(ctx);
     }
     
     @Override
@@ -37,4 +380,40 @@ public class RpcServerHandler extends SimpleChannelInboundHandler<RpcRequest> {
         cause.printStackTrace();
         ctx.close();
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 单个连接上的请求状态, 只在连接的EventLoop上访问
+     */
+    private static final class ConnectionState {
+        // 按到达顺序分配的请求序号
+        long nextSequence;
+        // ORDERED模式下下一个应写出的响应序号
+        long nextToWrite;
+        // 正在执行的请求数
+        int inflight;
+        // 超出并发上限而排队的请求
+        final ArrayDeque<QueuedRequest> backlog = new ArrayDeque<>();
+        // ORDERED模式下已完成但尚未轮到写出的响应
+        final LongObjectHashMap<Completion> completed = new LongObjectHashMap<>();
+    }
+    
+    private static final class Completion {
+        final RpcRequest request;
+        final RpcResponse response;
+        
+        Completion(RpcRequest request, RpcResponse response) {
+            this.request = request;
+            this.response = response;
+        }
+    }
+    
+    private static final class QueuedRequest {
+        final RpcRequest request;
+        final long sequence;
+        
+        QueuedRequest(RpcRequest request, long sequence) {
+            this.request = request;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.rpc.server;
+
+import com.example.rpc.common.RpcResponse;
+import io.netty.channel.ChannelHandlerContext;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 服务端一次流式调用的发送状态
+ * 按客户端授予的额度逐块拉取结果迭代器, 每块一帧; 额度耗尽时暂停, 因此无论结果多大, 服务端只持有额度范围内的块
+ * 拉取迭代器在业务执行器上进行(迭代器可能阻塞, 如数据库游标), 额度和状态只在连接的EventLoop上修改
+ * 收到请求时即登记, 服务方法返回迭代器后才start; 在此之前到达的额度和取消都会保留
+ */
+final class ServerStream {
+    private final ChannelHandlerContext ctx;
+    private final long requestId;
+    private final int chunkSize;
+    private final BusinessExecutor executor;
+    // start之前为null
+    private Iterator<?> iterator;
+    // 流结束时回调, 参数为最终响应(成功、失败或取消); start之前为null
+    private Consumer<RpcResponse> onFinish;
+    private int credit;
+    private boolean producing;
+    private boolean finished;
+    // start之前收到的取消
+    private boolean cancelled;
+    
+    ServerStream(ChannelHandlerContext ctx, long requestId, int chunkSize, BusinessExecutor executor) {
+        this.ctx = ctx;
+        this.requestId = requestId;
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+    }
+    
+    /**
+     * 服务方法返回迭代器后开始发送
+     */
+    void start(Iterator<?> iterator, Consumer<RpcResponse> onFinish) {
+        this.iterator = iterator;
+        this.onFinish = onFinish;
+        if (finished) {
+            close();
+        } else if (cancelled) {
+            cancel();
+        } else {
+            produceIfPossible();
+        }
+    }
+    
+    void addCredit(int chunks) {
+        if (chunks <= 0) {
+            return;
+        }
+        // 饱和相加, 客户端授予过大或反复授予额度时不溢出为负数
+        credit = chunks > Integer.MAX_VALUE - credit ? Integer.MAX_VALUE : credit + chunks;
+        produceIfPossible();
+    }
+    
+    void cancel() {
+        if (onFinish == null) {
+            // 服务方法尚未返回, 等start时再结束, 保证最终响应在方法返回之后发出
+            cancelled = true;
+        } else if (!finished) {
+            finish(RpcResponse.error(requestId, "流式调用已取消"));
+        }
+    }
+    
+    /**
+     * 连接关闭时释放迭代器, 不再发送最终响应
+     */
+    void abort() {
+        finished = true;
+        close();
+    }
+    
+    private void produceIfPossible() {
+        if (finished || producing || credit <= 0 || iterator == null) {
+            return;
+        }
+        producing = true;
+        credit--;
+        if (!executor.execute(this::produce)) {
+            producing = false;
+            finish(RpcResponse.error(requestId, "服务端繁忙, 请求被拒绝"));
+        }
+    }
+    
+    private void produce() {
+        List<Object> items = new ArrayList<>(chunkSize);
+        boolean done;
+        RpcResponse failure = null;
+        try {
+            while (items.size() < chunkSize && iterator.hasNext()) {
+                items.add(iterator.next());
+            }
+            done = !iterator.hasNext();
+        } catch (Throwable e) {
+            done = true;
+            failure = RpcResponse.error(requestId, e.getMessage());
+        }
+        
+        boolean last = done;
+        RpcResponse error = failure;
+        if (ctx.executor().inEventLoop()) {
+            onProduced(items, last, error);
+        } else {
+            ctx.executor().execute(() -> onProduced(items, last, error));
+        }
+    }
+    
+    private void onProduced(List<Object> items, boolean done, RpcResponse failure) {
+        producing = false;
+        if (finished) {
+            // 拉取期间被取消或连接已关闭, 此时才能安全关闭迭代器
+            close();
+            return;
+        }
+        if (failure != null) {
+            finish(failure);
+            return;
+        }
+        if (!items.isEmpty()) {
+            ctx.writeAndFlush(RpcResponse.chunk(requestId, items));
+        }
+        if (done) {
+            finish(RpcResponse.success(requestId, null));
+        } else {
+            produceIfPossible();
+        }
+    }
+    
+    private void finish(RpcResponse response) {
+        finished = true;
+        close();
+        onFinish.accept(response);
+    }
+    
+    private void close() {
+        if (!producing) {
+            closeIterator(iterator);
+        }
+    }
+    
+    static void closeIterator(Iterator<?> iterator) {
+        if (iterator instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) iterator).close();
+            } catch (Exception e) {
+                System.err.println("关闭结果迭代器失败: " + e.getMessage());
+            }
+        }
+    }
+}
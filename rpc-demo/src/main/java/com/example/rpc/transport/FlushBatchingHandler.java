@@ -0,0 +1,125 @@
+package com.example.rpc.transport;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合并flush的处理器
+ * 写出的消息先进入出站缓冲, flush被推迟到以下任一时机才真正执行:
+ * 1. 累计的flush次数达到maxBatchSize
+ * 2. 当前读循环结束(channelReadComplete)
+ * 3. 距第一次被推迟的flush超过maxDelay; maxDelay为0时在当前EventLoop任务队列处理完后执行
+ * 以有界的延迟换取更少的write系统调用, 需放在pipeline最靠近head的位置
+ */
+public class FlushBatchingHandler extends ChannelDuplexHandler {
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    
+    // 以下字段只在EventLoop线程中访问
+    private ChannelHandlerContext ctx;
+    private int pendingFlushes;
+    private boolean readInProgress;
+    private Future<?> scheduledFlush;
+    private final Runnable flushTask = () -> {
+        scheduledFlush = null;
+        if (pendingFlushes > 0) {
+            flushNow(ctx);
+        }
+    };
+    
+    /**
+     * @param maxBatchSize 最多合并多少次flush
+     * @param maxDelay 最大推迟时间
+     */
+    public FlushBatchingHandler(int maxBatchSize, long maxDelay, TimeUnit unit) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize必须大于0: " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+    }
+    
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+    
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        if (++pendingFlushes >= maxBatchSize) {
+            flushNow(ctx);
+            return;
+        }
+        // 读循环中产生的响应在channelReadComplete统一flush
+        if (readInProgress) {
+            return;
+        }
+        if (scheduledFlush == null) {
+            scheduledFlush = maxDelayNanos > 0
+                    ? ctx.executor().schedule(flushTask, maxDelayNanos, TimeUnit.NANOSECONDS)
+                    : ctx.executor().submit(flushTask);
+        }
+    }
+    
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+    
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        readInProgress = false;
+        flushIfPending(ctx);
+        ctx.fireChannelReadComplete();
+    }
+    
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (!ctx.channel().isWritable()) {
+            flushIfPending(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+    
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        flushIfPending(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+    
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) {
+        flushIfPending(ctx);
+        ctx.disconnect(promise);
+    }
+    
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+        flushIfPending(ctx);
+        ctx.close(promise);
+    }
+    
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        flushIfPending(ctx);
+    }
+    
+    private void flushIfPending(ChannelHandlerContext ctx) {
+        if (pendingFlushes > 0) {
+            flushNow(ctx);
+        }
+    }
+    
+    private void flushNow(ChannelHandlerContext ctx) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        pendingFlushes = 0;
+        ctx.flush();
+    }
+}
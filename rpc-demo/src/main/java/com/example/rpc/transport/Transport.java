@@ -0,0 +1,155 @@
+package com.example.rpc.transport;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 传输实现的选择与创建
+ * auto()按io_uring -> epoll -> NIO的顺序选择当前环境可用的实现;
+ * io_uring通过反射加载, 未引入对应依赖时不影响编译和运行
+ */
+public final class Transport {
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+    
+    private final TransportType type;
+    
+    private Transport(TransportType type) {
+        this.type = type;
+    }
+    
+    /**
+     * 选择当前环境下可用的最优实现
+     */
+    public static Transport auto() {
+        if (isAvailable(TransportType.IO_URING)) {
+            return new Transport(TransportType.IO_URING);
+        }
+        if (isAvailable(TransportType.EPOLL)) {
+            return new Transport(TransportType.EPOLL);
+        }
+        return new Transport(TransportType.NIO);
+    }
+    
+    /**
+     * 使用指定实现, 不可用时抛出IllegalStateException
+     */
+    public static Transport of(TransportType type) {
+        if (!isAvailable(type)) {
+            throw new IllegalStateException("当前环境不支持传输实现: " + type);
+        }
+        return new Transport(type);
+    }
+    
+    public static boolean isAvailable(TransportType type) {
+        switch (type) {
+            case NIO:
+                return true;
+            case EPOLL:
+                try {
+                    return Epoll.isAvailable();
+                } catch (Throwable e) {
+                    return false;
+                }
+            case IO_URING:
+                try {
+                    return (Boolean) Class.forName(IO_URING_PACKAGE + "IOUring").getMethod("isAvailable").invoke(null);
+                } catch (Throwable e) {
+                    return false;
+                }
+            default:
+                return false;
+        }
+    }
+    
+    public TransportType getType() {
+        return type;
+    }
+    
+    /**
+     * @param threads 线程数, 0表示使用Netty默认值(CPU核数*2)
+     * @param poolName 线程名前缀
+     */
+    public EventLoopGroup newEventLoopGroup(int threads, String poolName) {
+        ThreadFactory threadFactory = new DefaultThreadFactory(poolName);
+        switch (type) {
+            case EPOLL:
+                return new EpollEventLoopGroup(threads, threadFactory);
+            case IO_URING:
+                try {
+                    return (EventLoopGroup) Class.forName(IO_URING_PACKAGE + "IOUringEventLoopGroup")
+                            .getConstructor(int.class, ThreadFactory.class)
+                            .newInstance(threads, threadFactory);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("无法创建io_uring EventLoopGroup", e);
+                }
+            default:
+                return new NioEventLoopGroup(threads, threadFactory);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    public Class<? extends ServerChannel> getServerChannelClass() {
+        switch (type) {
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            case IO_URING:
+                return (Class<? extends ServerChannel>) loadIoUringClass("IOUringServerSocketChannel");
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    public Class<? extends SocketChannel> getChannelClass() {
+        switch (type) {
+            case EPOLL:
+                return EpollSocketChannel.class;
+            case IO_URING:
+                return (Class<? extends SocketChannel>) loadIoUringClass("IOUringSocketChannel");
+            default:
+                return NioSocketChannel.class;
+        }
+    }
+    
+    /**
+     * 是否支持SO_REUSEPORT多acceptor绑定, 目前仅epoll实现
+     */
+    public boolean isReusePortSupported() {
+        return type == TransportType.EPOLL;
+    }
+    
+    /**
+     * 开启SO_REUSEPORT, 之后同一端口可被多个服务端channel绑定, 由内核在它们之间分发新连接
+     */
+    public void enableReusePort(ServerBootstrap bootstrap) {
+        if (!isReusePortSupported()) {
+            throw new IllegalStateException("传输实现不支持SO_REUSEPORT: " + type);
+        }
+        bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+    }
+    
+    private static Class<?> loadIoUringClass(String simpleName) {
+        try {
+            return Class.forName(IO_URING_PACKAGE + simpleName);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("io_uring传输不可用", e);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return type.name();
+    }
+}
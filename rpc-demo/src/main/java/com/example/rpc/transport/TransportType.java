@@ -0,0 +1,13 @@
+package com.example.rpc.transport;
+
+/**
+ * 网络传输实现
+ */
+public enum TransportType {
+    // JDK NIO, 所有平台可用
+    NIO,
+    // Linux原生epoll, 需要netty-transport-native-epoll
+    EPOLL,
+    // Linux io_uring(5.1+内核), 需要在classpath中加入与Netty版本匹配的netty-incubator-transport-native-io_uring
+    IO_URING
+}
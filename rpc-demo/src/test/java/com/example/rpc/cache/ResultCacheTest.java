@@ -0,0 +1,62 @@
+package com.example.rpc.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ResultCacheTest {
+    
+    @Test
+    public void testConcurrentCallsAreCoalesced() {
+        ResultCache cache = new ResultCache(16, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Object> rpc = new CompletableFuture<>();
+        
+        CompletableFuture<Object> first = cache.get(new Object[]{"key"}, () -> {
+            loads.incrementAndGet();
+            return rpc;
+        });
+        CompletableFuture<Object> second = cache.get(new Object[]{"key"}, () -> {
+            loads.incrementAndGet();
+            return rpc;
+        });
+        assertSame(first, second);
+        rpc.complete("value");
+        
+        assertEquals("value", cache.get(new Object[]{"key"}, CompletableFuture::new).join());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getCoalescedCount());
+        assertEquals(1, cache.getHitCount());
+    }
+    
+    @Test
+    public void testLruEvictionAndTtl() throws Exception {
+        ResultCache cache = new ResultCache(2, 50);
+        cache.get(new Object[]{1}, () -> CompletableFuture.completedFuture("a"));
+        cache.get(new Object[]{2}, () -> CompletableFuture.completedFuture("b"));
+        // 访问1后插入3, 淘汰最久未访问的2
+        cache.get(new Object[]{1}, CompletableFuture::new);
+        cache.get(new Object[]{3}, () -> CompletableFuture.completedFuture("c"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals("a", cache.get(new Object[]{1}, CompletableFuture::new).join());
+        
+        Thread.sleep(100);
+        assertEquals("a2", cache.get(new Object[]{1}, () -> CompletableFuture.completedFuture("a2")).join());
+        assertEquals(1, cache.getExpirationCount());
+    }
+    
+    @Test
+    public void testFailuresAreNotCached() {
+        ResultCache cache = new ResultCache(16, 60_000);
+        CompletableFuture<Object> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RuntimeException("boom"));
+        assertTrue(cache.get(new Object[]{"key"}, () -> failed).isCompletedExceptionally());
+        assertEquals(0, cache.size());
+        assertEquals("ok", cache.get(new Object[]{"key"}, () -> CompletableFuture.completedFuture("ok")).join());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.rpc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.rpc.common.RpcResponse;
+import com.example.rpc.example.HelloService;
+import com.example.rpc.example.HelloServiceImpl;
+import com.example.rpc.registry.ServiceRegistry;
+import com.example.rpc.server.BusinessExecutor;
+import com.example.rpc.server.RpcServer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncCallTest {
+    private static final int PORT = 18188;
+    
+    public interface SlowService {
+        String sleep(long millis);
+    }
+    
+    private RpcServer server;
+    private RpcClient client;
+    
+    @Before
+    public void setUp() throws Exception {
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(HelloService.class.getName(), new HelloServiceImpl());
+        registry.register(SlowService.class.getName(), (SlowService) millis -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "slept " + millis;
+        });
+        server = new RpcServer(PORT, registry, BusinessExecutor.pool());
+        Thread thread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        
+        client = new RpcClient("localhost", PORT);
+        for (int i = 0; ; i++) {
+            try {
+                client.connect();
+                break;
+            } catch (Exception e) {
+                if (i >= 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+    
+    @After
+    public void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+    
+    @Test
+    public void testAsyncProxyAndRequest() throws Exception {
+        HelloService helloService = client.create(HelloService.class);
+        CompletableFuture<String> future = helloService.sayHelloAsync("async");
+        assertEquals("Hello, async", future.get(5, TimeUnit.SECONDS));
+        
+        RpcResponse response = client.sendRequestAsync(RpcClient.newRequest(SlowService.class.getName(), "sleep",
+                new Class<?>[]{long.class}, new Object[]{10L})).get(5, TimeUnit.SECONDS);
+        assertEquals("slept 10", response.getResult());
+    }
+    
+    @Test
+    public void testTimeoutSweepFailsFuture() throws Exception {
+        client.setRequestTimeoutMillis(100);
+        long start = System.nanoTime();
+        CompletableFuture<RpcResponse> future = client.sendRequestAsync(RpcClient.newRequest(
+                SlowService.class.getName(), "sleep", new Class<?>[]{long.class}, new Object[]{2000L}));
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("慢调用应超时");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 由连接的EventLoop周期扫描, 在超时时间之后、服务端返回之前完成
+        assertTrue("耗时: " + elapsedMillis, elapsedMillis >= 100 && elapsedMillis < 2000);
+        
+        // 单次调用可指定更长的超时
+        RpcResponse response = client.sendRequestAsync(RpcClient.newRequest(SlowService.class.getName(), "sleep",
+                new Class<?>[]{long.class}, new Object[]{200L}), 5000).get(5, TimeUnit.SECONDS);
+        assertEquals("slept 200", response.getResult());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.rpc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.common.RpcResponse;
+import com.example.rpc.limit.FixedConcurrencyLimiter;
+import com.example.rpc.registry.ServiceRegistry;
+import com.example.rpc.server.BusinessExecutor;
+import com.example.rpc.server.RejectPolicy;
+import com.example.rpc.server.RpcServer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BackpressureTest {
+    private static final int PORT = 18183;
+    
+    public interface BlockingService {
+        String await();
+    }
+    
+    private final CountDownLatch release = new CountDownLatch(1);
+    private RpcServer server;
+    private RpcClient client;
+    
+    @Before
+    public void setUp() throws Exception {
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(BlockingService.class.getName(), (BlockingService) () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "done";
+        });
+        server = new RpcServer(PORT, registry, BusinessExecutor.pool(8, 64, RejectPolicy.ABORT));
+        Thread thread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        
+        client = new RpcClient("localhost", PORT);
+        for (int i = 0; ; i++) {
+            try {
+                client.connect();
+                break;
+            } catch (Exception e) {
+                if (i >= 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+    
+    @After
+    public void tearDown() {
+        release.countDown();
+        client.close();
+        server.shutdown();
+    }
+    
+    @Test
+    public void testSaturatedConnectionRejectsFast() throws Exception {
+        client.setMaxInflightPerConnection(2);
+        CompletableFuture<RpcResponse> first = client.sendRequestAsync(request());
+        CompletableFuture<RpcResponse> second = client.sendRequestAsync(request());
+        CompletableFuture<RpcResponse> third = client.sendRequestAsync(request());
+        
+        assertRejected(third);
+        release.countDown();
+        assertEquals("done", first.get(5, TimeUnit.SECONDS).getResult());
+        assertEquals("done", second.get(5, TimeUnit.SECONDS).getResult());
+        // 名额归还后可以继续发送
+        assertEquals("done", client.sendRequestAsync(request()).get(5, TimeUnit.SECONDS).getResult());
+    }
+    
+    @Test
+    public void testClientLimiterRejectsFast() throws Exception {
+        FixedConcurrencyLimiter limiter = new FixedConcurrencyLimiter(1);
+        client.setConcurrencyLimiter(limiter);
+        CompletableFuture<RpcResponse> first = client.sendRequestAsync(request());
+        assertRejected(client.sendRequestAsync(request()));
+        
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(0, limiter.getInflight());
+    }
+    
+    private static void assertRejected(CompletableFuture<RpcResponse> future) throws InterruptedException {
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail("应被拒绝");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+    
+    private static RpcRequest request() {
+        RpcRequest request = new RpcRequest();
+        request.setInterfaceName(BlockingService.class.getName());
+        request.setMethodName("await");
+        request.setParameterTypes(new Class<?>[0]);
+        request.setParameters(new Object[0]);
+        return request;
+    }
+}
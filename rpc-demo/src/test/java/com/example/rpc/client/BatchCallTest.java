@@ -0,0 +1,140 @@
+package com.example.rpc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.rpc.example.HelloService;
+import com.example.rpc.example.HelloServiceImpl;
+import com.example.rpc.registry.ServiceRegistry;
+import com.example.rpc.server.BusinessExecutor;
+import com.example.rpc.server.RpcServer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchCallTest {
+    private static final int PORT = 18187;
+    private static final String HELLO = HelloService.class.getName();
+    
+    public interface MathService {
+        int add(int a, int b);
+        
+        long add(long a, long b);
+        
+        int divide(int a, int b);
+    }
+    
+    public static class MathServiceImpl implements MathService {
+        @Override
+        public int add(int a, int b) {
+            return a + b;
+        }
+        
+        @Override
+        public long add(long a, long b) {
+            return a + b;
+        }
+        
+        @Override
+        public int divide(int a, int b) {
+            return a / b;
+        }
+    }
+    
+    private RpcServer server;
+    private RpcClient client;
+    
+    @Before
+    public void setUp() throws Exception {
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(HELLO, new HelloServiceImpl());
+        registry.register(MathService.class.getName(), new MathServiceImpl());
+        server = new RpcServer(PORT, registry, BusinessExecutor.pool());
+        Thread thread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        
+        client = new RpcClient("localhost", PORT);
+        for (int i = 0; ; i++) {
+            try {
+                client.connect();
+                break;
+            } catch (Exception e) {
+                if (i >= 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+    
+    @After
+    public void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+    
+    @Test
+    public void testGenericInvoke() throws Exception {
+        assertEquals("Hello, a", client.invoke(HELLO, "sayHello", "a"));
+        // 按参数值匹配重载
+        assertEquals(3, client.invoke(MathService.class.getName(), "add", 1, 2));
+        assertEquals(3L, client.invoke(MathService.class.getName(), "add", 1L, 2L));
+        assertEquals("Hello, b", client.invokeAsync(HELLO, "sayHelloAsync", "b").get());
+        try {
+            client.invoke(MathService.class.getName(), "add", "1", "2");
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("方法未找到"));
+        }
+    }
+    
+    @Test
+    public void testBatchReturnsResultsInOrder() throws Exception {
+        for (boolean parallel : new boolean[]{false, true}) {
+            BatchCall batch = client.newBatch();
+            List<CompletableFuture<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                results.add(i % 2 == 0
+                        ? batch.add(HELLO, "sayHello", "n" + i)
+                        : batch.add(HELLO, "sayHelloAsync", new Class<?>[]{String.class}, new Object[]{"n" + i}));
+            }
+            CompletableFuture<Object> failed = batch.add(MathService.class.getName(), "divide", 1, 0);
+            CompletableFuture<Object> sum = batch.add(MathService.class.getName(), "add", 40, 2);
+            batch.execute(parallel).get();
+            
+            for (int i = 0; i < 50; i++) {
+                assertEquals("Hello, n" + i, results.get(i).get());
+            }
+            // 单个调用失败不影响其他调用
+            assertTrue(failed.isCompletedExceptionally());
+            assertEquals(42, sum.get());
+        }
+        assertEquals(2, client.getMetrics().snapshot().stream()
+                .filter(s -> s.getInterfaceName().equals("batch")).findFirst().get().getCalls());
+    }
+    
+    @Test
+    public void testBatchFailsAllCallsWhenProviderMissing() throws Exception {
+        BatchCall batch = client.newBatch();
+        CompletableFuture<Object> missing = batch.add("com.example.Missing", "call");
+        batch.execute(false).get();
+        try {
+            missing.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("服务未找到"));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.rpc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChannelPoolTest {
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    // 服务端接受的连接, 用于统计建立次数和从服务端断开
+    private final Queue<Channel> accepted = new ConcurrentLinkedQueue<>();
+    private ChannelPool pool;
+    
+    @Before
+    public void setUp() throws Exception {
+        group = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        accepted.add(ch);
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+    }
+    
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+        serverChannel.close();
+        group.shutdownGracefully();
+    }
+    
+    @Test
+    public void testAcquirePicksLeastInflight() throws Exception {
+        pool = newPool(3);
+        pool.connectAll();
+        assertEquals(3, pool.getActiveCount());
+        
+        Set<PooledChannel> acquired = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            acquired.add(pool.acquire(1));
+        }
+        // 每次都选未完成数最少的连接, 三次调用分到三个连接
+        assertEquals(3, acquired.size());
+        assertNull(pool.acquire(1));
+        
+        PooledChannel released = acquired.iterator().next();
+        released.release();
+        assertSame(released, pool.acquire(0));
+        assertEquals(3, pool.getPendingCount());
+    }
+    
+    @Test
+    public void testClosedChannelReconnectsOnAcquire() throws Exception {
+        pool = newPool(1);
+        pool.connectAll();
+        PooledChannel slot = pool.acquire(0);
+        slot.release();
+        Channel first = slot.connect().channel();
+        
+        // 服务端断开后不立即重连, 下一次acquire时才重连
+        awaitAccepted(1);
+        accepted.poll().close();
+        first.closeFuture().sync();
+        assertFalse(slot.isActive());
+        assertEquals(0, pool.getActiveCount());
+        
+        assertSame(slot, pool.acquire(0));
+        Channel second = slot.connect().sync().channel();
+        assertNotSame(first, second);
+        assertTrue(slot.isActive());
+        slot.release();
+    }
+    
+    @Test
+    public void testConsecutiveTimeoutsEvictChannel() throws Exception {
+        pool = newPool(1);
+        pool.connectAll();
+        PooledChannel slot = pool.acquire(0);
+        Channel channel = slot.connect().channel();
+        
+        // 成功调用打断连续超时计数
+        slot.recordTimeout();
+        slot.recordTimeout();
+        slot.recordSuccess();
+        slot.recordTimeout();
+        slot.recordTimeout();
+        assertTrue(channel.isActive());
+        
+        slot.recordTimeout();
+        channel.closeFuture().sync();
+        assertFalse(slot.isActive());
+        slot.release();
+        
+        assertSame(slot, pool.acquire(0));
+        assertTrue(slot.connect().sync().isSuccess());
+        awaitAccepted(2);
+        slot.release();
+    }
+    
+    /**
+     * 客户端连接成功时服务端可能还未处理accept
+     */
+    private void awaitAccepted(int count) throws InterruptedException {
+        for (int i = 0; i < 100 && accepted.size() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, accepted.size());
+    }
+    
+    private ChannelPool newPool(int size) {
+        InetSocketAddress address = (InetSocketAddress) serverChannel.localAddress();
+        Bootstrap bootstrap = new Bootstrap().group(group).channel(NioSocketChannel.class);
+        return new ChannelPool(bootstrap, "127.0.0.1", address.getPort(), size, 3, (ch, pc) -> { });
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.rpc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.rpc.example.HelloService;
+import com.example.rpc.limit.FixedConcurrencyLimiter;
+import com.example.rpc.loadbalance.RoundRobinLoadBalancer;
+import com.example.rpc.registry.LocalServiceDiscovery;
+import com.example.rpc.registry.ProviderAddress;
+import com.example.rpc.registry.ServiceRegistry;
+import com.example.rpc.server.BusinessExecutor;
+import com.example.rpc.server.RpcServer;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.After;
+import org.junit.Test;
+
+public class DiscoveryClientTest {
+    private static final String SERVICE = HelloService.class.getName();
+    
+    private RpcServer serverA;
+    private RpcServer serverB;
+    private RpcClient client;
+    
+    @After
+    public void tearDown() {
+        client.close();
+        if (serverA != null) {
+            serverA.shutdown();
+            serverB.shutdown();
+        }
+    }
+    
+    @Test
+    public void testCallsFollowProviderUpdates() throws Exception {
+        serverA = startServer(18181);
+        serverB = startServer(18182);
+        ProviderAddress a = new ProviderAddress("localhost", 18181);
+        ProviderAddress b = new ProviderAddress("localhost", 18182);
+        
+        LocalServiceDiscovery discovery = new LocalServiceDiscovery();
+        discovery.register(SERVICE, a);
+        discovery.register(SERVICE, b);
+        
+        client = new RpcClient(discovery, new RoundRobinLoadBalancer());
+        HelloService helloService = client.create(HelloService.class);
+        Map<String, Integer> counts = call(helloService, 10);
+        assertEquals(5, (int) counts.get("18181"));
+        assertEquals(5, (int) counts.get("18182"));
+        
+        // 下线前已分配出去的槽位在下线后不再重连
+        ChannelPool poolA = client.getProviders(SERVICE).stream()
+                .filter(p -> p.getAddress().equals(a)).findFirst().get().getChannelPool();
+        PooledChannel slot = poolA.acquire(0);
+        
+        // 下线A之后的调用全部落到B
+        discovery.unregister(SERVICE, a);
+        assertEquals(1, client.getProviders(SERVICE).size());
+        counts = call(helloService, 10);
+        assertEquals(10, (int) counts.get("18182"));
+        assertEquals(1, counts.size());
+        
+        assertTrue(poolA.isClosed());
+        assertNull(poolA.acquire(0));
+        for (int i = 0; i < 100 && slot.isActive(); i++) {
+            Thread.sleep(10);
+        }
+        assertNull(slot.connect());
+        slot.release();
+        
+        // 关闭后取消订阅, 之后的变更不再推送给客户端
+        client.close();
+        discovery.register(SERVICE, a);
+        assertEquals(1, client.getProviders(SERVICE).size());
+    }
+    
+    @Test
+    public void testLimiterPermitReleasedWhenSelectionFails() throws Exception {
+        LocalServiceDiscovery discovery = new LocalServiceDiscovery();
+        discovery.register(SERVICE, new ProviderAddress("localhost", 18181));
+        client = new RpcClient(discovery, (providers, request) -> {
+            throw new IllegalStateException("选择失败");
+        });
+        client.setConcurrencyLimiter(new FixedConcurrencyLimiter(1));
+        for (int i = 0; i < 3; i++) {
+            try {
+                client.sendRequestAsync(RpcClient.newRequest(SERVICE, "sayHello", null, new Object[]{"a"})).get();
+                fail();
+            } catch (ExecutionException e) {
+                assertEquals("选择失败", e.getCause().getMessage());
+            }
+        }
+        assertEquals(0, client.getConcurrencyLimiter().getInflight());
+    }
+    
+    private static Map<String, Integer> call(HelloService helloService, int times) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            counts.merge(helloService.sayHello("World"), 1, Integer::sum);
+        }
+        return counts;
+    }
+    
+    private static RpcServer startServer(int port) throws InterruptedException {
+        ServiceRegistry registry = new ServiceRegistry();
+        // 返回端口号, 以区分请求落到了哪个提供者
+        registry.register(SERVICE, new HelloService() {
+            @Override
+            public String sayHello(String name) {
+                return String.valueOf(port);
+            }
+            
+            @Override
+            public CompletableFuture<String> sayHelloAsync(String name) {
+                return CompletableFuture.completedFuture(sayHello(name));
+            }
+        });
+        RpcServer server = new RpcServer(port, registry, BusinessExecutor.inline());
+        Thread thread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        waitForPort(port);
+        return server;
+    }
+    
+    private static void waitForPort(int port) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            try {
+                new Socket("localhost", port).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        fail("服务端未启动: " + port);
+    }
+}
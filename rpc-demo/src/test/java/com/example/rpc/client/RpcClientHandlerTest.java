@@ -0,0 +1,50 @@
+package com.example.rpc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.rpc.codec.BinarySerializer;
+import com.example.rpc.codec.RpcEncoder;
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.common.RpcResponse;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.EncoderException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.Test;
+
+public class RpcClientHandlerTest {
+    
+    @Test
+    public void testEncodeFailureOnlyFailsThatCall() throws Exception {
+        RpcClientHandler handler = new RpcClientHandler();
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcEncoder(new BinarySerializer()), handler);
+        CompletableFuture<RpcResponse> good = write(channel, "a");
+        // 没有任何属性的对象, JSON也无法序列化
+        CompletableFuture<RpcResponse> bad = write(channel, new Object());
+        
+        try {
+            bad.get();
+            fail("无法序列化的参数应使调用失败");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof EncoderException);
+        }
+        // 失败的调用已移出调用表, 连接和其上的其他调用不受影响
+        assertEquals(1, handler.getPendingCount());
+        assertTrue(channel.isOpen());
+        
+        channel.writeInbound(RpcResponse.success(1L, "ok"));
+        assertEquals("ok", good.get().getResult());
+        assertEquals(0, handler.getPendingCount());
+        channel.finishAndReleaseAll();
+    }
+    
+    private static CompletableFuture<RpcResponse> write(EmbeddedChannel channel, Object arg) {
+        RpcRequest request = RpcClient.newRequest("com.example.rpc.example.HelloService", "sayHello", null,
+                new Object[]{arg});
+        CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+        channel.writeAndFlush(new PendingCall(request, future, System.nanoTime() + 1_000_000_000L));
+        return future;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.rpc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.rpc.registry.ServiceRegistry;
+import com.example.rpc.server.BusinessExecutor;
+import com.example.rpc.server.RpcServer;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamingTest {
+    private static final int PORT = 18184;
+    private static final int CHUNK_SIZE = 100;
+    private static final int WINDOW = 4;
+    
+    public interface RangeService {
+        Iterator<Integer> range(int count);
+    }
+    
+    /**
+     * 按需生成元素, 记录已生成的数量和是否被关闭
+     */
+    public static class RangeServiceImpl implements RangeService {
+        final AtomicInteger produced = new AtomicInteger();
+        final AtomicBoolean closed = new AtomicBoolean();
+        
+        @Override
+        public Iterator<Integer> range(int count) {
+            return new CloseableIterator(count);
+        }
+        
+        private class CloseableIterator implements Iterator<Integer>, AutoCloseable {
+            private final int count;
+            private int next;
+            
+            CloseableIterator(int count) {
+                this.count = count;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+            
+            @Override
+            public Integer next() {
+                produced.incrementAndGet();
+                return next++;
+            }
+            
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        }
+    }
+    
+    private final RangeServiceImpl service = new RangeServiceImpl();
+    private RpcServer server;
+    private RpcClient client;
+    
+    @Before
+    public void setUp() throws Exception {
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(RangeService.class.getName(), service);
+        server = new RpcServer(PORT, registry, BusinessExecutor.pool());
+        server.setStreamChunkSize(CHUNK_SIZE);
+        Thread thread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        
+        client = new RpcClient("localhost", PORT);
+        client.setStreamWindow(WINDOW);
+        for (int i = 0; ; i++) {
+            try {
+                client.connect();
+                break;
+            } catch (Exception e) {
+                if (i >= 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+    
+    @After
+    public void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+    
+    @Test
+    public void testStreamDeliversAllItemsInOrder() {
+        RangeService rangeService = client.create(RangeService.class);
+        Iterator<Integer> it = rangeService.range(100_000);
+        int expected = 0;
+        while (it.hasNext()) {
+            assertEquals(expected++, (int) it.next());
+        }
+        assertEquals(100_000, expected);
+    }
+    
+    @Test
+    public void testServerStaysWithinCredit() throws Exception {
+        RangeService rangeService = client.create(RangeService.class);
+        Iterator<Integer> it = rangeService.range(1_000_000);
+        for (int i = 0; i < 1000; i++) {
+            it.next();
+        }
+        Thread.sleep(200);
+        
+        // 服务端最多领先消费者额度范围内的块
+        assertTrue(service.produced.get() <= 1000 + (WINDOW + 1) * CHUNK_SIZE);
+        ((RpcStream<?>) it).close();
+        for (int i = 0; i < 50 && !service.closed.get(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(service.closed.get());
+        assertFalse(it.hasNext());
+    }
+    
+    @Test
+    public void testAbandonedStreamIsCancelledAfterIdleTimeout() throws Exception {
+        client.setRequestTimeoutMillis(200);
+        RangeService rangeService = client.create(RangeService.class);
+        Iterator<Integer> it = rangeService.range(1_000_000);
+        it.next();
+        
+        // 调用方既不消费也不close, 空闲超时后由超时扫描取消, 服务端随之关闭迭代器
+        for (int i = 0; i < 100 && !service.closed.get(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(service.closed.get());
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.rpc.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.common.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class BinarySerializerTest {
+    
+    @Test
+    public void testRequestRoundTrip() throws Exception {
+        RpcRequest request = new RpcRequest();
+        request.setInterfaceName("com.example.rpc.example.HelloService");
+        request.setMethodName("sayHello");
+        request.setParameterTypes(new Class<?>[]{String.class, int.class, long[].class, String[].class});
+        request.setParameters(new Object[]{"世界", 42, new long[]{1L, 2L}, new String[]{"a", null}});
+        
+        BinarySerializer serializer = new BinarySerializer();
+        ByteBuf buf = Unpooled.buffer();
+        serializer.serialize(request, buf);
+        RpcRequest decoded = serializer.deserialize(buf, RpcRequest.class);
+        
+        assertEquals(0, buf.readableBytes());
+        assertEquals("sayHello", decoded.getMethodName());
+        assertArrayEquals(request.getParameterTypes(), decoded.getParameterTypes());
+        assertEquals("世界", decoded.getParameters()[0]);
+        assertEquals(42, decoded.getParameters()[1]);
+        assertArrayEquals(new long[]{1L, 2L}, (long[]) decoded.getParameters()[2]);
+        assertArrayEquals(new String[]{"a", null}, (String[]) decoded.getParameters()[3]);
+    }
+    
+    public static class Point {
+        public int x;
+        public String label;
+    }
+    
+    @Test
+    public void testUnknownTypesFallBackToJson() throws Exception {
+        Point point = new Point();
+        point.x = 3;
+        point.label = "p";
+        RpcRequest request = new RpcRequest();
+        request.setInterfaceName("com.example.rpc.example.HelloService");
+        request.setMethodName("move");
+        request.setParameters(new Object[]{point, Arrays.asList(new BigDecimal("3.14"), point)});
+        
+        BinarySerializer serializer = new BinarySerializer();
+        ByteBuf buf = Unpooled.buffer();
+        serializer.serialize(request, buf);
+        RpcRequest decoded = serializer.deserialize(buf, RpcRequest.class);
+        assertEquals(0, buf.readableBytes());
+        Point decodedPoint = (Point) decoded.getParameters()[0];
+        assertEquals(3, decodedPoint.x);
+        assertEquals("p", decodedPoint.label);
+        List<?> list = (List<?>) decoded.getParameters()[1];
+        assertEquals(new BigDecimal("3.14"), list.get(0));
+        assertEquals("p", ((Point) list.get(1)).label);
+    }
+    
+    @Test
+    public void testBatchRoundTrip() throws Exception {
+        RpcRequest call = new RpcRequest();
+        call.setInterfaceName("com.example.rpc.example.HelloService");
+        call.setMethodName("sayHello");
+        call.setParameters(new Object[]{"a"});
+        RpcRequest request = RpcRequest.batch(Arrays.asList(call, call), true);
+        
+        BinarySerializer serializer = new BinarySerializer();
+        ByteBuf buf = Unpooled.buffer();
+        serializer.serialize(request, buf);
+        RpcRequest decoded = serializer.deserialize(buf, RpcRequest.class);
+        assertTrue(decoded.isBatch());
+        assertTrue(decoded.isParallel());
+        assertFalse(decoded.isControl());
+        assertEquals(2, decoded.getBatch().size());
+        // 未指定参数类型时保持为null, 由服务端按参数值匹配
+        assertNull(decoded.getBatch().get(1).getParameterTypes());
+        assertEquals("a", decoded.getBatch().get(1).getParameters()[0]);
+        
+        RpcResponse response = RpcResponse.batch(7L, Arrays.asList(RpcResponse.success(0, "x"), RpcResponse.error(0, "e")));
+        serializer.serialize(response, buf);
+        RpcResponse decodedResponse = serializer.deserialize(buf, RpcResponse.class);
+        assertEquals(0, buf.readableBytes());
+        assertEquals("x", decodedResponse.getBatch().get(0).getResult());
+        assertEquals("e", decodedResponse.getBatch().get(1).getError());
+    }
+    
+    @Test
+    public void testNestedBatchRejectedOnDecode() throws Exception {
+        RpcRequest call = new RpcRequest();
+        call.setInterfaceName("com.example.rpc.example.HelloService");
+        call.setMethodName("sayHello");
+        RpcRequest nested = RpcRequest.batch(Collections.singletonList(
+                RpcRequest.batch(Collections.singletonList(call), false)), false);
+        
+        ByteBuf buf = Unpooled.buffer();
+        new BinarySerializer().serialize(nested, buf);
+        try {
+            new BinarySerializer().deserialize(buf, RpcRequest.class);
+            fail("嵌套的批量请求应被拒绝");
+        } catch (IOException e) {
+            assertEquals("批量请求不能嵌套", e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testForgedLengthRejectedBeforeAllocation() {
+        // 标签之后的变长整数: 2^31-1个long, 以及负数个元素的List
+        byte[][] bodies = {
+                {12, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07},
+                {15, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F},
+        };
+        for (byte[] body : bodies) {
+            try {
+                new BinarySerializer().deserialize(Unpooled.wrappedBuffer(body), Object.class);
+                fail("伪造的长度应被拒绝");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("长度超出消息体"));
+            }
+        }
+    }
+    
+    @Test
+    public void testDeeplyNestedCollectionsRejected() {
+        // 10000层只含一个元素的List, 每层2字节: 标签15 + 长度1
+        ByteBuf buf = Unpooled.buffer();
+        for (int i = 0; i < 10000; i++) {
+            buf.writeByte(15).writeByte(1);
+        }
+        buf.writeByte(0);
+        try {
+            new BinarySerializer().deserialize(buf, Object.class);
+            fail("过深的嵌套应被拒绝");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("嵌套层数超过上限"));
+        }
+    }
+    
+    @Test
+    public void testResponseThroughCodec() {
+        EmbeddedChannel client = new EmbeddedChannel(new RpcEncoder(new BinarySerializer()));
+        EmbeddedChannel server = new EmbeddedChannel(new RpcDecoder(RpcResponse.class));
+        
+        RpcResponse response = RpcResponse.success(42L,
+                Collections.singletonMap("names", Arrays.asList("a", null, "c")));
+        client.writeOutbound(response);
+        server.writeInbound((ByteBuf) client.readOutbound());
+        
+        RpcResponse decoded = server.readInbound();
+        assertEquals(42L, decoded.getRequestId());
+        assertNull(decoded.getError());
+        assertEquals(response.getResult(), decoded.getResult());
+        assertFalse(server.finish());
+    }
+}
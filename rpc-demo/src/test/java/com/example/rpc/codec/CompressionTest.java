@@ -0,0 +1,81 @@
+package com.example.rpc.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.common.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+public class CompressionTest {
+    
+    @Test
+    public void testNegotiatedResponseCompression() {
+        for (byte id : new byte[]{CompressorFactory.SNAPPY, CompressorFactory.LZ4}) {
+            Compressor compressor = CompressorFactory.getCompressor(id);
+            EmbeddedChannel client = new EmbeddedChannel(
+                    new RpcDecoder(RpcResponse.class), new RpcEncoder(new BinarySerializer(), compressor, 1024));
+            EmbeddedChannel server = new EmbeddedChannel(
+                    new RpcDecoder(RpcRequest.class), new RpcEncoder(null, null, 1024));
+            
+            // 小请求不压缩, 但声明可接受的压缩算法
+            RpcRequest request = new RpcRequest();
+            request.setRequestId(1L);
+            request.setInterfaceName("com.example.rpc.example.DataService");
+            request.setMethodName("read");
+            request.setParameterTypes(new Class<?>[0]);
+            request.setParameters(new Object[0]);
+            client.writeOutbound(request);
+            ByteBuf requestFrame = client.readOutbound();
+            assertEquals(id << 4, requestFrame.getByte(4));
+            server.writeInbound(requestFrame);
+            RpcRequest received = server.readInbound();
+            assertEquals("read", received.getMethodName());
+            
+            // 大响应按客户端声明的算法压缩
+            long[] data = new long[64 * 1024];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = i % 100;
+            }
+            server.writeOutbound(RpcResponse.success(1L, data));
+            ByteBuf responseFrame = server.readOutbound();
+            assertEquals(id, responseFrame.getByte(4));
+            assertTrue(responseFrame.readableBytes() < data.length * 8 / 2);
+            client.writeInbound(responseFrame);
+            RpcResponse response = client.readInbound();
+            assertEquals(1L, response.getRequestId());
+            assertArrayEquals(data, (long[]) response.getResult());
+            
+            assertFalse(client.finish());
+            assertFalse(server.finish());
+        }
+    }
+    
+    @Test
+    public void testNoCompressionWithoutNegotiation() {
+        EmbeddedChannel client = new EmbeddedChannel(
+                new RpcDecoder(RpcResponse.class), new RpcEncoder(new BinarySerializer()));
+        EmbeddedChannel server = new EmbeddedChannel(
+                new RpcDecoder(RpcRequest.class), new RpcEncoder(null, null, 16));
+        
+        RpcRequest request = new RpcRequest();
+        request.setInterfaceName("com.example.rpc.example.HelloService");
+        request.setMethodName("sayHello");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameters(new Object[]{"World"});
+        client.writeOutbound(request);
+        server.writeInbound((ByteBuf) client.readOutbound());
+        server.readInbound();
+        
+        server.writeOutbound(RpcResponse.success(0L, new String(new char[4096])));
+        ByteBuf responseFrame = server.readOutbound();
+        assertEquals(0, responseFrame.getByte(4));
+        responseFrame.release();
+        assertFalse(client.finish());
+        assertFalse(server.finish());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.rpc.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import com.example.rpc.common.RpcRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.Test;
+
+public class RpcDecoderTest {
+    
+    @Test
+    public void testLargeFrameArrivingInChunks() {
+        int[] values = new int[256 * 1024];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 31;
+        }
+        RpcRequest request = new RpcRequest();
+        request.setInterfaceName("com.example.rpc.example.HelloService");
+        request.setMethodName("sum");
+        request.setParameterTypes(new Class<?>[]{int[].class});
+        request.setParameters(new Object[]{values});
+        
+        EmbeddedChannel client = new EmbeddedChannel(new RpcEncoder(new BinarySerializer()));
+        EmbeddedChannel server = new EmbeddedChannel(new RpcDecoder(RpcRequest.class));
+        request.setRequestId(7L);
+        client.writeOutbound(request);
+        ByteBuf frame = client.readOutbound();
+        
+        // 模拟TCP分段到达
+        while (frame.isReadable()) {
+            server.writeInbound(frame.readRetainedSlice(Math.min(8192, frame.readableBytes())));
+        }
+        frame.release();
+        
+        RpcRequest decoded = server.readInbound();
+        assertEquals(7L, decoded.getRequestId());
+        assertArrayEquals(values, (int[]) decoded.getParameters()[0]);
+        assertFalse(server.finish());
+    }
+    
+    @Test
+    public void testOversizedFrameRejected() {
+        EmbeddedChannel server = new EmbeddedChannel(new RpcDecoder(RpcRequest.class, 1024));
+        ByteBuf header = Unpooled.buffer();
+        header.writeInt(4 * 1024 * 1024);
+        header.writeByte(SerializerFactory.BINARY);
+        try {
+            server.writeInbound(header);
+            fail("超长帧应被拒绝");
+        } catch (DecoderException e) {
+            assertEquals(TooLongFrameException.class, e.getClass());
+        }
+        assertNull(server.readInbound());
+        server.finishAndReleaseAll();
+    }
+    
+    @Test
+    public void testDeclaredLengthDoesNotPreallocate() {
+        final int[] capacity = new int[1];
+        EmbeddedChannel server = new EmbeddedChannel(new RpcDecoder(RpcRequest.class) {
+            @Override
+            protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+                super.decode(ctx, in, out);
+                capacity[0] = in.capacity();
+            }
+        });
+        // 只发来帧头, 声明8MB的帧
+        ByteBuf header = Unpooled.buffer();
+        header.writeInt(8 * 1024 * 1024);
+        header.writeByte(0);
+        header.writeByte(SerializerFactory.BINARY);
+        header.writeLong(1L);
+        server.writeInbound(header);
+        assertNull(server.readInbound());
+        assertTrue("capacity=" + capacity[0], capacity[0] <= 128 * 1024);
+        assertFalse(server.finish());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.rpc.limit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+    
+    @Test
+    public void testFixedLimitRejectsWhenSaturated() {
+        ConcurrencyLimiter limiter = new FixedConcurrencyLimiter(2);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        
+        limiter.onIgnore();
+        assertEquals(1, limiter.getInflight());
+        assertTrue(limiter.tryAcquire());
+    }
+    
+    @Test
+    public void testAimdFollowsRtt() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(10, 1, 100, 0.5, 2.0);
+        long fast = TimeUnit.MILLISECONDS.toNanos(1);
+        
+        // RTT稳定且上限被用满时逐个增加
+        for (int i = 0; i < 5; i++) {
+            fillAndComplete(limiter, fast);
+        }
+        assertEquals(15, limiter.getLimit());
+        
+        // RTT翻倍以上视为排队, 乘性减小
+        assertTrue(limiter.tryAcquire());
+        limiter.onSuccess(fast * 3);
+        assertEquals(7, limiter.getLimit());
+        
+        // 超时同样减小, 但不低于下限
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onDropped();
+        }
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+    
+    private static void fillAndComplete(ConcurrencyLimiter limiter, long rttNanos) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        // 只有第一个样本看到的并发数达到上限的一半以上并触发增加
+        limiter.onSuccess(rttNanos);
+        for (int i = 1; i < acquired; i++) {
+            limiter.onIgnore();
+        }
+    }
+}
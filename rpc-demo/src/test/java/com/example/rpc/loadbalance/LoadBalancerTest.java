@@ -0,0 +1,98 @@
+package com.example.rpc.loadbalance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.rpc.client.ChannelPool;
+import com.example.rpc.client.Provider;
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.registry.ProviderAddress;
+import io.netty.bootstrap.Bootstrap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class LoadBalancerTest {
+    
+    @Test
+    public void testRoundRobin() {
+        List<Provider> providers = providers(100, 100, 100);
+        LoadBalancer loadBalancer = new RoundRobinLoadBalancer();
+        Map<Provider, Integer> counts = count(loadBalancer, providers, 300);
+        for (Provider provider : providers) {
+            assertEquals(100, (int) counts.get(provider));
+        }
+    }
+    
+    @Test
+    public void testWeightedRandom() {
+        List<Provider> providers = providers(100, 300);
+        Map<Provider, Integer> counts = count(new WeightedRandomLoadBalancer(), providers, 40000);
+        // 期望比例1:3, 允许一定随机误差
+        double ratio = counts.get(providers.get(1)) / (double) counts.get(providers.get(0));
+        assertTrue("ratio=" + ratio, ratio > 2.5 && ratio < 3.5);
+    }
+    
+    @Test
+    public void testConsistentHashIsStable() {
+        List<Provider> providers = providers(100, 100, 100, 100);
+        LoadBalancer loadBalancer = new ConsistentHashLoadBalancer(0);
+        Map<String, Provider> before = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            String key = "user-" + i;
+            Provider selected = loadBalancer.select(providers, request(key));
+            assertEquals(selected, loadBalancer.select(providers, request(key)));
+            before.put(key, selected);
+        }
+        
+        // 移除一个提供者后, 原本不在它上面的key不应迁移
+        List<Provider> reduced = new ArrayList<>(providers.subList(0, 3));
+        for (Map.Entry<String, Provider> entry : before.entrySet()) {
+            if (reduced.contains(entry.getValue())) {
+                assertEquals(entry.getValue(), loadBalancer.select(reduced, request(entry.getKey())));
+            }
+        }
+    }
+    
+    @Test
+    public void testConsistentHashUsesArrayContents() {
+        List<Provider> providers = providers(100, 100, 100, 100);
+        LoadBalancer loadBalancer = new ConsistentHashLoadBalancer(0);
+        for (int i = 0; i < 100; i++) {
+            // 内容相同的不同数组实例落到同一提供者
+            assertEquals(loadBalancer.select(providers, request(new long[]{i, i + 1})),
+                    loadBalancer.select(providers, request(new long[]{i, i + 1})));
+            assertEquals(loadBalancer.select(providers, request(new String[]{"k" + i})),
+                    loadBalancer.select(providers, request(new String[]{"k" + i})));
+        }
+    }
+    
+    private static Map<Provider, Integer> count(LoadBalancer loadBalancer, List<Provider> providers, int times) {
+        Map<Provider, Integer> counts = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            counts.merge(loadBalancer.select(providers, request("x")), 1, Integer::sum);
+        }
+        return counts;
+    }
+    
+    private static List<Provider> providers(int... weights) {
+        List<Provider> providers = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            ProviderAddress address = new ProviderAddress("10.0.0." + (i + 1), 8080, weights[i]);
+            providers.add(new Provider(address,
+                    new ChannelPool(new Bootstrap(), address.getHost(), address.getPort(), 1, 3, (ch, pc) -> { })));
+        }
+        return providers;
+    }
+    
+    private static RpcRequest request(Object arg) {
+        RpcRequest request = new RpcRequest();
+        request.setInterfaceName("com.example.rpc.example.HelloService");
+        request.setMethodName("sayHello");
+        request.setParameterTypes(new Class<?>[]{arg.getClass()});
+        request.setParameters(new Object[]{arg});
+        return request;
+    }
+}
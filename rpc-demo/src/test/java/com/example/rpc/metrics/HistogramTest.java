@@ -0,0 +1,42 @@
+package com.example.rpc.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HistogramTest {
+    
+    @Test
+    public void testBucketsCoverValuesWithBoundedError() {
+        long previousIndex = -1;
+        for (long value = 0; value < 1_000_000; value += 7) {
+            int index = Histogram.indexOf(value);
+            assertTrue(index >= previousIndex);
+            previousIndex = index;
+            long equivalent = Histogram.highestEquivalentValue(index);
+            assertTrue(equivalent >= value);
+            // 相对误差不超过1/32
+            assertTrue(equivalent - value <= value / 32);
+        }
+    }
+    
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram(1_000_000_000L);
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(5_000_000_000L);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        
+        assertEquals(10_001, snapshot.getCount());
+        assertEquals(1_000_000_000L, snapshot.getMax());
+        assertEquals(5_000_000, snapshot.getValueAtPercentile(50), 5_000_000 / 32.0);
+        assertEquals(9_900_000, snapshot.getValueAtPercentile(99), 9_900_000 / 32.0);
+        assertEquals(1_000_000_000L, snapshot.getValueAtPercentile(100));
+        
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(99));
+    }
+}
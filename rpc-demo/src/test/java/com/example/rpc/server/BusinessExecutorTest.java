@@ -0,0 +1,66 @@
+package com.example.rpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class BusinessExecutorTest {
+    
+    @Test
+    public void testPoolRejectsWhenSaturated() throws InterruptedException {
+        BusinessExecutor executor = BusinessExecutor.pool(1, 1, RejectPolicy.ABORT);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        // 第一个任务占住唯一的线程, 第二个排队, 第三个被拒绝
+        assertTrue(executor.execute(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.execute(() -> { }));
+        assertFalse(executor.execute(() -> { }));
+        
+        assertEquals(1, executor.getQueueDepth());
+        assertEquals(1, executor.getActiveCount());
+        assertEquals(1, executor.getRejectedCount());
+        
+        release.countDown();
+        executor.shutdown();
+    }
+    
+    @Test
+    public void testCallerRunsWhenSaturated() throws InterruptedException {
+        BusinessExecutor executor = BusinessExecutor.pool(1, 1, RejectPolicy.CALLER_RUNS);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        executor.execute(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> { });
+        
+        Thread caller = Thread.currentThread();
+        boolean[] ranOnCaller = new boolean[1];
+        assertTrue(executor.execute(() -> ranOnCaller[0] = Thread.currentThread() == caller));
+        assertTrue(ranOnCaller[0]);
+        assertEquals(1, executor.getRejectedCount());
+        
+        release.countDown();
+        executor.shutdown();
+    }
+    
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
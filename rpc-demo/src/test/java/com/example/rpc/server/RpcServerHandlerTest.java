@@ -0,0 +1,253 @@
+package com.example.rpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.rpc.common.RpcRequest;
+import com.example.rpc.common.RpcResponse;
+import com.example.rpc.metrics.MethodMetrics;
+import com.example.rpc.metrics.RpcMetrics;
+import com.example.rpc.registry.ServiceRegistry;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class RpcServerHandlerTest {
+    
+    public interface PendingService {
+        CompletableFuture<String> call(String key);
+    }
+    
+    /**
+     * 返回由测试手动完成的future, 模拟任意完成顺序
+     */
+    public static class PendingServiceImpl implements PendingService {
+        final Map<String, CompletableFuture<String>> futures = new HashMap<>();
+        
+        @Override
+        public CompletableFuture<String> call(String key) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            futures.put(key, future);
+            return future;
+        }
+    }
+    
+    public interface ItemService {
+        Iterator<String> items();
+    }
+    
+    @Test
+    public void testCancelBeforeStreamStartsIsHonored() {
+        AtomicBoolean closed = new AtomicBoolean();
+        EmbeddedChannel[] channel = new EmbeddedChannel[1];
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(ItemService.class.getName(), new ItemService() {
+            @Override
+            public Iterator<String> items() {
+                // 服务方法返回之前客户端已取消
+                channel[0].writeInbound(RpcRequest.credit(1, 0));
+                return new InfiniteIterator(closed);
+            }
+        });
+        channel[0] = new EmbeddedChannel(new RpcServerHandler(registry, BusinessExecutor.inline()));
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(1);
+        request.setInterfaceName(ItemService.class.getName());
+        request.setMethodName("items");
+        request.setParameterTypes(new Class<?>[0]);
+        request.setStreamCredit(4);
+        channel[0].writeInbound(request);
+        
+        RpcResponse response = channel[0].readOutbound();
+        assertFalse(response.isPartial());
+        assertEquals("流式调用已取消", response.getError());
+        assertNull(channel[0].readOutbound());
+        assertTrue(closed.get());
+        assertFalse(channel[0].finish());
+    }
+    
+    @Test
+    public void testLargeCreditGrantsSaturate() {
+        EmbeddedChannel[] channel = new EmbeddedChannel[1];
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(ItemService.class.getName(), new ItemService() {
+            @Override
+            public Iterator<String> items() {
+                // 两次接近上限的额度相加不应溢出为负数
+                channel[0].writeInbound(RpcRequest.credit(1, Integer.MAX_VALUE));
+                return Arrays.asList("a", "b", "c").iterator();
+            }
+        });
+        channel[0] = new EmbeddedChannel(new RpcServerHandler(registry, BusinessExecutor.inline()));
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(1);
+        request.setInterfaceName(ItemService.class.getName());
+        request.setMethodName("items");
+        request.setParameterTypes(new Class<?>[0]);
+        request.setStreamCredit(Integer.MAX_VALUE - 1);
+        channel[0].writeInbound(request);
+        
+        RpcResponse response;
+        while ((response = channel[0].readOutbound()) != null && response.isPartial()) {
+            assertFalse(((List<?>) response.getResult()).isEmpty());
+        }
+        assertTrue(response != null && response.isSuccess());
+        assertFalse(channel[0].finish());
+    }
+    
+    private static final class InfiniteIterator implements Iterator<String>, AutoCloseable {
+        private final AtomicBoolean closed;
+        
+        InfiniteIterator(AtomicBoolean closed) {
+            this.closed = closed;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+        
+        @Override
+        public String next() {
+            return "x";
+        }
+        
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+    
+    @Test
+    public void testUnorderedAndOrderedResponses() {
+        PendingServiceImpl service = new PendingServiceImpl();
+        EmbeddedChannel unordered = channel(service, 0, ResponseOrdering.UNORDERED);
+        unordered.writeInbound(request(1, "slow"), request(2, "fast"));
+        service.futures.get("fast").complete("fast");
+        assertEquals(2L, ((RpcResponse) unordered.readOutbound()).getRequestId());
+        service.futures.get("slow").complete("slow");
+        assertEquals(1L, ((RpcResponse) unordered.readOutbound()).getRequestId());
+        
+        EmbeddedChannel ordered = channel(service, 0, ResponseOrdering.ORDERED);
+        ordered.writeInbound(request(1, "slow"), request(2, "fast"));
+        service.futures.get("fast").complete("fast");
+        assertNull(ordered.readOutbound());
+        service.futures.get("slow").complete("slow");
+        assertEquals(1L, ((RpcResponse) ordered.readOutbound()).getRequestId());
+        assertEquals(2L, ((RpcResponse) ordered.readOutbound()).getRequestId());
+        
+        assertFalse(unordered.finish());
+        assertFalse(ordered.finish());
+    }
+    
+    @Test
+    public void testConcurrencyLimitPausesReading() {
+        PendingServiceImpl service = new PendingServiceImpl();
+        EmbeddedChannel channel = channel(service, 1, ResponseOrdering.UNORDERED);
+        channel.writeInbound(request(1, "a"), request(2, "b"));
+        
+        // 第二个请求排队, 连接暂停读取
+        assertTrue(service.futures.containsKey("a"));
+        assertFalse(service.futures.containsKey("b"));
+        assertFalse(channel.config().isAutoRead());
+        
+        service.futures.get("a").complete("a");
+        assertEquals(1L, ((RpcResponse) channel.readOutbound()).getRequestId());
+        assertTrue(service.futures.containsKey("b"));
+        
+        service.futures.get("b").complete("b");
+        assertEquals(2L, ((RpcResponse) channel.readOutbound()).getRequestId());
+        assertTrue(channel.config().isAutoRead());
+        assertFalse(channel.finish());
+    }
+    
+    @Test
+    public void testMetricsRecordInflightAndErrors() {
+        PendingServiceImpl service = new PendingServiceImpl();
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(PendingService.class.getName(), service);
+        RpcServerHandler handler = new RpcServerHandler(registry, BusinessExecutor.inline());
+        RpcMetrics metrics = new RpcMetrics("server");
+        handler.setMetrics(metrics);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        channel.writeInbound(request(1, "ok"), request(2, "fail"));
+        
+        MethodMetrics methodMetrics = metrics.forMethod(PendingService.class.getName(), "call");
+        assertEquals(2, methodMetrics.snapshot().getInflight());
+        service.futures.get("ok").complete("ok");
+        service.futures.get("fail").completeExceptionally(new IllegalStateException("fail"));
+        
+        MethodMetrics.Snapshot snapshot = methodMetrics.snapshot();
+        assertEquals(0, snapshot.getInflight());
+        assertEquals(2, snapshot.getCalls());
+        assertEquals(1, snapshot.getErrors());
+        assertTrue(snapshot.getLatency().getMax() > 0);
+        assertEquals(2, channel.outboundMessages().size());
+        channel.finishAndReleaseAll();
+    }
+    
+    @Test
+    public void testUnknownMethodsShareOneMetricsEntry() {
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(PendingService.class.getName(), new PendingServiceImpl());
+        RpcServerHandler handler = new RpcServerHandler(registry, BusinessExecutor.inline());
+        RpcMetrics metrics = new RpcMetrics("server");
+        handler.setMetrics(metrics);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        for (int i = 0; i < 100; i++) {
+            RpcRequest request = request(i, "x");
+            request.setMethodName("random" + i);
+            channel.writeInbound(request);
+        }
+        
+        assertEquals(1, metrics.snapshot().size());
+        MethodMetrics.Snapshot snapshot = metrics.snapshot().get(0);
+        assertEquals(RpcMetrics.UNKNOWN, snapshot.getMethodName());
+        assertEquals(100, snapshot.getCalls());
+        assertEquals(100, snapshot.getErrors());
+        channel.finishAndReleaseAll();
+    }
+    
+    @Test
+    public void testNestedBatchRejected() {
+        PendingServiceImpl service = new PendingServiceImpl();
+        EmbeddedChannel channel = channel(service, 0, ResponseOrdering.UNORDERED);
+        RpcRequest nested = RpcRequest.batch(Collections.singletonList(request(0, "inner")), false);
+        RpcRequest batch = RpcRequest.batch(Arrays.asList(nested, request(0, "outer")), true);
+        batch.setRequestId(1);
+        channel.writeInbound(batch);
+        service.futures.get("outer").complete("outer");
+        
+        RpcResponse response = channel.readOutbound();
+        assertEquals("批量请求不能嵌套", response.getBatch().get(0).getError());
+        assertEquals("outer", response.getBatch().get(1).getResult());
+        assertFalse(service.futures.containsKey("inner"));
+        assertFalse(channel.finish());
+    }
+    
+    private static EmbeddedChannel channel(PendingService service, int maxConcurrent, ResponseOrdering ordering) {
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.register(PendingService.class.getName(), service);
+        return new EmbeddedChannel(
+                new RpcServerHandler(registry, BusinessExecutor.inline(), maxConcurrent, ordering));
+    }
+    
+    private static RpcRequest request(long requestId, String key) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(requestId);
+        request.setInterfaceName(PendingService.class.getName());
+        request.setMethodName("call");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameters(new Object[]{key});
+        return request;
+    }
+}
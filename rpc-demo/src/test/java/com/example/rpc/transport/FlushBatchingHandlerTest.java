@@ -0,0 +1,60 @@
+package com.example.rpc.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class FlushBatchingHandlerTest {
+    
+    @Test
+    public void testFlushWhenBatchFull() {
+        EmbeddedChannel channel = new EmbeddedChannel(new FlushBatchingHandler(3, 1, TimeUnit.SECONDS));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[]{1}));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[]{2}));
+        assertNull(channel.readOutbound());
+        
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[]{3}));
+        assertEquals(3, drain(channel));
+        channel.finishAndReleaseAll();
+    }
+    
+    @Test
+    public void testFlushOnReadComplete() {
+        EmbeddedChannel channel = new EmbeddedChannel(new FlushBatchingHandler(100, 1, TimeUnit.SECONDS));
+        channel.pipeline().fireChannelRead(Unpooled.EMPTY_BUFFER);
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[]{1}));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[]{2}));
+        assertNull(channel.readOutbound());
+        
+        channel.pipeline().fireChannelReadComplete();
+        assertEquals(2, drain(channel));
+        channel.finishAndReleaseAll();
+    }
+    
+    @Test
+    public void testFlushAfterMaxDelay() throws InterruptedException {
+        EmbeddedChannel channel = new EmbeddedChannel(new FlushBatchingHandler(100, 10, TimeUnit.MILLISECONDS));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[]{1}));
+        assertNull(channel.readOutbound());
+        
+        Thread.sleep(20);
+        channel.runScheduledPendingTasks();
+        assertEquals(1, drain(channel));
+        channel.finishAndReleaseAll();
+    }
+    
+    private static int drain(EmbeddedChannel channel) {
+        int count = 0;
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            buf.release();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.rpc.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.rpc.client.RpcClient;
+import com.example.rpc.codec.SerializerFactory;
+import com.example.rpc.example.HelloService;
+import com.example.rpc.example.HelloServiceImpl;
+import com.example.rpc.registry.ServiceRegistry;
+import com.example.rpc.server.BusinessExecutor;
+import com.example.rpc.server.RpcServer;
+import org.junit.Test;
+
+public class TransportTest {
+    private static final int PORT = 18186;
+    
+    @Test
+    public void testAutoPrefersNativeTransport() {
+        Transport transport = Transport.auto();
+        if (Transport.isAvailable(TransportType.EPOLL)) {
+            assertTrue(transport.getType() != TransportType.NIO);
+        }
+        assertTrue(Transport.isAvailable(transport.getType()));
+        assertEquals(TransportType.NIO, Transport.of(TransportType.NIO).getType());
+    }
+    
+    @Test
+    public void testRoundTripOverEachAvailableTransport() throws Exception {
+        for (TransportType type : TransportType.values()) {
+            if (!Transport.isAvailable(type)) {
+                continue;
+            }
+            Transport transport = Transport.of(type);
+            ServiceRegistry registry = new ServiceRegistry();
+            registry.register(HelloService.class.getName(), new HelloServiceImpl());
+            RpcServer server = new RpcServer(PORT, registry, BusinessExecutor.inline());
+            server.setTransport(transport);
+            server.setIoThreads(2);
+            // 不支持SO_REUSEPORT的实现退化为单个acceptor
+            server.setAcceptors(4);
+            Thread thread = new Thread(() -> {
+                try {
+                    server.start();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+            
+            RpcClient client = new RpcClient("localhost", PORT, SerializerFactory.getDefault(), 4, transport, 1);
+            try {
+                for (int i = 0; ; i++) {
+                    try {
+                        client.connect();
+                        break;
+                    } catch (Exception e) {
+                        if (i >= 50) {
+                            throw e;
+                        }
+                        Thread.sleep(100);
+                    }
+                }
+                HelloService helloService = client.create(HelloService.class);
+                for (int i = 0; i < 20; i++) {
+                    assertEquals(type + " #" + i, "Hello, " + type + i, helloService.sayHello(type.name() + i));
+                }
+            } finally {
+                client.close();
+                server.shutdown();
+                thread.join(5000);
+            }
+        }
+    }
+}